@@ -5,6 +5,11 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(value=Suite.class)
 @SuiteClasses(value= {TokenTest.class,
+                      LexerTest.class,
+                      TokenBufferTest.class,
+                      TreeStackTest.class,
+                      GrammarTest.class,
+                      ParserGeneratorTest.class,
                       RecognizerTest.class,
                       ParserTest.class,
                       tree.TreeTest.class,
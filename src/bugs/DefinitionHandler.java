@@ -0,0 +1,22 @@
+package bugs;
+
+import tree.Tree;
+
+/**
+ * Receives the definitions of a Bugs program one at a time, as the
+ * <code>Parser</code> finishes them, so that a program of any length can
+ * be processed without ever holding the whole of its Tree.
+ *
+ * @see Parser#isProgram(DefinitionHandler)
+ */
+public interface DefinitionHandler {
+    /**
+     * Called with each completed definition: first the Allbugs
+     * section (an empty one if the program has none), then each Bug
+     * definition in order. The Parser keeps no reference to the Tree
+     * once this method returns.
+     * @param definition The Tree of the definition, rooted at an
+     *        <code>Allbugs</code> or a <code>Bug</code> node.
+     */
+    void definition(Tree<Token> definition);
+}
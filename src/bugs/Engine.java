@@ -0,0 +1,471 @@
+package bugs;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a compiled <code>Grammar</code> over the tokens of a
+ * <code>TokenBuffer</code>, passing the grammar's actions on to a
+ * <code>ParseListener</code>, usually the <code>TreeStack</code> that
+ * builds the Trees.
+ * <p>
+ * The rules are run by a single loop, and a call of one rule from
+ * another is kept on a stack of ints instead of the Java stack, so
+ * nesting depth costs no Java recursion, and the work for each token is
+ * a table lookup and the actions that follow it. A rule fails, as an
+ * <code>isXxx</code> method returns <code>false</code>, by returning to
+ * the instruction that called it and taking that instruction's failure
+ * operand.
+ * <p>
+ * Binary operators are parsed by precedence climbing, with a stack of
+ * the levels of the operators whose Trees are still to be made: before
+ * each operator, the Trees of those that bind at least as tightly are
+ * made, and the rest when there are no more operators.
+ * <p>
+ * The listener is also told as each rule is started and finished with,
+ * whether or not it builds a Tree. Unless it is the TreeStack, it is
+ * given its own copies of the arrays of children, so that it cannot
+ * change the grammar.
+ * <p>
+ * Given no listener, the Engine only recognizes: tokens are skipped rather
+ * than made into Trees, and the actions are not carried out, so nothing
+ * is allocated for each token. <code>check</code> goes further and
+ * reports the first error as numbers instead of throwing it.
+ * <p>
+ * An Engine is not thread-safe, and belongs to one Parser.
+ */
+final class Engine {
+    private static final int INITIAL_DEPTH = 32;
+    /** The children of the Tree of a binary operator: its two operands. */
+    private static final int[] OPERANDS = {3, 1};
+
+    private final Grammar grammar;
+    private final int[] code;
+    private final int[][] tables;
+    private final TokenBuffer tokens;
+
+    /**
+     * The code <code>errorCode</code> gives when the rule checked is
+     * not there at all, rather than having an error in it.
+     */
+    static final int NOT_FOUND = -1;
+
+    /** What the actions are passed on to, or <code>null</code> if only recognizing. */
+    private ParseListener listener;
+    /**
+     * Whether the listener is given copies of the grammar's arrays of
+     * child indices, so that it cannot change them; a TreeStack is not.
+     */
+    private boolean copies;
+    /** The number of nodes the listener has on its stack, counting from the start of the parse. */
+    private int size;
+    // The last two tokens passed to the listener, for joining
+    private Token previous;
+    private Token last;
+    /** The errors recovered from, or <code>null</code> if not recovering. */
+    private List<SyntaxException> errors;
+    /** Whether an error in the rule being parsed may be recovered from. */
+    private boolean recoverEntry;
+    /** Whether an error is to be recorded as numbers instead of thrown. */
+    private boolean checking;
+    // The first error found by check
+    private int errorOffset;
+    private int errorCode;
+    /** Where the last TERM, SKIP or PREDICT to fail is, for the expected tokens. */
+    private int failedAt;
+
+    // For each rule being parsed: where it was called from, and the size
+    // of the listener's stack and the token position when it was called
+    private int[] sites = new int[INITIAL_DEPTH];
+    private int[] depths = new int[INITIAL_DEPTH];
+    private int[] starts = new int[INITIAL_DEPTH];
+    /** The number of rules being parsed. */
+    private int depth = 0;
+    /** For each rule being parsed, the number of operators pending when it was called. */
+    private int[] bases = new int[INITIAL_DEPTH];
+
+    /** The levels of the binary operators whose Trees are still to be made. */
+    private int[] levels = new int[INITIAL_DEPTH];
+    /** The number of those operators. */
+    private int pending = 0;
+
+    /**
+     * Constructs an Engine for the given grammar and tokens.
+     * @param grammar The compiled grammar.
+     * @param tokens The tokens to be parsed.
+     */
+    Engine(Grammar grammar, TokenBuffer tokens) {
+        this.grammar = grammar;
+        this.code = grammar.code;
+        this.tables = grammar.tables;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Tries to parse the given rule at the next token, as the
+     * corresponding <code>isXxx</code> method of the Parser does.
+     * @param rule The number of the rule in the grammar.
+     * @param listener What to pass the actions on to, such as the
+     *        stack to build the Trees on, or <code>null</code> to build
+     *        nothing.
+     * @param errors Where to record the errors recovered from, or
+     *        <code>null</code> if errors are not to be recovered from,
+     *        which they cannot be if there is no listener.
+     * @param recover Whether an error in the rule itself may be
+     *        recovered from, as if it had been called by another rule.
+     * @return <code>true</code> if the rule is parsed.
+     * @throws SyntaxException If a required element is missing.
+     */
+    boolean parse(int rule, ParseListener listener, List<SyntaxException> errors,
+                  boolean recover) {
+        this.listener = listener;
+        this.errors = errors;
+        this.recoverEntry = recover;
+        copies = listener != null && listener.getClass() != TreeStack.class;
+        checking = false;
+        return run(rule);
+    }
+
+    /**
+     * Recognizes the given rule at the next token, building nothing, and
+     * stopping at the first error without throwing it.
+     * @param rule The number of the rule in the grammar.
+     * @return -1 if the rule is recognized; otherwise the offset of the
+     *         token at which the first error was found, whose code is
+     *         then given by <code>errorCode</code>.
+     */
+    int check(int rule) {
+        listener = null;
+        errors = null;
+        recoverEntry = false;
+        checking = true;
+        errorCode = NOT_FOUND;
+        if (run(rule)) return -1;
+        if (errorCode == NOT_FOUND) errorOffset = tokens.start(tokens.position());
+        return errorOffset;
+    }
+
+    /**
+     * Returns the code of the error that <code>check</code> last found.
+     * @return The index of its message in the grammar's
+     *         <code>messages</code>, or <code>NOT_FOUND</code> if the
+     *         rule was not there at all.
+     */
+    int errorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Runs the given rule, as set up by <code>parse</code> or
+     * <code>check</code>.
+     * @param rule The number of the rule in the grammar.
+     * @return <code>true</code> if the rule is parsed.
+     */
+    private boolean run(int rule) {
+        depth = 0;
+        size = 0;
+        pending = 0;
+        final int[] code = this.code;
+        final ParseListener listener = this.listener;
+        final boolean builds = listener != null;
+        int pc = grammar.stubs[rule];
+        while (true) {
+            switch (code[pc]) {
+                case Grammar.TERM:
+                    if (matches(code[pc + 1])) {
+                        if (builds) token(tokens.next());
+                        else tokens.skip();
+                        pc += 3;
+                    }
+                    else {
+                        failedAt = pc;
+                        pc = fail(code[pc + 2]);
+                    }
+                    break;
+                case Grammar.SKIP:
+                    if (matches(code[pc + 1])) {
+                        tokens.skip();
+                        pc += 3;
+                    }
+                    else {
+                        failedAt = pc;
+                        pc = fail(code[pc + 2]);
+                    }
+                    break;
+                case Grammar.CALL:
+                    call(pc);
+                    pc = code[pc + 1];
+                    break;
+                case Grammar.PREDICT:
+                    int target = tables[code[pc + 1]][lookahead()];
+                    if (target >= 0) pc = target;
+                    else if (errors != null && code[pc + 3] >= 0) pc = code[pc + 3];
+                    else {
+                        failedAt = pc;
+                        pc = fail(code[pc + 2]);
+                    }
+                    break;
+                case Grammar.JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case Grammar.CLIMB:
+                    target = tables[code[pc + 1]][lookahead()];
+                    if (target >= 0) pc = target;
+                    else {
+                        if (builds) reduceOperators(0);
+                        pc = code[pc + 2];
+                    }
+                    break;
+                case Grammar.OPERATOR:
+                    if (builds) {
+                        int level = code[pc + 1];
+                        reduceOperators(level);
+                        if (pending == levels.length) levels = Arrays.copyOf(levels, 2 * pending);
+                        levels[pending++] = level;
+                    }
+                    pc += 2;
+                    break;
+                case Grammar.RETURN:
+                    if (depth == 0) return true;
+                    pc = sites[--depth] + 4;
+                    if (builds) exit(depth, true);
+                    break;
+                case Grammar.PUSH:
+                    if (builds) token(Token.valueOf(grammar.values[code[pc + 1]]));
+                    pc += 2;
+                    break;
+                case Grammar.POP:
+                    if (builds) {
+                        listener.discard();
+                        size--;
+                    }
+                    pc += 1;
+                    break;
+                case Grammar.TREE:
+                    if (builds) {
+                        int[] children = grammar.treeChildren[code[pc + 1]];
+                        listener.reduce(grammar.treeRoots[code[pc + 1]],
+                                        copies ? children.clone() : children);
+                        size -= children.length;
+                    }
+                    pc += 2;
+                    break;
+                case Grammar.JOIN:
+                    if (builds) {
+                        // The nodes joined are always the last two tokens
+                        listener.discard();
+                        listener.discard();
+                        size -= 2;
+                        token(Token.valueOf(previous.value() + last.value()));
+                    }
+                    pc += 1;
+                    break;
+                default:
+                    throw new IllegalStateException("Bad instruction at " + pc);
+            }
+            if (pc < 0) return false;
+        }
+    }
+
+    /**
+     * Makes the Trees of the pending operators of the rule being parsed
+     * that bind at least as tightly as the given level, the last first.
+     * Each operator is on the listener's stack between its operands.
+     * @param level The level, or 0 for all of them.
+     */
+    private void reduceOperators(int level) {
+        int base = bases[depth - 1];
+        while (pending > base && levels[pending - 1] >= level) {
+            listener.reduce(2, copies ? OPERANDS.clone() : OPERANDS);
+            size -= 2;
+            pending--;
+        }
+    }
+
+    /**
+     * Passes a token on to the listener.
+     * @param token The token.
+     */
+    private void token(Token token) {
+        listener.token(token);
+        previous = last;
+        last = token;
+        size++;
+    }
+
+    /**
+     * Returns the terminal number of the next token.
+     * @return The terminal number, as <code>Grammar</code> defines it.
+     */
+    private int lookahead() {
+        return Grammar.terminal(tokens);
+    }
+
+    /**
+     * Tests whether the next token is the given terminal.
+     * @param terminal The terminal number, or <code>ANY_KEYWORD</code>.
+     * @return <code>true</code> if the next token matches.
+     */
+    private boolean matches(int terminal) {
+        int next = lookahead();
+        return next == terminal || terminal == Grammar.ANY_KEYWORD && next < Grammar.KEYWORDS;
+    }
+
+    /**
+     * Records a call of a rule.
+     * @param site Where the call is.
+     */
+    private void call(int site) {
+        if (depth == sites.length) {
+            sites = Arrays.copyOf(sites, 2 * depth);
+            depths = Arrays.copyOf(depths, 2 * depth);
+            starts = Arrays.copyOf(starts, 2 * depth);
+            bases = Arrays.copyOf(bases, 2 * depth);
+        }
+        sites[depth] = site;
+        bases[depth] = pending;
+        depths[depth] = size;
+        starts[depth] = tokens.position();
+        depth++;
+        if (listener != null) listener.enterNode(grammar.ruleNames[code[site + 3]]);
+    }
+
+    /**
+     * Tells the listener that a rule being parsed is finished with.
+     * @param i Which of the rules being parsed, counting the outermost as 0.
+     * @param parsed Whether the rule was parsed.
+     */
+    private void exit(int i, boolean parsed) {
+        listener.exitNode(grammar.ruleNames[code[sites[i] + 3]], parsed);
+    }
+
+    /**
+     * Carries out a failure operand: goes somewhere else, makes the rule
+     * being parsed fail (and so on, up to the first call that says where
+     * to go), or reports an error.
+     * @param action The failure operand.
+     * @return Where to go next, or -1 if the outermost rule has failed
+     *         or <code>check</code> has found an error.
+     */
+    private int fail(int action) {
+        while (action == Grammar.FAIL) {
+            if (depth == 0) return -1;
+            int site = sites[--depth];
+            pending = bases[depth];
+            action = code[site + 2];
+            if (recovers(depth)) {
+                int rule = code[site + 3];
+                if (!grammar.recoveryEnds[rule][lookahead()]) {
+                    String message = grammar.recoveryMessages[rule];
+                    return recover(error(message, grammar.messageCode(message)), depth);
+                }
+            }
+            if (listener != null) exit(depth, false);
+        }
+        if (action >= 0) return action;
+        if (checking) {
+            errorCode = -2 - action;
+            errorOffset = tokens.start(tokens.position());
+            depth = 0;
+            return -1;
+        }
+        SyntaxException e = error(grammar.messages[-2 - action], -2 - action);
+        if (errors != null) {
+            for (int i = depth - 1; i >= 0; i--) {
+                if (recovers(i)) {
+                    for (int j = depth - 1; j > i; j--) exit(j, false);
+                    depth = i;
+                    return recover(e, i);
+                }
+            }
+        }
+        throw e;
+    }
+
+    /**
+     * Tests whether an error in a rule being parsed is to be recovered
+     * from there.
+     * @param i Which of the rules being parsed, counting the outermost as 0.
+     * @return <code>true</code> if the error is recovered from.
+     */
+    private boolean recovers(int i) {
+        return errors != null && grammar.recovery[code[sites[i] + 3]] != Grammar.NO_RECOVERY
+            && (i > 0 || recoverEntry);
+    }
+
+    /**
+     * Records an error, removes what was built since the rule in which
+     * it was found was called, and pushes an error node in its place.
+     * Then skips at least one token, and on to where that rule's
+     * recovery says.
+     * @param e The error.
+     * @param i Which of the rules being parsed the error is recovered
+     *        from; it is no longer being parsed.
+     * @return Where to go on from, just after the rule's call.
+     */
+    private int recover(SyntaxException e, int i) {
+        errors.add(e);
+        for (; size > depths[i]; size--) listener.discard();
+        pending = bases[i];
+        token(new Token(Token.Type.ERROR, e.getDetail()));
+        exit(i, false);
+        if (tokens.position() == starts[i] && !tokens.matches(Token.Type.EOF)) {
+            tokens.skip();
+        }
+        if (grammar.recovery[code[sites[i] + 3]] == Grammar.TO_LINE) skipLine();
+        else skipToBugDefinition();
+        return sites[i] + 4;
+    }
+
+    /**
+     * Skips to the end of the current line, and past any following line
+     * ends. If braces are opened on the line, the lines up to the
+     * matching close brace are skipped too. Skipping stops before a
+     * close brace that was not opened, or at the end of the input.
+     */
+    private void skipLine() {
+        int braces = 0;
+        while (true) {
+            Token.Type type = tokens.peekType(0);
+            if (type == Token.Type.EOF) return;
+            if (type == Token.Type.EOL && braces == 0) {
+                while (tokens.matches(Token.Type.EOL)) tokens.skip();
+                return;
+            }
+            char c = tokens.peekSymbol();
+            if (c == '{') braces++;
+            else if (c == '}') {
+                if (braces == 0) return;
+                braces--;
+            }
+            tokens.skip();
+        }
+    }
+
+    /**
+     * Skips to the next line that starts with <code>Bug</code>, or to
+     * the end of the input.
+     */
+    private void skipToBugDefinition() {
+        while (!tokens.matches(Token.Type.EOF)) {
+            if (tokens.peekKeyword() == Token.Keyword.BUG
+                    && tokens.peekType(-1) == Token.Type.EOL) return;
+            tokens.skip();
+        }
+    }
+
+    /**
+     * Makes a <code>SyntaxException</code> with the given message, at
+     * the next token, expecting what the instruction that failed could
+     * have matched.
+     * @param message What is wrong.
+     * @param errorCode The code of the message.
+     * @return The exception.
+     */
+    private SyntaxException error(String message, int errorCode) {
+        int position = tokens.position();
+        return new SyntaxException(message, errorCode, grammar.expected(failedAt),
+                                   tokens.lineNumber(), tokens.column(position),
+                                   tokens.start(position));
+    }
+}
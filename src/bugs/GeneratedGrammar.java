@@ -0,0 +1,192 @@
+// Generated from Bugs.grammar by ParserGenerator; do not edit.
+// To change it, change the grammar and run
+//     java bugs.ParserGenerator src/bugs/Bugs.grammar src/bugs
+package bugs;
+
+/**
+ * The tables compiled from <code>Bugs.grammar</code>, from which
+ * <code>Grammar.BUGS</code> is made.
+ */
+final class GeneratedGrammar {
+    private GeneratedGrammar() {}
+
+    /**
+     * Makes the Grammar from the tables.
+     * @return The grammar.
+     */
+    static Grammar grammar() {
+        return new Grammar(CODE, TABLES, VALUES, TREES, MESSAGES, RULE_NAMES,
+                           STUBS, RECOVERY, RECOVERY_MESSAGES, RECOVERY_ENDS);
+    }
+
+    /** The instructions of all the rules. */
+    private static final int[] CODE = {
+        3, 0, -1, -1, 2, 44, -1, 1, 2, 94, -2, 2, 4, 20, 6, 0, 2, 94, -1, 2, 6,
+        1, 8, 0, 3, 1, 36, 28, 2, 94, 36, 2, 8, 1, 4, 24, 1, 39, -3, 6, 2, 8,
+        2, 5, 0, 0, -1, 1, 163, -4, 2, 698, -5, 24, 7, 6, 3, 3, 2, 69, -1, 2,
+        189, 69, 3, 8, 3, 4, 57, 6, 4, 3, 3, 83, -1, 2, 637, 83, 22, 8, 4, 4,
+        71, 1, 165, -6, 2, 698, -5, 24, 7, 8, 5, 5, 0, 1, -1, 0, 36, -7, 1,
+        163, -4, 2, 698, -5, 24, 7, 8, 6, 6, 5, 3, 4, 124, -1, 2, 189, 124, 3,
+        8, 7, 4, 112, 8, 8, 3, 5, -1, -1, 2, 217, -1, 4, 8, 9, 4, 142, 6, 6, 8,
+        10, 2, 227, -8, 5, 6, 7, 8, 11, 3, 6, 162, 154, 2, 227, 162, 5, 8, 12,
+        4, 150, 8, 13, 6, 8, 3, 7, 178, -1, 2, 637, 178, 22, 8, 14, 4, 166, 1,
+        165, -9, 2, 698, -5, 24, 7, 8, 15, 5, 0, 17, -1, 0, 36, -10, 8, 16, 3,
+        8, 211, -1, 1, 84, 211, 0, 36, -11, 8, 17, 4, 197, 2, 698, -5, 24, 7,
+        5, 0, 18, -1, 2, 606, -12, 21, 8, 18, 5, 3, 9, -1, -1, 2, 280, -1, 7,
+        5, 2, 241, -1, 6, 5, 3, 10, -1, -1, 2, 418, -1, 13, 5, 2, 440, -1, 14,
+        5, 2, 450, -1, 15, 5, 2, 468, -1, 16, 5, 2, 549, -1, 18, 5, 2, 564, -1,
+        19, 5, 2, 592, -1, 20, 5, 3, 11, -1, -1, 2, 309, -1, 8, 5, 2, 324, -1,
+        9, 5, 2, 346, -1, 10, 5, 2, 361, -1, 11, 5, 2, 376, -1, 12, 5, 0, 2,
+        -1, 2, 711, -13, 25, 8, 19, 2, 698, -5, 24, 7, 5, 0, 3, -1, 2, 711,
+        -13, 25, 1, 84, -14, 2, 711, -15, 25, 8, 20, 2, 698, -16, 24, 7, 5, 0,
+        4, -1, 2, 711, -13, 25, 8, 21, 2, 698, -5, 24, 7, 5, 0, 5, -1, 2, 711,
+        -13, 25, 8, 22, 2, 698, -5, 24, 7, 5, 0, 6, -1, 2, 711, -17, 25, 8, 23,
+        1, 84, -14, 2, 711, -17, 25, 8, 24, 1, 84, -14, 2, 711, -17, 25, 8, 25,
+        1, 84, -14, 2, 711, -17, 25, 8, 26, 2, 698, -16, 24, 7, 5, 0, 36, -1,
+        6, 9, 8, 27, 1, 101, -18, 2, 711, -19, 25, 8, 28, 2, 698, -5, 24, 7, 5,
+        0, 7, -1, 2, 606, -20, 21, 8, 29, 5, 0, 8, -1, 1, 9, -21, 2, 711, -22,
+        25, 8, 30, 2, 698, -5, 24, 7, 5, 0, 10, -1, 1, 163, -4, 2, 698, -23,
+        24, 7, 3, 12, -24, -1, 2, 518, -24, 17, 3, 13, 497, -1, 2, 518, 497,
+        17, 4, 487, 8, 31, 1, 165, -24, 2, 698, -16, 24, 7, 4, 517, 1, 165,
+        -24, 2, 698, -16, 24, 7, 5, 0, 11, -1, 2, 711, -25, 25, 8, 32, 2, 698,
+        -16, 24, 7, 6, 10, 3, 14, 546, 538, 2, 227, 546, 5, 8, 33, 4, 534, 8,
+        34, 5, 0, 12, -1, 2, 711, -26, 25, 8, 35, 2, 698, -5, 24, 7, 5, 1, 13,
+        -1, 6, 11, 0, 36, -27, 8, 36, 3, 15, 586, -1, 2, 882, 586, 30, 8, 37,
+        4, 586, 2, 698, -5, 24, 7, 5, 0, 14, -1, 0, 169, -28, 8, 38, 2, 698,
+        -5, 24, 7, 5, 1, 163, -1, 6, 12, 2, 698, -29, 24, 7, 3, 16, 628, 620,
+        2, 227, 628, 5, 8, 39, 4, 616, 1, 165, -30, 2, 698, -5, 24, 7, 5, 1,
+        15, -1, 6, 13, 0, 36, -1, 8, 40, 6, 14, 3, 17, 677, -1, 1, 16, 677, 0,
+        36, -1, 8, 41, 3, 18, 675, -1, 1, 84, 675, 0, 36, -31, 8, 42, 4, 661,
+        4, 677, 2, 606, -1, 21, 8, 43, 5, 0, 36, -1, 6, 15, 8, 44, 2, 882, -1,
+        30, 8, 45, 5, 0, 38, -1, 3, 19, 710, -1, 1, 38, 710, 4, 701, 5, 2, 807,
+        -1, 28, 10, 20, 754, 11, 1, 2, 918, -1, 31, 2, 807, -32, 28, 4, 715,
+        11, 2, 2, 954, -1, 32, 2, 807, -33, 28, 4, 715, 11, 3, 2, 966, -1, 33,
+        2, 807, -34, 28, 4, 715, 5, 2, 807, -1, 28, 10, 21, 786, 11, 1, 2, 954,
+        -1, 32, 2, 807, -33, 28, 4, 759, 11, 2, 2, 966, -1, 33, 2, 807, -34,
+        28, 4, 759, 5, 2, 807, -1, 28, 10, 22, 806, 11, 1, 2, 966, -1, 33, 2,
+        807, -34, 28, 4, 791, 5, 3, 23, -1, -1, 3, 24, -1, -1, 0, 83, -1, 4,
+        823, 0, 85, -1, 2, 835, -35, 29, 8, 46, 5, 2, 835, -1, 29, 5, 3, 25,
+        -1, -1, 0, 36, -1, 3, 26, 866, -1, 0, 86, 866, 0, 36, -36, 8, 47, 4,
+        866, 2, 882, 866, 30, 6, 16, 8, 48, 4, 866, 5, 0, 37, -1, 5, 1, 80, -1,
+        2, 711, -37, 25, 1, 81, -38, 5, 1, 80, -1, 6, 17, 3, 27, 914, -1, 2,
+        711, 914, 25, 8, 49, 3, 28, 912, -1, 1, 84, 912, 2, 711, -39, 25, 8,
+        50, 4, 897, 4, 914, 1, 81, -40, 5, 3, 29, -1, -1, 3, 30, -1, -1, 0,
+        100, -1, 4, 939, 0, 102, -1, 4, 939, 0, 73, -1, 3, 31, 949, -1, 0, 101,
+        949, 9, 4, 949, 5, 0, 101, -1, 5, 3, 32, -1, -1, 0, 83, -1, 5, 0, 85,
+        -1, 5, 3, 33, -1, -1, 0, 82, -1, 5, 0, 87, -1, 5, 0, 36, -1, 5, 2, 0,
+        -1, 0, 5, 2, 44, -1, 1, 5, 2, 94, -1, 2, 5, 2, 189, -1, 3, 5, 2, 217,
+        -1, 4, 5, 2, 227, -1, 5, 5, 2, 241, -1, 6, 5, 2, 280, -1, 7, 5, 2, 309,
+        -1, 8, 5, 2, 324, -1, 9, 5, 2, 346, -1, 10, 5, 2, 361, -1, 11, 5, 2,
+        376, -1, 12, 5, 2, 418, -1, 13, 5, 2, 440, -1, 14, 5, 2, 450, -1, 15,
+        5, 2, 468, -1, 16, 5, 2, 518, -1, 17, 5, 2, 549, -1, 18, 5, 2, 564, -1,
+        19, 5, 2, 592, -1, 20, 5, 2, 606, -1, 21, 5, 2, 637, -1, 22, 5, 2, 684,
+        -1, 23, 5, 2, 698, -1, 24, 5, 2, 711, -1, 25, 5, 2, 755, -1, 26, 5, 2,
+        787, -1, 27, 5, 2, 807, -1, 28, 5, 2, 835, -1, 29, 5, 2, 882, -1, 30,
+        5, 2, 918, -1, 31, 5, 2, 954, -1, 32, 5, 2, 966, -1, 33, 5, 2, 978, -1,
+        34, 5,
+    };
+    /** Each prediction table, as each terminal in it followed by where to go. */
+    private static final int[][] TABLES = {
+        { 0, 4, 1, 14, 2, 14, 3, 14, 4, 14, 5, 14, 6, 14, 7, 14, 8, 14, 9, 14, 10, 14, 11, 14, 12, 14, 13, 14, 14, 14, 15, 14, 16, 14, 17, 14, 18, 14, 19, 14, 20, 14, 21, 14, 22, 14, 23, 14, 24, 14, 25, 14, 26, 14, 27, 14, 28, 14, 29, 14, 30, 14, 31, 14, 32, 14, 33, 14, 34, 14, 35, 14, 36, 14, 37, 14, 38, 14, 39, 14, 40, 14, 41, 14, 42, 14, 43, 14, 44, 14, 45, 14, 46, 14, 47, 14, 48, 14, 49, 14, 50, 14, 51, 14, 52, 14, 53, 14, 54, 14, 55, 14, 56, 14, 57, 14, 58, 14, 59, 14, 60, 14, 61, 14, 62, 14, 63, 14, 64, 14, 65, 14, 66, 14, 67, 14, 68, 14, 69, 14, 70, 14, 71, 14, 72, 14, 73, 14, 74, 14, 75, 14, 76, 14, 77, 14, 78, 14, 79, 14, 80, 14, 81, 14, 82, 14, 83, 14, 84, 14, 85, 14, 86, 14, 87, 14, 88, 14, 89, 14, 90, 14, 91, 14, 92, 14, 93, 14, 94, 14, 95, 14, 96, 14, 97, 14, 98, 14, 99, 14, 100, 14, 101, 14, 102, 14, 103, 14, 104, 14, 105, 14, 106, 14, 107, 14, 108, 14, 109, 14, 110, 14, 111, 14, 112, 14, 113, 14, 114, 14, 115, 14, 116, 14, 117, 14, 118, 14, 119, 14, 120, 14, 121, 14, 122, 14, 123, 14, 124, 14, 125, 14, 126, 14, 127, 14, 128, 14, 129, 14, 130, 14, 131, 14, 132, 14, 133, 14, 134, 14, 135, 14, 136, 14, 137, 14, 138, 14, 139, 14, 140, 14, 141, 14, 142, 14, 143, 14, 144, 14, 145, 14, 146, 14, 147, 14, 148, 14, 149, 14, 150, 14, 151, 14, 152, 14, 153, 14, 154, 14, 155, 14, 156, 14, 157, 14, 158, 14, 159, 14, 160, 14, 161, 14, 162, 14, 163, 14, 164, 14, 165, 14, 166, 14, 167, 14, 168, 14 },
+        { 1, 28 }, { 17, 61 }, { 15, 75 }, { 17, 116 },
+        { 0, 138, 1, 138, 2, 138, 3, 138, 4, 138, 5, 138, 6, 138, 7, 138, 8, 138, 9, 138, 10, 138, 11, 138, 12, 138, 13, 138, 14, 138, 15, 138, 16, 138, 17, 138, 18, 130, 19, 138, 20, 138, 21, 138, 22, 138, 23, 138, 24, 138, 25, 138, 26, 138, 27, 138, 28, 138, 29, 138, 30, 138, 31, 138, 32, 138, 33, 138, 34, 138, 35, 138, 36, 138, 37, 138, 38, 138, 39, 138, 40, 138, 41, 138, 42, 138, 43, 138, 44, 138, 45, 138, 46, 138, 47, 138, 48, 138, 49, 138, 50, 138, 51, 138, 52, 138, 53, 138, 54, 138, 55, 138, 56, 138, 57, 138, 58, 138, 59, 138, 60, 138, 61, 138, 62, 138, 63, 138, 64, 138, 65, 138, 66, 138, 67, 138, 68, 138, 69, 138, 70, 138, 71, 138, 72, 138, 73, 138, 74, 138, 75, 138, 76, 138, 77, 138, 78, 138, 79, 138, 80, 138, 81, 138, 82, 138, 83, 138, 84, 138, 85, 138, 86, 138, 87, 138, 88, 138, 89, 138, 90, 138, 91, 138, 92, 138, 93, 138, 94, 138, 95, 138, 96, 138, 97, 138, 98, 138, 99, 138, 100, 138, 101, 138, 102, 138, 103, 138, 104, 138, 105, 138, 106, 138, 107, 138, 108, 138, 109, 138, 110, 138, 111, 138, 112, 138, 113, 138, 114, 138, 115, 138, 116, 138, 117, 138, 118, 138, 119, 138, 120, 138, 121, 138, 122, 138, 123, 138, 124, 138, 125, 138, 126, 138, 127, 138, 128, 138, 129, 138, 130, 138, 131, 138, 132, 138, 133, 138, 134, 138, 135, 138, 136, 138, 137, 138, 138, 138, 139, 138, 140, 138, 141, 138, 142, 138, 143, 138, 144, 138, 145, 138, 146, 138, 147, 138, 148, 138, 149, 138, 150, 138, 151, 138, 152, 138, 153, 138, 154, 138, 155, 138, 156, 138, 157, 138, 158, 138, 159, 138, 160, 138, 161, 138, 162, 138, 163, 138, 164, 138, 165, 138, 166, 138, 167, 138, 168, 138 },
+        { 2, 154, 3, 154, 4, 154, 5, 154, 6, 154, 7, 154, 8, 154, 10, 154, 12, 154, 13, 154, 14, 154, 36, 154 },
+        { 15, 170 }, { 84, 201 },
+        { 2, 231, 3, 231, 4, 231, 5, 231, 6, 231, 7, 236, 8, 236, 10, 236, 12, 236, 13, 236, 14, 236, 36, 236 },
+        { 7, 250, 8, 255, 10, 260, 12, 265, 13, 270, 14, 275, 36, 245 },
+        { 2, 284, 3, 289, 4, 294, 5, 299, 6, 304 }, { 11, 483, 165, 509 },
+        { 11, 491 },
+        { 2, 538, 3, 538, 4, 538, 5, 538, 6, 538, 7, 538, 8, 538, 10, 538, 12, 538, 13, 538, 14, 538, 36, 538 },
+        { 80, 578 },
+        { 2, 620, 3, 620, 4, 620, 5, 620, 6, 620, 7, 620, 8, 620, 10, 620, 12, 620, 13, 620, 14, 620, 36, 620 },
+        { 16, 653 }, { 84, 665 }, { 38, 705 },
+        { 73, 718, 82, 742, 83, 730, 85, 730, 87, 742, 100, 718, 101, 718, 102, 718 },
+        { 82, 774, 83, 762, 85, 762, 87, 774 }, { 82, 794, 87, 794 },
+        { 36, 830, 37, 830, 80, 830, 83, 811, 85, 811 }, { 83, 815, 85, 820 },
+        { 36, 839, 37, 867, 80, 871 }, { 80, 856, 86, 846 },
+        { 36, 891, 37, 891, 80, 891, 83, 891, 85, 891 }, { 84, 901 },
+        { 73, 922, 100, 922, 101, 950, 102, 922 },
+        { 73, 936, 100, 926, 102, 931 }, { 101, 943 }, { 83, 958, 85, 962 },
+        { 82, 970, 87, 974 },
+    };
+    /** The values of the nodes that are pushed. */
+    private static final String[] VALUES = {
+        "Allbugs", "list", "program", "list", "list", "list", "initially",
+        "block", "list", "assign", "block", "call", "block", "function", "var",
+        "call", "call", "var",
+    };
+    /** The root index of each tree that is made, followed by its child indices. */
+    private static final int[][] TREES = {
+        { 1, 2 }, { 2, 1 }, { 1, 3, 2 }, { 2, 1 }, { 2, 1 }, { 3, 2, 1 },
+        { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 1, 2 }, { 2, 1 },
+        { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 },
+        { 3, 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 },
+        { 2, 1 }, { 1, 2 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 },
+        { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 }, { 2, 1 },
+        { 2, 1 }, { 2, 1 }, { 2, 1 }, { 3, 2, 1 }, { 1, 2 }, { 2, 1 },
+        { 2, 1 }, { 2, 3, 1 }, { 1, 3, 2 }, { 2, 1 }, { 2, 1 },
+    };
+    /** The messages of required elements. */
+    private static final String[] MESSAGES = {
+        "Bugs Definition not found",
+        "Early terminaton of the program, end of program not recognized",
+        " Missing open braces '{'", "Syntax error, end of line not found",
+        "Missing closed braces '}'", "syntax error :  no bug name found",
+        "command not found", " Missing close braces '{'",
+        "syntax error :  no variable name found",
+        "Syntax error : no name after ','",
+        "syntax error :  no initializaton found", "Incomplete move action",
+        "syntax error , expected ','", "Incomplete move to action",
+        "Syntax error, end of line not found ", "Expression not found",
+        "Incomplete assignment statement, expected an expression",
+        "expression not found after assignment", "Incomplete loop",
+        "Syntax error", "Expression not found after exitif ",
+        "no end of line found", "Missing close braces '}'",
+        "Incomplete case action, expression expected",
+        "Incomplete return statement", "syntax error, expected variable",
+        "missing color name", "Syntak error", "Incomplete block. Missing '}'",
+        "No variable after ','", "Illegal expression after comparator",
+        "Error in expression after '+' or '-'", "No term after '*' or '/'",
+        "No factor following unary plus or minus",
+        "Incorrect use of dot notation", "Error in parenthesized expression",
+        "Unclosed parenthetical expression", "No expression after ','",
+        "Parameter list doesn't end with ')'",
+    };
+    /** The name of each rule. */
+    private static final String[] RULE_NAMES = {
+        "program", "allbugsCode", "bugDefinition", "varDeclaration",
+        "initializationBlock", "command", "statement", "action", "moveAction",
+        "moveToAction", "turnAction", "turnToAction", "lineAction",
+        "assignmentStatement", "loopStatement", "exitIfStatement",
+        "switchStatement", "switchCase", "returnStatement", "doStatement",
+        "colorStatement", "block", "functionDefinition", "functionCall", "eol",
+        "expression", "arithmeticExpression", "term", "factor",
+        "unsignedFactor", "parameterList", "comparator", "addOperator",
+        "multiplyOperator", "variable",
+    };
+    /** Where to start to parse each rule as if it had been called. */
+    private static final int[] STUBS = {
+        982, 987, 992, 997, 1002, 1007, 1012, 1017, 1022, 1027, 1032, 1037,
+        1042, 1047, 1052, 1057, 1062, 1067, 1072, 1077, 1082, 1087, 1092, 1097,
+        1102, 1107, 1112, 1117, 1122, 1127, 1132, 1137, 1142, 1147, 1152,
+    };
+    /** How each rule is recovered from. */
+    private static final byte[] RECOVERY = {
+        0, 0, 2, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+    };
+    /** The error where a recovered rule could be but is not, by rule. */
+    private static final String[] RECOVERY_MESSAGES = {
+        null, null, "Bugs Definition not found", null, null,
+        "command not found", null, null, null, null, null, null, null, null,
+        null, null, null, null, null, null, null, null, null, null, null, null,
+        null, null, null, null, null, null, null, null, null,
+    };
+    /** The terminals that may follow where a recovered rule could be, by rule. */
+    private static final int[][] RECOVERY_ENDS = {
+        null, null, { 39 }, null, null, { 1, 11, 15, 39, 165 }, null, null,
+        null, null, null, null, null, null, null, null, null, null, null, null,
+        null, null, null, null, null, null, null, null, null, null, null, null,
+        null, null, null,
+    };
+}
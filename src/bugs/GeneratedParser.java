@@ -0,0 +1,950 @@
+// Generated from Bugs.grammar by ParserGenerator; do not edit.
+// To change it, change the grammar and run
+//     java bugs.ParserGenerator src/bugs/Bugs.grammar src/bugs
+package bugs;
+
+import tree.Tree;
+
+/**
+ * A parser for the Bugs language, generated from <code>Bugs.grammar</code>.
+ * It builds the same Trees on its stack as <code>Parser</code>, but does
+ * not recover from errors, tell a listener, or read from a Reader.
+ * <p>
+ * It is not used by the program, which runs the same grammar on the
+ * <code>Engine</code>; <code>ParserGeneratorTest</code> checks that it is
+ * up to date and agrees with <code>Parser</code>.
+ */
+final class GeneratedParser {
+    /** The tokens being parsed. */
+    private final TokenBuffer tokens;
+
+    /**
+     * The stack used for holding Trees as they are created.
+     */
+    final TreeStack stack = new TreeStack();
+
+    private static final int[] CHILDREN_1 = { 1 };
+    private static final int[] CHILDREN_2 = { 2 };
+    private static final int[] CHILDREN_2_1 = { 2, 1 };
+    private static final int[] CHILDREN_3_1 = { 3, 1 };
+    private static final int[] CHILDREN_3_2 = { 3, 2 };
+
+    /**
+     * Constructs a GeneratedParser for the given string.
+     * @param text The string to be parsed.
+     */
+    GeneratedParser(String text) {
+        this(new TokenBuffer(text));
+    }
+
+    /**
+     * Constructs a GeneratedParser for the given tokens.
+     * @param tokens The tokens to be parsed.
+     */
+    GeneratedParser(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Tries to build a &lt;program&gt; on the stack.
+     * @return <code>true</code> if a program is parsed.
+     */
+    boolean isProgram() {
+        switch (terminal()) {
+        case 0: // Allbugs
+            if (!isAllbugsCode()) return false;
+            if (!isBugDefinition()) throw error("Bugs Definition not found");
+            break;
+        default:
+            push("Allbugs");
+            if (!isBugDefinition()) return false;
+            break;
+        }
+        push("list");
+        stack.reduce(1, CHILDREN_2);
+        loop1:
+        while (terminal() == 1) { // Bug
+            if (!isBugDefinition()) break loop1;
+            stack.reduce(2, CHILDREN_1);
+        }
+        if (terminal() != 39) throw error("Early terminaton of the program, end of program not recognized"); // EOF
+        tokens.skip();
+        push("program");
+        stack.reduce(1, CHILDREN_3_2);
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;allbugs code&gt; on the stack.
+     * @return <code>true</code> if an allbugs code is parsed.
+     */
+    boolean isAllbugsCode() {
+        if (terminal() != 0) return false; // Allbugs
+        push();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        push("list");
+        loop2:
+        while (terminal() == 17) { // var
+            if (!isVarDeclaration()) break loop2;
+            stack.reduce(2, CHILDREN_1);
+        }
+        push("list");
+        loop3:
+        while (terminal() == 15) { // define
+            if (!isFunctionDefinition()) break loop3;
+            stack.reduce(2, CHILDREN_1);
+        }
+        if (terminal() != 165) throw error("Missing closed braces '}'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        stack.reduce(3, CHILDREN_2_1);
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;bug definition&gt; on the stack.
+     * @return <code>true</code> if a bug definition is parsed.
+     */
+    boolean isBugDefinition() {
+        if (terminal() != 1) return false; // Bug
+        push();
+        if (terminal() != 36) throw error("syntax error :  no bug name found"); // NAME
+        push();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        stack.reduce(2, CHILDREN_1);
+        push("list");
+        loop4:
+        while (terminal() == 17) { // var
+            if (!isVarDeclaration()) break loop4;
+            stack.reduce(2, CHILDREN_1);
+        }
+        stack.reduce(2, CHILDREN_1);
+        switch (terminal()) {
+        case 18: // initially
+            if (!isInitializationBlock()) return false;
+            stack.reduce(2, CHILDREN_1);
+            break;
+        default:
+            push("initially");
+            stack.reduce(2, CHILDREN_1);
+            break;
+        }
+        if (!isCommand()) throw error("command not found");
+        push("block");
+        stack.reduce(1, CHILDREN_2);
+        loop5:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop5;
+                stack.reduce(2, CHILDREN_1);
+                break;
+            default:
+                break loop5;
+            }
+        }
+        stack.reduce(2, CHILDREN_1);
+        push("list");
+        loop6:
+        while (terminal() == 15) { // define
+            if (!isFunctionDefinition()) break loop6;
+            stack.reduce(2, CHILDREN_1);
+        }
+        if (terminal() != 165) throw error(" Missing close braces '{'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        stack.reduce(2, CHILDREN_1);
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;var declaration&gt; on the stack.
+     * @return <code>true</code> if a var declaration is parsed.
+     */
+    boolean isVarDeclaration() {
+        if (terminal() != 17) return false; // var
+        push();
+        if (terminal() != 36) throw error("syntax error :  no variable name found"); // NAME
+        push();
+        stack.reduce(2, CHILDREN_1);
+        loop7:
+        while (terminal() == 84) { // ','
+            tokens.skip();
+            if (terminal() != 36) throw error("Syntax error : no name after ','"); // NAME
+            push();
+            stack.reduce(2, CHILDREN_1);
+        }
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;initialization block&gt; on the stack.
+     * @return <code>true</code> if an initialization block is parsed.
+     */
+    boolean isInitializationBlock() {
+        if (terminal() != 18) return false; // initially
+        push();
+        if (!isBlock()) throw error("syntax error :  no initializaton found");
+        stack.reduce(2, CHILDREN_1);
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;command&gt; on the stack.
+     * @return <code>true</code> if a command is parsed.
+     */
+    boolean isCommand() {
+        switch (terminal()) {
+        case 2: case 3: case 4: case 5: case 6:
+            if (!isAction()) return false;
+            return true;
+        case 7: case 8: case 10: case 12: case 13: case 14: case 36:
+            if (!isStatement()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build a &lt;statement&gt; on the stack.
+     * @return <code>true</code> if a statement is parsed.
+     */
+    boolean isStatement() {
+        switch (terminal()) {
+        case 36: // NAME
+            if (!isAssignmentStatement()) return false;
+            return true;
+        case 7: // loop
+            if (!isLoopStatement()) return false;
+            return true;
+        case 8: // exit
+            if (!isExitIfStatement()) return false;
+            return true;
+        case 10: // switch
+            if (!isSwitchStatement()) return false;
+            return true;
+        case 12: // return
+            if (!isReturnStatement()) return false;
+            return true;
+        case 13: // do
+            if (!isDoStatement()) return false;
+            return true;
+        case 14: // color
+            if (!isColorStatement()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build an &lt;action&gt; on the stack.
+     * @return <code>true</code> if an action is parsed.
+     */
+    boolean isAction() {
+        switch (terminal()) {
+        case 2: // move
+            if (!isMoveAction()) return false;
+            return true;
+        case 3: // moveto
+            if (!isMoveToAction()) return false;
+            return true;
+        case 4: // turn
+            if (!isTurnAction()) return false;
+            return true;
+        case 5: // turnto
+            if (!isTurnToAction()) return false;
+            return true;
+        case 6: // line
+            if (!isLineAction()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build a &lt;move action&gt; on the stack.
+     * @return <code>true</code> if a move action is parsed.
+     */
+    boolean isMoveAction() {
+        if (terminal() != 2) return false; // move
+        push();
+        if (!isExpression()) throw error("Incomplete move action");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;move to action&gt; on the stack.
+     * @return <code>true</code> if a move to action is parsed.
+     */
+    boolean isMoveToAction() {
+        if (terminal() != 3) return false; // moveto
+        push();
+        if (!isExpression()) throw error("Incomplete move action");
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move to action");
+        stack.reduce(3, CHILDREN_2_1);
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;turn action&gt; on the stack.
+     * @return <code>true</code> if a turn action is parsed.
+     */
+    boolean isTurnAction() {
+        if (terminal() != 4) return false; // turn
+        push();
+        if (!isExpression()) throw error("Incomplete move action");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;turn to action&gt; on the stack.
+     * @return <code>true</code> if a turn to action is parsed.
+     */
+    boolean isTurnToAction() {
+        if (terminal() != 5) return false; // turnto
+        push();
+        if (!isExpression()) throw error("Incomplete move action");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;line action&gt; on the stack.
+     * @return <code>true</code> if a line action is parsed.
+     */
+    boolean isLineAction() {
+        if (terminal() != 6) return false; // line
+        push();
+        if (!isExpression()) throw error("Expression not found");
+        stack.reduce(2, CHILDREN_1);
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        stack.reduce(2, CHILDREN_1);
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        stack.reduce(2, CHILDREN_1);
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;assignment statement&gt; on the stack.
+     * @return <code>true</code> if an assignment statement is parsed.
+     */
+    boolean isAssignmentStatement() {
+        if (terminal() != 36) return false; // NAME
+        push();
+        push("assign");
+        stack.reduce(1, CHILDREN_2);
+        if (terminal() != 101) throw error("Incomplete assignment statement, expected an expression"); // '='
+        tokens.skip();
+        if (!isExpression()) throw error("expression not found after assignment");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;loop statement&gt; on the stack.
+     * @return <code>true</code> if a loop statement is parsed.
+     */
+    boolean isLoopStatement() {
+        if (terminal() != 7) return false; // loop
+        push();
+        if (!isBlock()) throw error("Incomplete loop");
+        stack.reduce(2, CHILDREN_1);
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;exit if statement&gt; on the stack.
+     * @return <code>true</code> if an exit if statement is parsed.
+     */
+    boolean isExitIfStatement() {
+        if (terminal() != 8) return false; // exit
+        push();
+        if (terminal() != 9) throw error("Syntax error"); // if
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found after exitif ");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;switch statement&gt; on the stack.
+     * @return <code>true</code> if a switch statement is parsed.
+     */
+    boolean isSwitchStatement() {
+        if (terminal() != 10) return false; // switch
+        push();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("no end of line found");
+        stack.pop();
+        switch (terminal()) {
+        case 11: // case
+            if (!isSwitchCase()) throw error("Missing close braces '}'");
+            loop8:
+            while (terminal() == 11) { // case
+                if (!isSwitchCase()) break loop8;
+            }
+            stack.reduce(2, CHILDREN_1);
+            if (terminal() != 165) throw error("Missing close braces '}'"); // '}'
+            tokens.skip();
+            if (!isEol()) throw error("Syntax error, end of line not found ");
+            stack.pop();
+            break;
+        case 165: // '}'
+            tokens.skip();
+            if (!isEol()) throw error("Syntax error, end of line not found ");
+            stack.pop();
+            break;
+        default:
+            throw error("Missing close braces '}'");
+        }
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;switch case&gt; on the stack.
+     * @return <code>true</code> if a switch case is parsed.
+     */
+    boolean isSwitchCase() {
+        if (terminal() != 11) return false; // case
+        push();
+        if (!isExpression()) throw error("Incomplete case action, expression expected");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        stack.pop();
+        push("block");
+        loop9:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop9;
+                stack.reduce(2, CHILDREN_1);
+                break;
+            default:
+                break loop9;
+            }
+        }
+        stack.reduce(2, CHILDREN_1);
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;return statement&gt; on the stack.
+     * @return <code>true</code> if a return statement is parsed.
+     */
+    boolean isReturnStatement() {
+        if (terminal() != 12) return false; // return
+        push();
+        if (!isExpression()) throw error("Incomplete return statement");
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;do statement&gt; on the stack.
+     * @return <code>true</code> if a do statement is parsed.
+     */
+    boolean isDoStatement() {
+        if (terminal() != 13) return false; // do
+        tokens.skip();
+        push("call");
+        if (terminal() != 36) throw error("syntax error, expected variable"); // NAME
+        push();
+        stack.reduce(2, CHILDREN_1);
+        option10:
+        if (terminal() == 80) { // '('
+            if (!isParameterList()) break option10;
+            stack.reduce(2, CHILDREN_1);
+        }
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;color statement&gt; on the stack.
+     * @return <code>true</code> if a color statement is parsed.
+     */
+    boolean isColorStatement() {
+        if (terminal() != 14) return false; // color
+        push();
+        if (terminal() >= 36) throw error("missing color name"); // KEYWORD
+        push();
+        stack.reduce(2, CHILDREN_1);
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;block&gt; on the stack.
+     * @return <code>true</code> if a block is parsed.
+     */
+    boolean isBlock() {
+        if (terminal() != 163) return false; // '{'
+        tokens.skip();
+        push("block");
+        if (!isEol()) throw error("Syntak error");
+        stack.pop();
+        loop11:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop11;
+                stack.reduce(2, CHILDREN_1);
+                break;
+            default:
+                break loop11;
+            }
+        }
+        if (terminal() != 165) throw error("Incomplete block. Missing '}'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        stack.pop();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;function definition&gt; on the stack.
+     * @return <code>true</code> if a function definition is parsed.
+     */
+    boolean isFunctionDefinition() {
+        if (terminal() != 15) return false; // define
+        tokens.skip();
+        push("function");
+        if (terminal() != 36) return false; // NAME
+        push();
+        stack.reduce(2, CHILDREN_1);
+        push("var");
+        option12:
+        if (terminal() == 16) { // using
+            tokens.skip();
+            if (terminal() != 36) return false; // NAME
+            push();
+            stack.reduce(2, CHILDREN_1);
+            loop13:
+            while (terminal() == 84) { // ','
+                tokens.skip();
+                if (terminal() != 36) throw error("No variable after ','"); // NAME
+                push();
+                stack.reduce(2, CHILDREN_1);
+            }
+        }
+        if (!isBlock()) return false;
+        stack.reduce(3, CHILDREN_2_1);
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;function call&gt; on the stack.
+     * @return <code>true</code> if a function call is parsed.
+     */
+    boolean isFunctionCall() {
+        if (terminal() != 36) return false; // NAME
+        push();
+        push("call");
+        stack.reduce(1, CHILDREN_2);
+        if (!isParameterList()) return false;
+        stack.reduce(2, CHILDREN_1);
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;eol&gt; on the stack.
+     * @return <code>true</code> if an eol is parsed.
+     */
+    boolean isEol() {
+        if (terminal() != 38) return false; // EOL
+        push();
+        loop14:
+        while (terminal() == 38) { // EOL
+            tokens.skip();
+        }
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;expression&gt; on the stack.
+     * @return <code>true</code> if an expression is parsed.
+     */
+    boolean isExpression() {
+        if (!isFactor()) return false;
+        if (!climbExpression(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to build an &lt;arithmetic expression&gt; on the stack.
+     * @return <code>true</code> if an arithmetic expression is parsed.
+     */
+    boolean isArithmeticExpression() {
+        if (!isFactor()) return false;
+        if (!climbArithmeticExpression(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;term&gt; on the stack.
+     * @return <code>true</code> if a term is parsed.
+     */
+    boolean isTerm() {
+        if (!isFactor()) return false;
+        if (!climbTerm(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;factor&gt; on the stack.
+     * @return <code>true</code> if a factor is parsed.
+     */
+    boolean isFactor() {
+        switch (terminal()) {
+        case 83: case 85:
+            switch (terminal()) {
+            case 83: // '+'
+                push();
+                break;
+            case 85: // '-'
+                push();
+                break;
+            default:
+                return false;
+            }
+            if (!isUnsignedFactor()) throw error("No factor following unary plus or minus");
+            stack.reduce(2, CHILDREN_1);
+            return true;
+        case 36: case 37: case 80:
+            if (!isUnsignedFactor()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build an &lt;unsigned factor&gt; on the stack.
+     * @return <code>true</code> if an unsigned factor is parsed.
+     */
+    boolean isUnsignedFactor() {
+        switch (terminal()) {
+        case 36: // NAME
+            push();
+            option15:
+            switch (terminal()) {
+            case 86: // '.'
+                push();
+                if (terminal() != 36) throw error("Incorrect use of dot notation"); // NAME
+                push();
+                stack.reduce(2, CHILDREN_3_1);
+                break;
+            case 80: // '('
+                if (!isParameterList()) break option15;
+                push("call");
+                stack.reduce(1, CHILDREN_3_2);
+                break;
+            default:
+                break option15;
+            }
+            return true;
+        case 37: // NUMBER
+            push();
+            return true;
+        case 80: // '('
+            tokens.skip();
+            if (!isExpression()) throw error("Error in parenthesized expression");
+            if (terminal() != 81) throw error("Unclosed parenthetical expression"); // ')'
+            tokens.skip();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build a &lt;parameter list&gt; on the stack.
+     * @return <code>true</code> if a parameter list is parsed.
+     */
+    boolean isParameterList() {
+        if (terminal() != 80) return false; // '('
+        tokens.skip();
+        push("var");
+        option16:
+        switch (terminal()) {
+        case 36: case 37: case 80: case 83: case 85:
+            if (!isExpression()) break option16;
+            stack.reduce(2, CHILDREN_1);
+            loop17:
+            while (terminal() == 84) { // ','
+                tokens.skip();
+                if (!isExpression()) throw error("No expression after ','");
+                stack.reduce(2, CHILDREN_1);
+            }
+            break;
+        default:
+            break option16;
+        }
+        if (terminal() != 81) throw error("Parameter list doesn't end with ')'"); // ')'
+        tokens.skip();
+        return true;
+    }
+
+    /**
+     * Tries to build a &lt;comparator&gt; on the stack.
+     * @return <code>true</code> if a comparator is parsed.
+     */
+    boolean isComparator() {
+        switch (terminal()) {
+        case 73: case 100: case 102:
+            switch (terminal()) {
+            case 100: // '<'
+                push();
+                break;
+            case 102: // '>'
+                push();
+                break;
+            case 73: // '!'
+                push();
+                break;
+            default:
+                return false;
+            }
+            option18:
+            if (terminal() == 101) { // '='
+                push();
+                join();
+            }
+            return true;
+        case 101: // '='
+            push();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build an &lt;add operator&gt; on the stack.
+     * @return <code>true</code> if an add operator is parsed.
+     */
+    boolean isAddOperator() {
+        switch (terminal()) {
+        case 83: // '+'
+            push();
+            return true;
+        case 85: // '-'
+            push();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build a &lt;multiply operator&gt; on the stack.
+     * @return <code>true</code> if a multiply operator is parsed.
+     */
+    boolean isMultiplyOperator() {
+        switch (terminal()) {
+        case 82: // '*'
+            push();
+            return true;
+        case 87: // '/'
+            push();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to build a &lt;variable&gt; on the stack.
+     * @return <code>true</code> if a variable is parsed.
+     */
+    boolean isVariable() {
+        if (terminal() != 36) return false; // NAME
+        push();
+        return true;
+    }
+
+    /**
+     * Parses any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbExpression(int min) {
+        while (true) {
+            int level;
+            switch (terminal()) {
+            case 73: case 100: case 101: case 102:
+                if (min > 1) return true;
+                if (!isComparator()) return false;
+                if (!isFactor()) throw error("Illegal expression after comparator");
+                level = 1;
+                break;
+            case 83: case 85:
+                if (min > 2) return true;
+                if (!isAddOperator()) return false;
+                if (!isFactor()) throw error("Error in expression after '+' or '-'");
+                level = 2;
+                break;
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                level = 3;
+                break;
+            default:
+                return true;
+            }
+            if (level < 3 && !climbExpression(level + 1)) return false;
+            stack.reduce(2, CHILDREN_3_1);
+        }
+    }
+
+    /**
+     * Parses any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbArithmeticExpression(int min) {
+        while (true) {
+            int level;
+            switch (terminal()) {
+            case 83: case 85:
+                if (min > 1) return true;
+                if (!isAddOperator()) return false;
+                if (!isFactor()) throw error("Error in expression after '+' or '-'");
+                level = 1;
+                break;
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                level = 2;
+                break;
+            default:
+                return true;
+            }
+            if (level < 2 && !climbArithmeticExpression(level + 1)) return false;
+            stack.reduce(2, CHILDREN_3_1);
+        }
+    }
+
+    /**
+     * Parses any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbTerm(int min) {
+        while (true) {
+            switch (terminal()) {
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                break;
+            default:
+                return true;
+            }
+            stack.reduce(2, CHILDREN_3_1);
+        }
+    }
+
+    //------------------------- Private "helper" methods
+
+    /**
+     * Returns the terminal number of the next token.
+     * @return The terminal number, as <code>Grammar</code> defines it.
+     */
+    private int terminal() {
+        return Grammar.terminal(tokens);
+    }
+
+    /**
+     * Moves the next token to the stack.
+     */
+    private void push() {
+        stack.push(new Tree<>(tokens.next()));
+    }
+
+    /**
+     * Pushes a node for a token with the given value.
+     * @param value The value of the token.
+     */
+    private void push(String value) {
+        stack.push(new Tree<>(Token.valueOf(value)));
+    }
+
+    /**
+     * Joins the top two nodes of the stack into one.
+     */
+    private void join() {
+        Token second = stack.pop().getValue();
+        Token first = stack.pop().getValue();
+        push(first.value() + second.value());
+    }
+
+    /**
+     * Returns the next Token.
+     * @return The next Token.
+     */
+    Token nextToken() {
+        return tokens.next();
+    }
+
+    /**
+     * Makes a <code>SyntaxException</code> with the given message, at the
+     * next token.
+     * @param message What is wrong.
+     * @return The exception.
+     */
+    private SyntaxException error(String message) {
+        int position = tokens.position();
+        return new SyntaxException(message, tokens.lineNumber(),
+                                   tokens.column(position), tokens.start(position));
+    }
+}
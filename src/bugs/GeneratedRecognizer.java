@@ -0,0 +1,819 @@
+// Generated from Bugs.grammar by ParserGenerator; do not edit.
+// To change it, change the grammar and run
+//     java bugs.ParserGenerator src/bugs/Bugs.grammar src/bugs
+package bugs;
+
+/**
+ * A recognizer for the Bugs language, generated from
+ * <code>Bugs.grammar</code>. It accepts what <code>Parser</code> does, but
+ * builds nothing.
+ * <p>
+ * It is not used by the program, which runs the same grammar on the
+ * <code>Engine</code>; <code>ParserGeneratorTest</code> checks that it is
+ * up to date and agrees with <code>Parser</code>.
+ */
+final class GeneratedRecognizer {
+    /** The tokens being recognized. */
+    private final TokenBuffer tokens;
+
+    /**
+     * Constructs a GeneratedRecognizer for the given string.
+     * @param text The string to be recognized.
+     */
+    GeneratedRecognizer(String text) {
+        this(new TokenBuffer(text));
+    }
+
+    /**
+     * Constructs a GeneratedRecognizer for the given tokens.
+     * @param tokens The tokens to be recognized.
+     */
+    GeneratedRecognizer(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Tries to recognize a &lt;program&gt;.
+     * @return <code>true</code> if a program is recognized.
+     */
+    boolean isProgram() {
+        switch (terminal()) {
+        case 0: // Allbugs
+            if (!isAllbugsCode()) return false;
+            if (!isBugDefinition()) throw error("Bugs Definition not found");
+            break;
+        default:
+            if (!isBugDefinition()) return false;
+            break;
+        }
+        loop1:
+        while (terminal() == 1) { // Bug
+            if (!isBugDefinition()) break loop1;
+        }
+        if (terminal() != 39) throw error("Early terminaton of the program, end of program not recognized"); // EOF
+        tokens.skip();
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;allbugs code&gt;.
+     * @return <code>true</code> if an allbugs code is recognized.
+     */
+    boolean isAllbugsCode() {
+        if (terminal() != 0) return false; // Allbugs
+        tokens.skip();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        loop2:
+        while (terminal() == 17) { // var
+            if (!isVarDeclaration()) break loop2;
+        }
+        loop3:
+        while (terminal() == 15) { // define
+            if (!isFunctionDefinition()) break loop3;
+        }
+        if (terminal() != 165) throw error("Missing closed braces '}'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;bug definition&gt;.
+     * @return <code>true</code> if a bug definition is recognized.
+     */
+    boolean isBugDefinition() {
+        if (terminal() != 1) return false; // Bug
+        tokens.skip();
+        if (terminal() != 36) throw error("syntax error :  no bug name found"); // NAME
+        tokens.skip();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        loop4:
+        while (terminal() == 17) { // var
+            if (!isVarDeclaration()) break loop4;
+        }
+        switch (terminal()) {
+        case 18: // initially
+            if (!isInitializationBlock()) return false;
+            break;
+        default:
+            break;
+        }
+        if (!isCommand()) throw error("command not found");
+        loop5:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop5;
+                break;
+            default:
+                break loop5;
+            }
+        }
+        loop6:
+        while (terminal() == 15) { // define
+            if (!isFunctionDefinition()) break loop6;
+        }
+        if (terminal() != 165) throw error(" Missing close braces '{'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;var declaration&gt;.
+     * @return <code>true</code> if a var declaration is recognized.
+     */
+    boolean isVarDeclaration() {
+        if (terminal() != 17) return false; // var
+        tokens.skip();
+        if (terminal() != 36) throw error("syntax error :  no variable name found"); // NAME
+        tokens.skip();
+        loop7:
+        while (terminal() == 84) { // ','
+            tokens.skip();
+            if (terminal() != 36) throw error("Syntax error : no name after ','"); // NAME
+            tokens.skip();
+        }
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;initialization block&gt;.
+     * @return <code>true</code> if an initialization block is recognized.
+     */
+    boolean isInitializationBlock() {
+        if (terminal() != 18) return false; // initially
+        tokens.skip();
+        if (!isBlock()) throw error("syntax error :  no initializaton found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;command&gt;.
+     * @return <code>true</code> if a command is recognized.
+     */
+    boolean isCommand() {
+        switch (terminal()) {
+        case 2: case 3: case 4: case 5: case 6:
+            if (!isAction()) return false;
+            return true;
+        case 7: case 8: case 10: case 12: case 13: case 14: case 36:
+            if (!isStatement()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize a &lt;statement&gt;.
+     * @return <code>true</code> if a statement is recognized.
+     */
+    boolean isStatement() {
+        switch (terminal()) {
+        case 36: // NAME
+            if (!isAssignmentStatement()) return false;
+            return true;
+        case 7: // loop
+            if (!isLoopStatement()) return false;
+            return true;
+        case 8: // exit
+            if (!isExitIfStatement()) return false;
+            return true;
+        case 10: // switch
+            if (!isSwitchStatement()) return false;
+            return true;
+        case 12: // return
+            if (!isReturnStatement()) return false;
+            return true;
+        case 13: // do
+            if (!isDoStatement()) return false;
+            return true;
+        case 14: // color
+            if (!isColorStatement()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize an &lt;action&gt;.
+     * @return <code>true</code> if an action is recognized.
+     */
+    boolean isAction() {
+        switch (terminal()) {
+        case 2: // move
+            if (!isMoveAction()) return false;
+            return true;
+        case 3: // moveto
+            if (!isMoveToAction()) return false;
+            return true;
+        case 4: // turn
+            if (!isTurnAction()) return false;
+            return true;
+        case 5: // turnto
+            if (!isTurnToAction()) return false;
+            return true;
+        case 6: // line
+            if (!isLineAction()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize a &lt;move action&gt;.
+     * @return <code>true</code> if a move action is recognized.
+     */
+    boolean isMoveAction() {
+        if (terminal() != 2) return false; // move
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move action");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;move to action&gt;.
+     * @return <code>true</code> if a move to action is recognized.
+     */
+    boolean isMoveToAction() {
+        if (terminal() != 3) return false; // moveto
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move action");
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move to action");
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;turn action&gt;.
+     * @return <code>true</code> if a turn action is recognized.
+     */
+    boolean isTurnAction() {
+        if (terminal() != 4) return false; // turn
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move action");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;turn to action&gt;.
+     * @return <code>true</code> if a turn to action is recognized.
+     */
+    boolean isTurnToAction() {
+        if (terminal() != 5) return false; // turnto
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete move action");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;line action&gt;.
+     * @return <code>true</code> if a line action is recognized.
+     */
+    boolean isLineAction() {
+        if (terminal() != 6) return false; // line
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        if (terminal() != 84) throw error("syntax error , expected ','"); // ','
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found");
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;assignment statement&gt;.
+     * @return <code>true</code> if an assignment statement is recognized.
+     */
+    boolean isAssignmentStatement() {
+        if (terminal() != 36) return false; // NAME
+        tokens.skip();
+        if (terminal() != 101) throw error("Incomplete assignment statement, expected an expression"); // '='
+        tokens.skip();
+        if (!isExpression()) throw error("expression not found after assignment");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;loop statement&gt;.
+     * @return <code>true</code> if a loop statement is recognized.
+     */
+    boolean isLoopStatement() {
+        if (terminal() != 7) return false; // loop
+        tokens.skip();
+        if (!isBlock()) throw error("Incomplete loop");
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;exit if statement&gt;.
+     * @return <code>true</code> if an exit if statement is recognized.
+     */
+    boolean isExitIfStatement() {
+        if (terminal() != 8) return false; // exit
+        tokens.skip();
+        if (terminal() != 9) throw error("Syntax error"); // if
+        tokens.skip();
+        if (!isExpression()) throw error("Expression not found after exitif ");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;switch statement&gt;.
+     * @return <code>true</code> if a switch statement is recognized.
+     */
+    boolean isSwitchStatement() {
+        if (terminal() != 10) return false; // switch
+        tokens.skip();
+        if (terminal() != 163) throw error(" Missing open braces '{'"); // '{'
+        tokens.skip();
+        if (!isEol()) throw error("no end of line found");
+        switch (terminal()) {
+        case 11: // case
+            if (!isSwitchCase()) throw error("Missing close braces '}'");
+            loop8:
+            while (terminal() == 11) { // case
+                if (!isSwitchCase()) break loop8;
+            }
+            if (terminal() != 165) throw error("Missing close braces '}'"); // '}'
+            tokens.skip();
+            if (!isEol()) throw error("Syntax error, end of line not found ");
+            break;
+        case 165: // '}'
+            tokens.skip();
+            if (!isEol()) throw error("Syntax error, end of line not found ");
+            break;
+        default:
+            throw error("Missing close braces '}'");
+        }
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;switch case&gt;.
+     * @return <code>true</code> if a switch case is recognized.
+     */
+    boolean isSwitchCase() {
+        if (terminal() != 11) return false; // case
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete case action, expression expected");
+        if (!isEol()) throw error("Syntax error, end of line not found ");
+        loop9:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop9;
+                break;
+            default:
+                break loop9;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;return statement&gt;.
+     * @return <code>true</code> if a return statement is recognized.
+     */
+    boolean isReturnStatement() {
+        if (terminal() != 12) return false; // return
+        tokens.skip();
+        if (!isExpression()) throw error("Incomplete return statement");
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;do statement&gt;.
+     * @return <code>true</code> if a do statement is recognized.
+     */
+    boolean isDoStatement() {
+        if (terminal() != 13) return false; // do
+        tokens.skip();
+        if (terminal() != 36) throw error("syntax error, expected variable"); // NAME
+        tokens.skip();
+        option10:
+        if (terminal() == 80) { // '('
+            if (!isParameterList()) break option10;
+        }
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;color statement&gt;.
+     * @return <code>true</code> if a color statement is recognized.
+     */
+    boolean isColorStatement() {
+        if (terminal() != 14) return false; // color
+        tokens.skip();
+        if (terminal() >= 36) throw error("missing color name"); // KEYWORD
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;block&gt;.
+     * @return <code>true</code> if a block is recognized.
+     */
+    boolean isBlock() {
+        if (terminal() != 163) return false; // '{'
+        tokens.skip();
+        if (!isEol()) throw error("Syntak error");
+        loop11:
+        while (true) {
+            switch (terminal()) {
+            case 2: case 3: case 4: case 5: case 6: case 7: case 8: case 10:
+            case 12: case 13: case 14: case 36:
+                if (!isCommand()) break loop11;
+                break;
+            default:
+                break loop11;
+            }
+        }
+        if (terminal() != 165) throw error("Incomplete block. Missing '}'"); // '}'
+        tokens.skip();
+        if (!isEol()) throw error("Syntax error, end of line not found");
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;function definition&gt;.
+     * @return <code>true</code> if a function definition is recognized.
+     */
+    boolean isFunctionDefinition() {
+        if (terminal() != 15) return false; // define
+        tokens.skip();
+        if (terminal() != 36) return false; // NAME
+        tokens.skip();
+        option12:
+        if (terminal() == 16) { // using
+            tokens.skip();
+            if (terminal() != 36) return false; // NAME
+            tokens.skip();
+            loop13:
+            while (terminal() == 84) { // ','
+                tokens.skip();
+                if (terminal() != 36) throw error("No variable after ','"); // NAME
+                tokens.skip();
+            }
+        }
+        if (!isBlock()) return false;
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;function call&gt;.
+     * @return <code>true</code> if a function call is recognized.
+     */
+    boolean isFunctionCall() {
+        if (terminal() != 36) return false; // NAME
+        tokens.skip();
+        if (!isParameterList()) return false;
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;eol&gt;.
+     * @return <code>true</code> if an eol is recognized.
+     */
+    boolean isEol() {
+        if (terminal() != 38) return false; // EOL
+        tokens.skip();
+        loop14:
+        while (terminal() == 38) { // EOL
+            tokens.skip();
+        }
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;expression&gt;.
+     * @return <code>true</code> if an expression is recognized.
+     */
+    boolean isExpression() {
+        if (!isFactor()) return false;
+        if (!climbExpression(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to recognize an &lt;arithmetic expression&gt;.
+     * @return <code>true</code> if an arithmetic expression is recognized.
+     */
+    boolean isArithmeticExpression() {
+        if (!isFactor()) return false;
+        if (!climbArithmeticExpression(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;term&gt;.
+     * @return <code>true</code> if a term is recognized.
+     */
+    boolean isTerm() {
+        if (!isFactor()) return false;
+        if (!climbTerm(1)) return false;
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;factor&gt;.
+     * @return <code>true</code> if a factor is recognized.
+     */
+    boolean isFactor() {
+        switch (terminal()) {
+        case 83: case 85:
+            switch (terminal()) {
+            case 83: // '+'
+                tokens.skip();
+                break;
+            case 85: // '-'
+                tokens.skip();
+                break;
+            default:
+                return false;
+            }
+            if (!isUnsignedFactor()) throw error("No factor following unary plus or minus");
+            return true;
+        case 36: case 37: case 80:
+            if (!isUnsignedFactor()) return false;
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize an &lt;unsigned factor&gt;.
+     * @return <code>true</code> if an unsigned factor is recognized.
+     */
+    boolean isUnsignedFactor() {
+        switch (terminal()) {
+        case 36: // NAME
+            tokens.skip();
+            option15:
+            switch (terminal()) {
+            case 86: // '.'
+                tokens.skip();
+                if (terminal() != 36) throw error("Incorrect use of dot notation"); // NAME
+                tokens.skip();
+                break;
+            case 80: // '('
+                if (!isParameterList()) break option15;
+                break;
+            default:
+                break option15;
+            }
+            return true;
+        case 37: // NUMBER
+            tokens.skip();
+            return true;
+        case 80: // '('
+            tokens.skip();
+            if (!isExpression()) throw error("Error in parenthesized expression");
+            if (terminal() != 81) throw error("Unclosed parenthetical expression"); // ')'
+            tokens.skip();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize a &lt;parameter list&gt;.
+     * @return <code>true</code> if a parameter list is recognized.
+     */
+    boolean isParameterList() {
+        if (terminal() != 80) return false; // '('
+        tokens.skip();
+        option16:
+        switch (terminal()) {
+        case 36: case 37: case 80: case 83: case 85:
+            if (!isExpression()) break option16;
+            loop17:
+            while (terminal() == 84) { // ','
+                tokens.skip();
+                if (!isExpression()) throw error("No expression after ','");
+            }
+            break;
+        default:
+            break option16;
+        }
+        if (terminal() != 81) throw error("Parameter list doesn't end with ')'"); // ')'
+        tokens.skip();
+        return true;
+    }
+
+    /**
+     * Tries to recognize a &lt;comparator&gt;.
+     * @return <code>true</code> if a comparator is recognized.
+     */
+    boolean isComparator() {
+        switch (terminal()) {
+        case 73: case 100: case 102:
+            switch (terminal()) {
+            case 100: // '<'
+                tokens.skip();
+                break;
+            case 102: // '>'
+                tokens.skip();
+                break;
+            case 73: // '!'
+                tokens.skip();
+                break;
+            default:
+                return false;
+            }
+            option18:
+            if (terminal() == 101) { // '='
+                tokens.skip();
+            }
+            return true;
+        case 101: // '='
+            tokens.skip();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize an &lt;add operator&gt;.
+     * @return <code>true</code> if an add operator is recognized.
+     */
+    boolean isAddOperator() {
+        switch (terminal()) {
+        case 83: // '+'
+            tokens.skip();
+            return true;
+        case 85: // '-'
+            tokens.skip();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize a &lt;multiply operator&gt;.
+     * @return <code>true</code> if a multiply operator is recognized.
+     */
+    boolean isMultiplyOperator() {
+        switch (terminal()) {
+        case 82: // '*'
+            tokens.skip();
+            return true;
+        case 87: // '/'
+            tokens.skip();
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tries to recognize a &lt;variable&gt;.
+     * @return <code>true</code> if a variable is recognized.
+     */
+    boolean isVariable() {
+        if (terminal() != 36) return false; // NAME
+        tokens.skip();
+        return true;
+    }
+
+    /**
+     * Recognizes any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbExpression(int min) {
+        while (true) {
+            int level;
+            switch (terminal()) {
+            case 73: case 100: case 101: case 102:
+                if (min > 1) return true;
+                if (!isComparator()) return false;
+                if (!isFactor()) throw error("Illegal expression after comparator");
+                level = 1;
+                break;
+            case 83: case 85:
+                if (min > 2) return true;
+                if (!isAddOperator()) return false;
+                if (!isFactor()) throw error("Error in expression after '+' or '-'");
+                level = 2;
+                break;
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                level = 3;
+                break;
+            default:
+                return true;
+            }
+            if (level < 3 && !climbExpression(level + 1)) return false;
+        }
+    }
+
+    /**
+     * Recognizes any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbArithmeticExpression(int min) {
+        while (true) {
+            int level;
+            switch (terminal()) {
+            case 83: case 85:
+                if (min > 1) return true;
+                if (!isAddOperator()) return false;
+                if (!isFactor()) throw error("Error in expression after '+' or '-'");
+                level = 1;
+                break;
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                level = 2;
+                break;
+            default:
+                return true;
+            }
+            if (level < 2 && !climbArithmeticExpression(level + 1)) return false;
+        }
+    }
+
+    /**
+     * Recognizes any binary operators that bind at least as tightly as
+     * the given level, each followed by a &lt;factor&gt;, by precedence climbing.
+     * @param min The loosest level to take, the loosest of all being 1.
+     * @return <code>false</code> if an operator is not all there.
+     */
+    private boolean climbTerm(int min) {
+        while (true) {
+            switch (terminal()) {
+            case 82: case 87:
+                if (!isMultiplyOperator()) return false;
+                if (!isFactor()) throw error("No term after '*' or '/'");
+                break;
+            default:
+                return true;
+            }
+        }
+    }
+
+    //------------------------- Private "helper" methods
+
+    /**
+     * Returns the terminal number of the next token.
+     * @return The terminal number, as <code>Grammar</code> defines it.
+     */
+    private int terminal() {
+        return Grammar.terminal(tokens);
+    }
+
+    /**
+     * Returns the next Token.
+     * @return The next Token.
+     */
+    Token nextToken() {
+        return tokens.next();
+    }
+
+    /**
+     * Makes a <code>SyntaxException</code> with the given message, at the
+     * next token.
+     * @param message What is wrong.
+     * @return The exception.
+     */
+    private SyntaxException error(String message) {
+        int position = tokens.position();
+        return new SyntaxException(message, tokens.lineNumber(),
+                                   tokens.column(position), tokens.start(position));
+    }
+}
@@ -0,0 +1,1217 @@
+package bugs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The grammar of the Bugs language, compiled into the tables that an
+ * <code>Engine</code> runs. The grammar is written once, in the file
+ * <code>Bugs.grammar</code> beside this class, together with the
+ * actions that build each rule's Tree; the notation is described there.
+ * The <code>ParserGenerator</code> compiles it into
+ * <code>GeneratedGrammar</code>, from which <code>BUGS</code> is made,
+ * so the file is not needed when the program runs.
+ * <p>
+ * Each rule is compiled into instructions in a single array of ints.
+ * A choice between alternatives, and whether to go round a loop again,
+ * is made by one lookup in a prediction table indexed by the terminal
+ * number of the next token, so the grammar must be LL(1). This is
+ * checked when it is compiled.
+ * <p>
+ * Terminals are numbered as follows: each keyword by its ordinal in
+ * <code>Token.Keyword</code>, then <code>NAME</code>,
+ * <code>NUMBER</code>, <code>EOL</code> and <code>EOF</code>, then each
+ * ASCII symbol character, and finally <code>OTHER</code> for any other
+ * symbol.
+ */
+final class Grammar {
+    /** The number of keywords, which are terminals 0 to KEYWORDS - 1. */
+    static final int KEYWORDS = Token.Keyword.values().length;
+    /** The terminal number of a name. */
+    static final int NAME = KEYWORDS;
+    /** The terminal number of a number. */
+    static final int NUMBER = KEYWORDS + 1;
+    /** The terminal number of a line end. */
+    static final int EOL = KEYWORDS + 2;
+    /** The terminal number of the end of the input. */
+    static final int EOF = KEYWORDS + 3;
+    /** The terminal number of the symbol c is SYMBOLS + c, for c below 128. */
+    static final int SYMBOLS = KEYWORDS + 4;
+    /** The terminal number of any symbol that is not ASCII. */
+    static final int OTHER = SYMBOLS + 128;
+    /** The number of terminals, and the size of each prediction table. */
+    static final int TERMINALS = OTHER + 1;
+    /** Matches any keyword; only used by <code>TERM</code>. */
+    static final int ANY_KEYWORD = TERMINALS;
+
+    // Instructions, with their operands
+    /** Match terminal, fail: push the next token if it is the terminal. */
+    static final int TERM = 0;
+    /** Match terminal, fail: as <code>TERM</code>, but push nothing. */
+    static final int SKIP = 1;
+    /** Call entry, fail, rule: parse a rule, and go on if it succeeds. */
+    static final int CALL = 2;
+    /** Predict table, fail, recover: go where the table says. */
+    static final int PREDICT = 3;
+    /** Jump target. */
+    static final int JUMP = 4;
+    /** Return: the rule has succeeded. */
+    static final int RETURN = 5;
+    /** Push value: push a node for one of <code>values</code>. */
+    static final int PUSH = 6;
+    /** Pop: pop the top of the stack. */
+    static final int POP = 7;
+    /** Tree index: reduce the stack as <code>trees[index]</code> says. */
+    static final int TREE = 8;
+    /** Join: join the top two nodes into one. */
+    static final int JOIN = 9;
+    /**
+     * Climb table, exit: go where the table says to parse a binary
+     * operator; if there is none, make the Trees still to be made and go
+     * to the exit.
+     */
+    static final int CLIMB = 10;
+    /**
+     * Operator level: make the Trees of the operators that bind at least
+     * as tightly as the next one, whose level is given.
+     */
+    static final int OPERATOR = 11;
+
+    /**
+     * The failure operand that makes the rule being parsed fail. A
+     * failure operand of zero or more is where to go instead, and one
+     * below <code>FAIL</code> is the error <code>-2 - index</code> in
+     * <code>messages</code>.
+     */
+    static final int FAIL = -1;
+
+    // How a rule named by %recover is recovered from
+    /** The rule is not recovered from. */
+    static final byte NO_RECOVERY = 0;
+    /** Skip the rest of the line, and any braces opened on it. */
+    static final byte TO_LINE = 1;
+    /** Skip to the next line that starts with <code>Bug</code>. */
+    static final byte TO_DEFINITION = 2;
+
+    /** The grammar of the Bugs language. */
+    static final Grammar BUGS = GeneratedGrammar.grammar();
+
+    /** The instructions of all the rules. */
+    final int[] code;
+    /** The prediction tables, giving where to go for each terminal, or -1. */
+    final int[][] tables;
+    /** The values of the nodes that are pushed. */
+    final String[] values;
+    /** The root index of each tree that is made. */
+    final int[] treeRoots;
+    /** The child indices of each tree that is made. */
+    final int[][] treeChildren;
+    /** The messages of required elements. */
+    final String[] messages;
+    /** The name of each rule. */
+    final String[] ruleNames;
+    /** Where to start to parse each rule as if it had been called. */
+    final int[] stubs;
+    /** How each rule is recovered from. */
+    final byte[] recovery;
+    /** The error where a recovered rule could be but is not, by rule. */
+    final String[] recoveryMessages;
+    /** The terminals that may follow where a recovered rule could be. */
+    final boolean[][] recoveryEnds;
+
+    /**
+     * The body of each rule, as it is written in the grammar, or
+     * <code>null</code> if the grammar was made from generated tables.
+     */
+    final Element[] bodies;
+
+    /** The number of each rule, by name. */
+    private final Map<String, Integer> rules = new HashMap<>();
+
+    /**
+     * Reads and compiles a grammar.
+     * @param resource The name of the grammar file, beside this class.
+     * @return The compiled grammar.
+     * @throws IllegalStateException If the grammar is not on the
+     *         classpath or cannot be read, or is not a valid LL(1) grammar.
+     */
+    static Grammar load(String resource) {
+        try (InputStream in = Grammar.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("No grammar " + resource + " beside "
+                    + Grammar.class.getName() + " on the classpath; copy it there with the classes");
+            }
+            return read(resource, new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Cannot read grammar " + resource, e);
+        }
+    }
+
+    /**
+     * Reads and compiles a grammar from the given Reader, which is not
+     * closed.
+     * @param name The name of the grammar, for error messages.
+     * @param reader Where the grammar comes from.
+     * @return The compiled grammar.
+     * @throws IllegalStateException If the grammar cannot be read, or
+     *         is not a valid LL(1) grammar.
+     */
+    static Grammar read(String name, Reader reader) {
+        try {
+            return new Grammar(new Compiler(name, new Lexer(reader)));
+        }
+        catch (Lexer.ReadFailure e) {
+            throw new IllegalStateException("Cannot read grammar " + name, e.getCause());
+        }
+    }
+
+    /**
+     * Constructs a Grammar from what the compiler has made of it.
+     * @param compiler The compiler, which has read and compiled the grammar.
+     */
+    private Grammar(Compiler compiler) {
+        code = Arrays.copyOf(compiler.code, compiler.size);
+        tables = compiler.tables.toArray(new int[0][]);
+        values = compiler.values.toArray(new String[0]);
+        treeRoots = new int[compiler.trees.size()];
+        treeChildren = new int[treeRoots.length][];
+        for (int i = 0; i < treeRoots.length; i++) {
+            int[] tree = compiler.trees.get(i);
+            treeRoots[i] = tree[0];
+            treeChildren[i] = Arrays.copyOfRange(tree, 1, tree.length);
+        }
+        messages = compiler.messages.toArray(new String[0]);
+        ruleNames = compiler.names.toArray(new String[0]);
+        bodies = compiler.bodies.toArray(new Element[0]);
+        stubs = compiler.stubs;
+        recovery = compiler.recovery;
+        recoveryMessages = compiler.recoveryMessages;
+        recoveryEnds = compiler.recoveryEnds;
+        for (int i = 0; i < ruleNames.length; i++) {
+            rules.put(ruleNames[i], i);
+        }
+    }
+
+    /**
+     * Constructs a Grammar from the tables that the
+     * <code>ParserGenerator</code> has compiled it into. The prediction
+     * tables and the terminals that end recovery are given sparsely.
+     * @param code The instructions of all the rules.
+     * @param tables Each prediction table, as each terminal that it has
+     *        an entry for followed by where to go.
+     * @param values The values of the nodes that are pushed.
+     * @param trees The root index of each tree followed by its child indices.
+     * @param messages The messages of required elements.
+     * @param ruleNames The name of each rule.
+     * @param stubs Where to start to parse each rule as if it had been called.
+     * @param recovery How each rule is recovered from.
+     * @param recoveryMessages The error where a recovered rule could be, by rule.
+     * @param recoveryEnds The terminals that may follow where a recovered
+     *        rule could be, by rule, or <code>null</code>.
+     */
+    Grammar(int[] code, int[][] tables, String[] values, int[][] trees,
+            String[] messages, String[] ruleNames, int[] stubs, byte[] recovery,
+            String[] recoveryMessages, int[][] recoveryEnds) {
+        this.code = code;
+        this.tables = new int[tables.length][];
+        for (int i = 0; i < tables.length; i++) {
+            this.tables[i] = new int[TERMINALS];
+            Arrays.fill(this.tables[i], -1);
+            for (int j = 0; j < tables[i].length; j += 2) {
+                this.tables[i][tables[i][j]] = tables[i][j + 1];
+            }
+        }
+        this.values = values;
+        treeRoots = new int[trees.length];
+        treeChildren = new int[trees.length][];
+        for (int i = 0; i < trees.length; i++) {
+            treeRoots[i] = trees[i][0];
+            treeChildren[i] = Arrays.copyOfRange(trees[i], 1, trees[i].length);
+        }
+        this.messages = messages;
+        this.ruleNames = ruleNames;
+        this.stubs = stubs;
+        this.recovery = recovery;
+        this.recoveryMessages = recoveryMessages;
+        this.recoveryEnds = new boolean[recoveryEnds.length][];
+        for (int i = 0; i < recoveryEnds.length; i++) {
+            if (recoveryEnds[i] == null) continue;
+            this.recoveryEnds[i] = new boolean[TERMINALS];
+            for (int terminal : recoveryEnds[i]) {
+                this.recoveryEnds[i][terminal] = true;
+            }
+        }
+        bodies = null;
+        for (int i = 0; i < ruleNames.length; i++) {
+            rules.put(ruleNames[i], i);
+        }
+    }
+
+    /**
+     * Returns the number of the rule with the given name.
+     * @param name The name of the rule, as in the grammar file.
+     * @return The number of the rule.
+     * @throws IllegalArgumentException If there is no such rule.
+     */
+    int rule(String name) {
+        Integer rule = rules.get(name);
+        if (rule == null) throw new IllegalArgumentException("No rule " + name);
+        return rule;
+    }
+
+    /**
+     * Returns the terminal number of the next token of a TokenBuffer.
+     * @param tokens The tokens.
+     * @return The terminal number of the next token.
+     */
+    static int terminal(TokenBuffer tokens) {
+        switch (tokens.peekType(0)) {
+            case KEYWORD:
+                return tokens.peekKeyword().ordinal();
+            case NAME:
+                return NAME;
+            case NUMBER:
+                return NUMBER;
+            case EOL:
+                return EOL;
+            case EOF:
+                return EOF;
+            case SYMBOL:
+                char c = tokens.peekSymbol();
+                return c < 128 ? SYMBOLS + c : OTHER;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * Describes a terminal, for comments and error messages.
+     * @param terminal The terminal number.
+     * @return The keyword, <code>NAME</code>, <code>NUMBER</code>,
+     *         <code>EOL</code> or <code>EOF</code>, the symbol in quotes,
+     *         or <code>another symbol</code>.
+     */
+    static String describe(int terminal) {
+        if (terminal < KEYWORDS) return Token.Keyword.values()[terminal].text;
+        switch (terminal - KEYWORDS) {
+            case 0:  return "NAME";
+            case 1:  return "NUMBER";
+            case 2:  return "EOL";
+            case 3:  return "EOF";
+            default: break;
+        }
+        if (terminal == OTHER) return "another symbol";
+        return "'" + (char) (terminal - SYMBOLS) + "'";
+    }
+
+    /**
+     * Returns the terminals with which the parse could have gone on at a
+     * <code>TERM</code>, <code>SKIP</code> or <code>PREDICT</code> that
+     * has failed. For a <code>PREDICT</code> these are the terminals its
+     * table has a target for.
+     * @param site Where the instruction that failed is.
+     * @return The terminals, in increasing order.
+     */
+    int[] expected(int site) {
+        int terminal = code[site + 1];
+        switch (code[site]) {
+            case TERM:
+            case SKIP:
+                if (terminal != ANY_KEYWORD) return new int[] {terminal};
+                int[] keywords = new int[KEYWORDS];
+                for (int i = 0; i < KEYWORDS; i++) keywords[i] = i;
+                return keywords;
+            case PREDICT:
+                int[] table = tables[terminal];
+                int count = 0;
+                for (int target : table) {
+                    if (target >= 0) count++;
+                }
+                int[] terminals = new int[count];
+                count = 0;
+                for (int t = 0; t < table.length; t++) {
+                    if (table[t] >= 0) terminals[count++] = t;
+                }
+                return terminals;
+            default:
+                throw new IllegalArgumentException("Not a terminal test: " + site);
+        }
+    }
+
+    /**
+     * Returns the code of an error message, which is its index in
+     * <code>messages</code>.
+     * @param message The message.
+     * @return The code, or <code>SyntaxException.NO_CODE</code> if the
+     *         message is not one of this grammar's.
+     */
+    int messageCode(String message) {
+        for (int i = 0; i < messages.length; i++) {
+            if (messages[i].equals(message)) return i;
+        }
+        return SyntaxException.NO_CODE;
+    }
+
+    /** The kinds of element a rule is made of. */
+    static enum Kind {
+        TERMINAL, RULE, OPTION, REPEAT, CHOICE, BINARY, PUSH, POP, TREE, JOIN;
+
+        /** Whether this kind of element is an action on the stack. */
+        boolean isAction() {
+            return ordinal() >= PUSH.ordinal();
+        }
+    }
+
+    /**
+     * An element of a rule, as it is written in the grammar. The body of
+     * a rule is a <code>CHOICE</code> between its alternatives.
+     */
+    static final class Element {
+        final Kind kind;
+        /** The terminal number of a <code>TERMINAL</code>. */
+        int terminal;
+        /** The name of a <code>RULE</code>, or the value of a <code>PUSH</code>. */
+        String name;
+        /** The root and child indices of a <code>TREE</code>. */
+        int[] tree;
+        /**
+         * The alternatives of a group. Each alternative of a
+         * <code>BINARY</code> is an operator, its right operand, and the
+         * Tree that they make.
+         */
+        List<List<Element>> alternatives;
+        /** The message if this element is required, or <code>null</code>. */
+        String required;
+        /**
+         * For a group, the alternative to take for each terminal, or -1
+         * if the group is absent.
+         */
+        int[] predictions;
+
+        Element(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Reads a grammar written in the notation of <code>Bugs.grammar</code>,
+     * checks that it is LL(1), and compiles it.
+     */
+    private static final class Compiler {
+        /** Stands for the end of the group being compiled, until it is known. */
+        private static final int END = Integer.MAX_VALUE;
+
+        private final String resource;
+        private final Lexer lexer;
+        /** The line being read, for error messages. */
+        private int line = 1;
+
+        /** The names of the rules, in the order they are defined. */
+        final List<String> names = new ArrayList<>();
+        /** The body of each rule. */
+        final List<Element> bodies = new ArrayList<>();
+        /** The number of each rule, by name. */
+        private final Map<String, Integer> numbers = new HashMap<>();
+        /** The %recover declarations, by rule name. */
+        private final Map<String, Object[]> recovered = new HashMap<>();
+
+        /** Whether each rule can match nothing. */
+        private boolean[] nullable;
+        /** The terminals that can start each rule. */
+        private BitSet[] first;
+        /** The terminals that can follow each rule. */
+        private BitSet[] follow;
+
+        int[] code = new int[256];
+        int size = 0;
+        final List<int[]> tables = new ArrayList<>();
+        final List<String> values = new ArrayList<>();
+        final List<int[]> trees = new ArrayList<>();
+        final List<String> messages = new ArrayList<>();
+        private final Map<String, Integer> messageNumbers = new HashMap<>();
+        /** The CALL instructions, whose entry is filled in last. */
+        private final List<Integer> calls = new ArrayList<>();
+        int[] stubs;
+        byte[] recovery;
+        String[] recoveryMessages;
+        boolean[][] recoveryEnds;
+
+        Compiler(String resource, Lexer lexer) {
+            this.resource = resource;
+            this.lexer = lexer;
+            read();
+            analyse();
+            analyseFollow();
+            compile();
+        }
+
+        //------------------------- Reading the grammar
+
+        /**
+         * Reads the rules and declarations of the grammar.
+         */
+        private void read() {
+            while (next() != Lexer.EOF) {
+                if (isSymbol('%')) {
+                    readRecovery();
+                    continue;
+                }
+                String name = word();
+                if (numbers.containsKey(name)) throw error("rule " + name + " is defined twice");
+                expect(':');
+                expect(':');
+                expect('=');
+                numbers.put(name, names.size());
+                names.add(name);
+                Element body = new Element(Kind.CHOICE);
+                body.alternatives = alternatives();
+                bodies.add(body);
+                expect(';');
+            }
+            for (String name : recovered.keySet()) {
+                if (!numbers.containsKey(name)) throw error("no rule " + name + " to recover");
+            }
+        }
+
+        /**
+         * Reads the rest of <code>%recover rule mode "message" ( terminals ) ;</code>.
+         */
+        private void readRecovery() {
+            next();
+            if (!"recover".equals(word())) throw error("%recover expected");
+            next();
+            String rule = word();
+            next();
+            String mode = word();
+            byte how;
+            if ("line".equals(mode)) how = TO_LINE;
+            else if ("definition".equals(mode)) how = TO_DEFINITION;
+            else throw error("recovery must be to a line or a definition");
+            next();
+            String message = string();
+            expect('(');
+            BitSet ends = new BitSet();
+            while (true) {
+                next();
+                if (isSymbol(')')) break;
+                ends.set(terminal());
+            }
+            expect(';');
+            recovered.put(rule, new Object[] { how, message, ends });
+        }
+
+        /**
+         * Reads alternatives separated by <code>|</code>, up to the symbol
+         * that ends them, which is left to be read.
+         * @return The alternatives.
+         */
+        private List<List<Element>> alternatives() {
+            List<List<Element>> alternatives = new ArrayList<>();
+            do {
+                alternatives.add(sequence());
+            } while (next() != Lexer.EOF && isSymbol('|'));
+            lexer.pushBack();
+            return alternatives;
+        }
+
+        /**
+         * Reads a sequence of elements, up to a <code>|</code> or the end of
+         * the alternatives, which is left to be read.
+         * @return The elements.
+         */
+        private List<Element> sequence() {
+            List<Element> sequence = new ArrayList<>();
+            while (true) {
+                int type = next();
+                if (type == Lexer.EOF) throw error("unexpected end of grammar");
+                if (type == Lexer.SYMBOL && "|;)]}".indexOf(lexer.symbol()) >= 0) {
+                    lexer.pushBack();
+                    return sequence;
+                }
+                Element element = element();
+                if (element.kind == Kind.BINARY) binary(element, sequence);
+                else if (next() == Lexer.SYMBOL && isSymbol('!') && !element.kind.isAction()) {
+                    next();
+                    element.required = string();
+                }
+                else lexer.pushBack();
+                sequence.add(element);
+            }
+        }
+
+        /**
+         * Reads one element, whose first token has been read.
+         * @return The element.
+         */
+        private Element element() {
+            Element element;
+            if (lexer.type() == Lexer.WORD && Character.isLowerCase(lexer.charAt(lexer.start()))) {
+                element = new Element(Kind.RULE);
+                element.name = lexer.text();
+            }
+            else if (isSymbol('[') || isSymbol('{') || isSymbol('(')) {
+                char open = lexer.symbol();
+                element = new Element(open == '[' ? Kind.OPTION : open == '{' ? Kind.REPEAT : Kind.CHOICE);
+                element.alternatives = alternatives();
+                expect(open == '[' ? ']' : open == '{' ? '}' : ')');
+            }
+            else if (isSymbol('%')) {
+                next();
+                if (!"binary".equals(word())) throw error("unknown element %" + lexer.text());
+                element = new Element(Kind.BINARY);
+                expect('(');
+                element.alternatives = alternatives();
+                expect(')');
+            }
+            else if (isSymbol('@')) {
+                next();
+                String action = word();
+                if ("push".equals(action)) {
+                    element = new Element(Kind.PUSH);
+                    expect('(');
+                    next();
+                    element.name = string();
+                    expect(')');
+                }
+                else if ("tree".equals(action)) {
+                    element = new Element(Kind.TREE);
+                    List<Integer> indices = new ArrayList<>();
+                    expect('(');
+                    do {
+                        if (next() != Lexer.NUMBER) throw error("index expected");
+                        indices.add((int) lexer.number());
+                    } while (next() == Lexer.SYMBOL && isSymbol(','));
+                    if (!isSymbol(')')) throw error("')' expected");
+                    element.tree = new int[indices.size()];
+                    for (int i = 0; i < element.tree.length; i++) element.tree[i] = indices.get(i);
+                }
+                else if ("pop".equals(action)) element = new Element(Kind.POP);
+                else if ("join".equals(action)) element = new Element(Kind.JOIN);
+                else throw error("unknown action @" + action);
+            }
+            else {
+                element = new Element(Kind.TERMINAL);
+                element.terminal = terminal();
+            }
+            return element;
+        }
+
+        /**
+         * Completes a <code>%binary</code> group, whose operand is the
+         * rule before it, by adding the operand and the Tree to each
+         * operator.
+         * @param binary The group, whose alternatives have been read.
+         * @param sequence The elements before it.
+         */
+        private void binary(Element binary, List<Element> sequence) {
+            Element operand = sequence.isEmpty() ? null : sequence.get(sequence.size() - 1);
+            if (operand == null || operand.kind != Kind.RULE) {
+                throw error("%binary must follow the rule for its operands");
+            }
+            for (List<Element> alternative : binary.alternatives) {
+                if (alternative.size() != 1 || alternative.get(0).kind != Kind.RULE
+                        || alternative.get(0).required == null) {
+                    throw error("each operator of %binary must be a rule with a message");
+                }
+                Element operator = alternative.get(0);
+                Element right = new Element(Kind.RULE);
+                right.name = operand.name;
+                right.required = operator.required;
+                operator.required = null;
+                Element tree = new Element(Kind.TREE);
+                tree.tree = new int[] {2, 3, 1};
+                alternative.add(right);
+                alternative.add(tree);
+            }
+        }
+
+        /**
+         * Returns the terminal number of the current token, which is a
+         * quoted keyword or symbol, or the name of a kind of token.
+         * @return The terminal number.
+         */
+        private int terminal() {
+            if (lexer.type() == Lexer.WORD) {
+                switch (lexer.text()) {
+                    case "NAME":    return NAME;
+                    case "NUMBER":  return NUMBER;
+                    case "EOL":     return EOL;
+                    case "EOF":     return EOF;
+                    case "KEYWORD": return ANY_KEYWORD;
+                    default:        throw error("unknown terminal " + lexer.text());
+                }
+            }
+            String text = string();
+            Token.Keyword keyword = Token.Keyword.of(text);
+            if (keyword != null) return keyword.ordinal();
+            if (text.length() == 1 && text.charAt(0) < 128) return SYMBOLS + text.charAt(0);
+            throw error("\"" + text + "\" is not a keyword or a symbol");
+        }
+
+        /**
+         * Returns the current token, which must be a quoted string,
+         * without its quotes.
+         * @return The characters between the quotes.
+         */
+        private String string() {
+            String text = lexer.type() == Lexer.SYMBOL ? lexer.text() : "";
+            if (text.length() < 2 || text.charAt(0) != '"' || !text.endsWith("\"")) {
+                throw error("quoted string expected");
+            }
+            StringBuilder s = new StringBuilder();
+            for (int i = 1; i < text.length() - 1; i++) {
+                char c = text.charAt(i);
+                if (c == '\\') c = text.charAt(++i);
+                s.append(c);
+            }
+            return s.toString();
+        }
+
+        /**
+         * Returns the current token, which must be a word.
+         * @return The word.
+         */
+        private String word() {
+            if (lexer.type() != Lexer.WORD) throw error("name expected");
+            return lexer.text();
+        }
+
+        /**
+         * Reads the next token, which must be the given symbol.
+         * @param c The symbol.
+         */
+        private void expect(char c) {
+            next();
+            if (!isSymbol(c)) throw error("'" + c + "' expected");
+        }
+
+        /**
+         * Tests whether the current token is the given symbol.
+         * @param c The symbol.
+         * @return <code>true</code> if it is.
+         */
+        private boolean isSymbol(char c) {
+            return lexer.type() == Lexer.SYMBOL && lexer.symbol() == c;
+        }
+
+        /**
+         * Reads the next token that is not a line end.
+         * @return Its type.
+         */
+        private int next() {
+            int type;
+            while ((type = lexer.next()) == Lexer.EOL) line++;
+            return type;
+        }
+
+        /**
+         * Makes the exception for an error in the grammar.
+         * @param message What is wrong.
+         * @return The exception, to be thrown.
+         */
+        private IllegalStateException error(String message) {
+            return new IllegalStateException(resource + " line " + line + ": " + message);
+        }
+
+        //------------------------- Checking the grammar
+
+        /**
+         * Works out which rules can match nothing, and the terminals that
+         * can start each rule, by repeating until nothing changes.
+         */
+        private void analyse() {
+            int count = names.size();
+            nullable = new boolean[count];
+            first = new BitSet[count];
+            for (int i = 0; i < count; i++) first[i] = new BitSet();
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < count; i++) {
+                    BitSet starts = new BitSet();
+                    boolean empty = first(bodies.get(i).alternatives, starts);
+                    if (empty != nullable[i] || !starts.equals(first[i])) {
+                        nullable[i] = empty;
+                        first[i] = starts;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the terminals that can start any of the given alternatives.
+         * @param alternatives The alternatives.
+         * @param starts Where to add the terminals.
+         * @return <code>true</code> if some alternative can match nothing.
+         */
+        private boolean first(List<List<Element>> alternatives, BitSet starts) {
+            boolean empty = false;
+            for (List<Element> sequence : alternatives) {
+                if (firstOfSequence(sequence, starts)) empty = true;
+            }
+            return empty;
+        }
+
+        /**
+         * Adds the terminals that can start the given sequence.
+         * @param sequence The elements.
+         * @param starts Where to add the terminals.
+         * @return <code>true</code> if the sequence can match nothing.
+         */
+        private boolean firstOfSequence(List<Element> sequence, BitSet starts) {
+            for (Element element : sequence) {
+                switch (element.kind) {
+                    case TERMINAL:
+                        if (element.terminal == ANY_KEYWORD) starts.set(0, KEYWORDS);
+                        else starts.set(element.terminal);
+                        return false;
+                    case RULE:
+                        int rule = ruleNumber(element.name);
+                        starts.or(first[rule]);
+                        if (!nullable[rule]) return false;
+                        break;
+                    case CHOICE:
+                        if (!first(element.alternatives, starts)) return false;
+                        break;
+                    case OPTION:
+                    case REPEAT:
+                    case BINARY:
+                        first(element.alternatives, starts);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Works out the terminals that can follow each rule, by repeating
+         * until nothing changes, and then checks that no group that can
+         * be absent can start with a terminal that can follow it.
+         * @throws IllegalStateException If one can.
+         */
+        private void analyseFollow() {
+            int count = names.size();
+            follow = new BitSet[count];
+            for (int i = 0; i < count; i++) follow[i] = new BitSet();
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = 0; i < count; i++) {
+                    if (follow(bodies.get(i), follow[i], null)) changed = true;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                follow(bodies.get(i), follow[i], names.get(i));
+            }
+        }
+
+        /**
+         * Adds what can follow each rule called in a group, given what
+         * can follow the group, and checks the groups within it.
+         * @param group A choice, option or repeat.
+         * @param after The terminals that can follow the group.
+         * @param where The rule, if the groups are to be checked, or
+         *        <code>null</code>.
+         * @return <code>true</code> if anything was added.
+         * @throws IllegalStateException If a group that can be absent
+         *         can start with a terminal that can follow it.
+         */
+        private boolean follow(Element group, BitSet after, String where) {
+            BitSet starts = new BitSet();
+            boolean empty = first(group.alternatives, starts);
+            if (where != null && (empty || group.kind != Kind.CHOICE)
+                    && starts.intersects(after)) {
+                BitSet both = (BitSet) starts.clone();
+                both.and(after);
+                throw new IllegalStateException(resource + ": in " + where + ", "
+                    + describe(both.nextSetBit(0)) + " can both start and follow "
+                    + (group.kind == Kind.CHOICE ? "a part that can be empty" : "an optional part")
+                    + "; it is not LL(1)");
+            }
+            // after the body of a repeat may come the body again
+            BitSet inner = after;
+            if (group.kind == Kind.REPEAT || group.kind == Kind.BINARY) {
+                inner = (BitSet) after.clone();
+                inner.or(starts);
+            }
+            boolean changed = false;
+            for (List<Element> sequence : group.alternatives) {
+                if (followOfSequence(sequence, inner, where)) changed = true;
+            }
+            return changed;
+        }
+
+        /**
+         * Adds what can follow each rule called in a sequence, given what
+         * can follow the sequence, and checks the groups within it.
+         * @param sequence The elements.
+         * @param after The terminals that can follow the sequence.
+         * @param where The rule, if the groups are to be checked, or
+         *        <code>null</code>.
+         * @return <code>true</code> if anything was added.
+         */
+        private boolean followOfSequence(List<Element> sequence, BitSet after, String where) {
+            boolean changed = false;
+            BitSet next = (BitSet) after.clone();
+            for (int i = sequence.size() - 1; i >= 0; i--) {
+                Element element = sequence.get(i);
+                if (element.kind.isAction()) continue;
+                if (element.kind == Kind.RULE) {
+                    BitSet rule = follow[ruleNumber(element.name)];
+                    BitSet added = (BitSet) next.clone();
+                    added.andNot(rule);
+                    if (!added.isEmpty()) {
+                        rule.or(added);
+                        changed = true;
+                    }
+                }
+                else if (element.kind != Kind.TERMINAL) {
+                    if (follow(element, next, where)) changed = true;
+                }
+                BitSet starts = new BitSet();
+                if (!firstOfSequence(sequence.subList(i, i + 1), starts)) next.clear();
+                next.or(starts);
+            }
+            return changed;
+        }
+
+        /**
+         * Returns the number of the rule with the given name.
+         * @param name The name of the rule.
+         * @return Its number.
+         */
+        private int ruleNumber(String name) {
+            Integer rule = numbers.get(name);
+            if (rule == null) throw new IllegalStateException(resource + ": no rule " + name);
+            return rule;
+        }
+
+        //------------------------- Compiling the grammar
+
+        /**
+         * Compiles each rule, then a stub for each rule that calls it,
+         * then fills in the entries of the calls.
+         */
+        private void compile() {
+            int count = names.size();
+            int[] entries = new int[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = size;
+                compileChoice(bodies.get(i), FAIL, true, names.get(i));
+            }
+            stubs = new int[count];
+            for (int i = 0; i < count; i++) {
+                stubs[i] = call(i, FAIL);
+                emit(RETURN);
+            }
+            for (int call : calls) {
+                code[call + 1] = entries[code[call + 3]];
+            }
+            recovery = new byte[count];
+            recoveryMessages = new String[count];
+            recoveryEnds = new boolean[count][];
+            for (Map.Entry<String, Object[]> entry : recovered.entrySet()) {
+                int rule = numbers.get(entry.getKey());
+                Object[] declaration = entry.getValue();
+                recovery[rule] = (Byte) declaration[0];
+                recoveryMessages[rule] = (String) declaration[1];
+                recoveryEnds[rule] = new boolean[TERMINALS];
+                BitSet ends = (BitSet) declaration[2];
+                for (int t = ends.nextSetBit(0); t >= 0; t = ends.nextSetBit(t + 1)) {
+                    recoveryEnds[rule][t] = true;
+                }
+            }
+        }
+
+        /**
+         * Compiles a choice between alternatives: a whole rule, or a group
+         * in parentheses.
+         * @param group The choice.
+         * @param fail What to do if no alternative is present.
+         * @param isRule Whether to return after each alternative, instead
+         *        of going on after the group.
+         * @param where The rule, for error messages.
+         */
+        private void compileChoice(Element group, int fail, boolean isRule, String where) {
+            List<List<Element>> alternatives = group.alternatives;
+            int last = alternatives.size() - 1;
+            if (last == 0) {
+                compileSequence(alternatives.get(0), fail, where);
+                if (isRule) emit(RETURN);
+                return;
+            }
+            int predict = emit(PREDICT, tables.size(), fail, -1);
+            tables.add(null);
+            int[] starts = new int[alternatives.size()];
+            List<Integer> exits = new ArrayList<>();
+            for (int i = 0; i <= last; i++) {
+                starts[i] = size;
+                compileSequence(alternatives.get(i), fail, where);
+                if (isRule) emit(RETURN);
+                else if (i < last) exits.add(emit(JUMP, -1));
+            }
+            tables.set(code[predict + 1], predict(group, starts, where));
+            for (int exit : exits) code[exit + 1] = size;
+        }
+
+        /**
+         * Compiles a sequence of elements.
+         * @param sequence The elements.
+         * @param firstFail What to do if the first element that is not an
+         *        action is missing, unless it is required.
+         * @param where The rule, for error messages.
+         */
+        private void compileSequence(List<Element> sequence, int firstFail, String where) {
+            boolean isFirst = true;
+            for (int i = 0; i < sequence.size(); i++) {
+                Element element = sequence.get(i);
+                if (element.kind.isAction()) {
+                    compileAction(element);
+                    continue;
+                }
+                int fail = element.required != null ? message(element.required)
+                         : isFirst ? firstFail : FAIL;
+                isFirst = false;
+                switch (element.kind) {
+                    case TERMINAL:
+                        // a token that is popped at once is never pushed
+                        if (i + 1 < sequence.size() && sequence.get(i + 1).kind == Kind.POP) {
+                            emit(SKIP, element.terminal, fail);
+                            i++;
+                        }
+                        else emit(TERM, element.terminal, fail);
+                        break;
+                    case RULE:
+                        call(ruleNumber(element.name), fail);
+                        break;
+                    case CHOICE:
+                        compileChoice(element, fail, false, where);
+                        break;
+                    case BINARY:
+                        compileBinary(element, where);
+                        break;
+                    default:
+                        compileLoop(element, where);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Compiles an optional or repeated group. The group is skipped,
+         * or the loop ends, if no alternative can start with the next
+         * token, or if the first element of the alternative taken is
+         * missing.
+         * @param group The group.
+         * @param where The rule, for error messages.
+         */
+        private void compileLoop(Element group, String where) {
+            List<List<Element>> alternatives = group.alternatives;
+            int predict = emit(PREDICT, tables.size(), -1, -1);
+            tables.add(null);
+            int[] starts = new int[alternatives.size()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = size;
+                compileSequence(alternatives.get(i), END, where);
+                emit(JUMP, group.kind == Kind.REPEAT ? predict : END);
+            }
+            int end = size;
+            tables.set(code[predict + 1], predict(group, starts, where));
+            code[predict + 2] = end;
+            // nested groups have been compiled, so any END left is this one's
+            for (int pc = predict; pc < end; pc += length(code[pc])) {
+                if (isElement(code[pc]) && code[pc + 2] == END) code[pc + 2] = end;
+                else if (code[pc] == JUMP && code[pc + 1] == END) code[pc + 1] = end;
+            }
+            // in recovery mode, a recovered rule is called even if it cannot start here
+            List<Element> only = alternatives.get(0);
+            if (alternatives.size() == 1 && only.get(0).kind == Kind.RULE
+                    && recovered.containsKey(only.get(0).name)) {
+                code[predict + 3] = starts[0];
+            }
+        }
+
+        /**
+         * Compiles a <code>%binary</code> group, as a loop that parses an
+         * operator and its right operand each time round, by precedence
+         * climbing: before each operator, the Trees of the operators
+         * before it that bind at least as tightly are made, and the rest
+         * are made when there are no more operators.
+         * @param group The group.
+         * @param where The rule, for error messages.
+         */
+        private void compileBinary(Element group, String where) {
+            List<List<Element>> alternatives = group.alternatives;
+            int climb = emit(CLIMB, tables.size(), -1);
+            tables.add(null);
+            int[] starts = new int[alternatives.size()];
+            for (int i = 0; i < starts.length; i++) {
+                List<Element> alternative = alternatives.get(i);
+                starts[i] = size;
+                emit(OPERATOR, i + 1);
+                call(ruleNumber(alternative.get(0).name), FAIL);
+                call(ruleNumber(alternative.get(1).name), message(alternative.get(1).required));
+                emit(JUMP, climb);
+            }
+            tables.set(code[climb + 1], predict(group, starts, where));
+            code[climb + 2] = size;
+        }
+
+        /**
+         * Compiles an action on the stack.
+         * @param action The action.
+         */
+        private void compileAction(Element action) {
+            switch (action.kind) {
+                case PUSH:
+                    emit(PUSH, values.size());
+                    values.add(action.name);
+                    break;
+                case POP:
+                    emit(POP);
+                    break;
+                case TREE:
+                    emit(TREE, trees.size());
+                    trees.add(action.tree);
+                    break;
+                default:
+                    emit(JOIN);
+                    break;
+            }
+        }
+
+        /**
+         * Works out which alternative of a group to take for each
+         * terminal, and makes the prediction table for it. An alternative
+         * that starts with an action, or can match nothing, is taken for
+         * any token no other can start with.
+         * @param group The group.
+         * @param starts Where each alternative's code starts.
+         * @param where The rule, for error messages.
+         * @return The table.
+         * @throws IllegalStateException If two alternatives can start
+         *         with the same token.
+         */
+        private int[] predict(Element group, int[] starts, String where) {
+            int[] predictions = new int[TERMINALS];
+            Arrays.fill(predictions, -1);
+            int otherwise = -1;
+            for (int i = 0; i < starts.length; i++) {
+                List<Element> sequence = group.alternatives.get(i);
+                BitSet terminals = new BitSet();
+                boolean empty = firstOfSequence(sequence, terminals);
+                if (empty || sequence.get(0).kind.isAction()) {
+                    if (otherwise >= 0) throw notLL1(where);
+                    otherwise = i;
+                }
+                for (int t = terminals.nextSetBit(0); t >= 0; t = terminals.nextSetBit(t + 1)) {
+                    if (predictions[t] >= 0) throw notLL1(where);
+                    predictions[t] = i;
+                }
+            }
+            int[] table = new int[TERMINALS];
+            for (int t = 0; t < TERMINALS; t++) {
+                if (predictions[t] < 0) predictions[t] = otherwise;
+                table[t] = predictions[t] < 0 ? -1 : starts[predictions[t]];
+            }
+            group.predictions = predictions;
+            return table;
+        }
+
+        /**
+         * Makes the exception for a choice that is not LL(1).
+         * @param where The rule.
+         * @return The exception, to be thrown.
+         */
+        private IllegalStateException notLL1(String where) {
+            return new IllegalStateException(resource + ": the alternatives of " + where
+                                             + " are not LL(1)");
+        }
+
+        /**
+         * Emits a call of a rule.
+         * @param rule The rule.
+         * @param fail What to do if the rule fails.
+         * @return Where the call is.
+         */
+        private int call(int rule, int fail) {
+            int pc = emit(CALL, -1, fail, rule);
+            calls.add(pc);
+            return pc;
+        }
+
+        /**
+         * Returns the failure operand for an error.
+         * @param message The message of the error.
+         * @return The failure operand.
+         */
+        private int message(String message) {
+            Integer number = messageNumbers.get(message);
+            if (number == null) {
+                number = messages.size();
+                messages.add(message);
+                messageNumbers.put(message, number);
+            }
+            return -2 - number;
+        }
+
+        /**
+         * Appends an instruction.
+         * @param instruction The instruction and its operands.
+         * @return Where the instruction is.
+         */
+        private int emit(int... instruction) {
+            if (size + instruction.length > code.length) {
+                code = Arrays.copyOf(code, 2 * code.length);
+            }
+            int pc = size;
+            System.arraycopy(instruction, 0, code, size, instruction.length);
+            size += instruction.length;
+            return pc;
+        }
+    }
+
+    /**
+     * Tests whether an instruction matches an element of a rule, and so
+     * has a failure operand.
+     * @param op The instruction.
+     * @return <code>true</code> for <code>TERM</code>, <code>SKIP</code>,
+     *         <code>CALL</code> and <code>PREDICT</code>.
+     */
+    static boolean isElement(int op) {
+        return op <= PREDICT;
+    }
+
+    /**
+     * Returns the length of an instruction, with its operands.
+     * @param op The instruction.
+     * @return The number of ints it takes.
+     */
+    static int length(int op) {
+        switch (op) {
+            case TERM:
+            case SKIP:    return 3;
+            case CALL:
+            case PREDICT: return 4;
+            case CLIMB:   return 3;
+            case JUMP:
+            case PUSH:
+            case OPERATOR:
+            case TREE:    return 2;
+            default:      return 1;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package bugs;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class GrammarTest {
+
+    @Test
+    public final void testBugsGrammar() {
+        Grammar grammar = Grammar.BUGS;
+        assertEquals("program", grammar.ruleNames[grammar.rule("program")]);
+        assertEquals(Grammar.TO_LINE, grammar.recovery[grammar.rule("command")]);
+        assertEquals(Grammar.NO_RECOVERY, grammar.recovery[grammar.rule("block")]);
+        try {
+            grammar.rule("sentence");
+            fail("Found a rule that is not in the grammar");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
+    @Test
+    public final void testEngine() {
+        Grammar grammar = read("sum ::= NUMBER { \"+\" NUMBER !\"number expected\" @tree(2,3,1) } ;\n"
+                               + "list ::= \"(\" @pop @push(\"list\") [ sum @tree(2,1) ] \")\" @pop ;");
+        TreeStack stack = new TreeStack();
+        Engine engine = new Engine(grammar, new TokenBuffer("(1 + 2 + 3)"));
+        assertTrue(engine.parse(grammar.rule("list"), stack, null, false));
+        assertEquals(1, stack.size());
+        assertEquals(Token.valueOf("list"), stack.peek().getValue());
+        assertEquals("SYMBOL:+(SYMBOL:+(NUMBER:1.0 NUMBER:2.0) NUMBER:3.0)",
+                     stack.peek().getChild(0).toString());
+
+        stack.clear();
+        engine = new Engine(grammar, new TokenBuffer("( )"));
+        assertTrue(engine.parse(grammar.rule("list"), stack, null, false));
+        assertEquals(0, stack.peek().getNumberOfChildren());
+        assertFalse(engine.parse(grammar.rule("sum"), stack, null, false));
+
+        engine = new Engine(grammar, new TokenBuffer("1 + +"));
+        try {
+            engine.parse(grammar.rule("sum"), stack, null, false);
+            fail("Missing number was not reported");
+        }
+        catch (SyntaxException e) {
+            assertEquals("number expected", e.getDetail());
+            assertEquals(5, e.getColumn());
+        }
+    }
+
+    @Test
+    public final void testChoices() {
+        Grammar grammar = read("sign ::= \"+\" | \"-\" | @push(\"none\") ;");
+        TreeStack stack = new TreeStack();
+        Engine engine = new Engine(grammar, new TokenBuffer("- x"));
+        assertTrue(engine.parse(grammar.rule("sign"), stack, null, false));
+        assertTrue(engine.parse(grammar.rule("sign"), stack, null, false));
+        assertEquals("[SYMBOL:-, KEYWORD:none]", stack.toString());
+    }
+
+    @Test
+    public final void testBinary() {
+        Grammar grammar = read("sum ::= number %binary ( plus !\"no sum\" | times !\"no product\" ) ;\n"
+                               + "number ::= NUMBER ; plus ::= \"+\" | \"-\" ; times ::= \"*\" ;");
+        TreeStack stack = new TreeStack();
+        Engine engine = new Engine(grammar, new TokenBuffer("1 - 2 * 3 * 4 + 5 6"));
+        assertTrue(engine.parse(grammar.rule("sum"), stack, null, false));
+        assertEquals("[SYMBOL:+(SYMBOL:-(NUMBER:1.0 SYMBOL:*(SYMBOL:*(NUMBER:2.0 NUMBER:3.0) "
+                     + "NUMBER:4.0)) NUMBER:5.0)]", stack.toString());
+        assertEquals(-1, new Engine(grammar, new TokenBuffer("1 * 2 - 3")).check(grammar.rule("sum")));
+
+        engine = new Engine(grammar, new TokenBuffer("1 * 2 + * 3"));
+        try {
+            engine.parse(grammar.rule("sum"), new TreeStack(), null, false);
+            fail("Missing operand was not reported");
+        }
+        catch (SyntaxException e) {
+            assertEquals("no sum", e.getDetail());
+        }
+        assertInvalid("a ::= %binary ( b !\"x\" ) ; b ::= \"+\" ;");
+        assertInvalid("a ::= NAME %binary ( b !\"x\" ) ; b ::= \"+\" ;");
+        assertInvalid("a ::= c %binary ( b ) ; b ::= \"+\" ; c ::= NAME ;");
+        assertInvalid("a ::= c %binary ( b !\"x\" | d !\"y\" ) ; b ::= \"+\" ; d ::= \"+\" \"+\" ;"
+                      + " c ::= NAME ;");
+    }
+
+    @Test
+    public final void testInvalidGrammars() {
+        assertInvalid("a ::= \"move\" | \"move\" NAME ;");
+        assertInvalid("a ::= b | NAME ; b ::= NAME ;");
+        assertInvalid("a ::= NAME b ;");
+        assertInvalid("a ::= \"moves\" ;");
+        assertInvalid("a ::= NAME");
+        assertInvalid("a ::= NAME ; a ::= NUMBER ;");
+    }
+
+    @Test
+    public final void testFollowConflicts() {
+        assertInvalid("a ::= [ NAME ] NAME ;");
+        assertInvalid("a ::= { \"move\" NAME } \"move\" ;");
+        assertInvalid("a ::= b NAME ; b ::= NAME | @push(\"none\") ;");
+        assertInvalid("a ::= b NAME ; b ::= \"move\" [ NAME ] ;");
+        assertInvalid("a ::= { b } ; b ::= NAME [ NUMBER ] ; c ::= a NUMBER ;");
+        read("a ::= [ NAME ] NUMBER { \",\" NUMBER } EOL ;");
+        read("a ::= b NAME ; b ::= NUMBER [ \"+\" NUMBER ] ;");
+        try {
+            read("a ::= [ NAME ] b ; b ::= NAME ;");
+            fail("Accepted an option that can be followed by what starts it");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("test: in a, NAME can both start and follow an optional part; "
+                         + "it is not LL(1)", e.getMessage());
+        }
+    }
+
+    @Test
+    public final void testMissingGrammar() {
+        try {
+            Grammar.load("Missing.grammar");
+            fail("Loaded a grammar that is not there");
+        }
+        catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Missing.grammar"));
+            assertTrue(e.getMessage(), e.getMessage().contains("classpath"));
+        }
+    }
+
+    /**
+     * Asserts that a grammar is rejected.
+     * @param text The grammar.
+     */
+    private void assertInvalid(String text) {
+        try {
+            read(text);
+            fail("Accepted " + text);
+        }
+        catch (IllegalStateException e) {}
+    }
+
+    /**
+     * Compiles a grammar.
+     * @param text The grammar.
+     * @return The compiled grammar.
+     */
+    private Grammar read(String text) {
+        return Grammar.read("test", new StringReader(text));
+    }
+}
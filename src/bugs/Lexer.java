@@ -0,0 +1,797 @@
+package bugs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A hand-written scanner for the Bugs language, shared by the
+ * <code>Parser</code> and the <code>Recognizer</code>.
+ * <p>
+ * The lexer works directly on its input and reports each
+ * token as a type code plus the start and end offsets of its characters;
+ * it does not allocate anything while scanning. Callers that need the
+ * characters as a <code>String</code> can ask for them with
+ * <code>text()</code>.
+ * <p>
+ * The lexical rules are those the <code>Parser</code> used to get from
+ * its configured <code>java.io.StreamTokenizer</code>: words are a
+ * letter followed by letters and digits, numbers are digits with at most
+ * one decimal point (a leading '.' or '-' is a separate symbol), line
+ * ends are significant, <code>//</code> and <code>/* ... *&#47;</code>
+ * comments are skipped, and every other character is a one-character
+ * symbol.
+ * <p>
+ * Input may be characters or UTF-8 encoded bytes, such as a memory-mapped
+ * file. Bytes are scanned in place: every byte that is not ASCII is taken
+ * to be part of a word, as every character above <code>'\u00ff'</code>
+ * is, except the two bytes of a control character from
+ * <code>'\u0080'</code> to <code>'\u009f'</code>, which is a symbol
+ * here as it is among characters. Only the characters of a word are
+ * ever decoded. When scanning
+ * bytes, all offsets are byte offsets. Runs of spaces and the bodies of
+ * comments are then skipped eight bytes at a time, by testing a whole
+ * <code>long</code> for the byte that ends them.
+ * <p>
+ * Input may also be read from a <code>Reader</code>, a chunk at a time.
+ * Only complete lines are scanned, so that no token but a block comment
+ * is ever split between chunks, and characters are dropped from the
+ * buffer once they have been scanned; the buffer need only be large
+ * enough for the longest line. Offsets are still counted from the start
+ * of the input, but <code>charAt</code> can only reach the characters of
+ * the current line.
+ */
+public class Lexer {
+    /** Token code for the end of the input. */
+    public static final int EOF = 0;
+    /** Token code for an end of line. */
+    public static final int EOL = 1;
+    /** Token code for a word (a name or a keyword). */
+    public static final int WORD = 2;
+    /** Token code for a number. */
+    public static final int NUMBER = 3;
+    /** Token code for a single-character symbol. */
+    public static final int SYMBOL = 4;
+
+    // Character classes for the scanner's state machine
+    private static final byte OTHER = 0;
+    private static final byte SPACE = 1;
+    private static final byte DIGIT = 2;
+    private static final byte ALPHA = 3;
+    private static final byte QUOTE = 4;
+    private static final byte SLASH = 5;
+    private static final byte NEWLINE = 6;
+    private static final byte RETURN = 7;
+    /** The first byte of the UTF-8 for characters 0x80 to 0xbf. */
+    private static final byte LEAD = 8;
+
+    /** The class of each character below 256. */
+    private static final byte[] CHAR_CLASS = new byte[256];
+    /** The class of each byte of UTF-8 input. */
+    private static final byte[] BYTE_CLASS = new byte[256];
+
+    // Eight copies of a byte, for testing eight bytes at once
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long SPACES = ONES * ' ';
+    private static final long STARS = ONES * '*';
+    private static final long NEWLINES = ONES * '\n';
+    private static final long RETURNS = ONES * '\r';
+
+    static {
+        for (int c = 0; c <= ' '; c++) CHAR_CLASS[c] = SPACE;
+        for (int c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+        for (int c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = ALPHA;
+        for (int c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = ALPHA;
+        for (int c = 160; c < 256; c++) CHAR_CLASS[c] = ALPHA;
+        CHAR_CLASS['"'] = QUOTE;
+        CHAR_CLASS['/'] = SLASH;
+        CHAR_CLASS['\n'] = NEWLINE;
+        CHAR_CLASS['\r'] = RETURN;
+        System.arraycopy(CHAR_CLASS, 0, BYTE_CLASS, 0, 128);
+        for (int b = 128; b < 256; b++) BYTE_CLASS[b] = ALPHA;
+        BYTE_CLASS[0xc2] = LEAD;
+    }
+
+    /** How many characters are read from a <code>Reader</code> at a time. */
+    private static final int CHUNK_SIZE = 8192;
+
+    /** The characters being scanned, or <code>null</code> for bytes. */
+    private char[] buffer;
+    /** The bytes being scanned, or <code>null</code> for characters. */
+    private ByteBuffer bytes;
+    /** <code>CHAR_CLASS</code> or <code>BYTE_CLASS</code>, to suit the input. */
+    private byte[] classes;
+    /** Whether spaces and comments are skipped eight bytes at a time. */
+    private boolean wordAtATime;
+    /** Where the input still to be read comes from, or <code>null</code>. */
+    private Reader reader;
+    /** The number of characters (or bytes) that may be scanned. */
+    private int limit;
+    /** The number of characters in the buffer, which may exceed the limit. */
+    private int filled;
+    /** The offset in the whole input of the first character in the buffer. */
+    private int origin = 0;
+    /** Whether the Reader, if any, has reached the end of the input. */
+    private boolean ended = false;
+    /** The position of the next unscanned character. */
+    private int position;
+
+    /** The type of the most recently scanned token. */
+    private int type = EOF;
+    /** Where the most recently scanned token starts. */
+    private int start;
+    /** Where the most recently scanned token ends (exclusive). */
+    private int end;
+    /** The value of the most recently scanned token, if a number. */
+    private double number;
+    /** Whether the most recent token is to be returned again. */
+    private boolean pushedBack = false;
+
+    /**
+     * Constructs a Lexer for the given characters.
+     * @param text The characters to be scanned.
+     */
+    public Lexer(CharSequence text) {
+        setInput(text);
+    }
+
+    /**
+     * Constructs a Lexer for the UTF-8 encoded bytes between the
+     * position and the limit of the given buffer, which are scanned in
+     * place and must not change. A leading byte order mark is skipped.
+     * @param input The bytes to be scanned.
+     */
+    public Lexer(ByteBuffer input) {
+        // Little-endian, so the first byte is the low byte of a long
+        bytes = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        limit = bytes.limit();
+        filled = limit;
+        buffer = null;
+        reader = null;
+        classes = BYTE_CLASS;
+        wordAtATime = true;
+        if (limit >= 3 && (bytes.get(0) & 0xFF) == 0xEF
+                && (bytes.get(1) & 0xFF) == 0xBB && (bytes.get(2) & 0xFF) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Constructs a Lexer that reads characters from the given Reader as
+     * they are needed. The Reader is read a chunk at a time; it is not
+     * closed.
+     * @param input Where the characters to be scanned come from.
+     */
+    public Lexer(Reader input) {
+        reader = input;
+        buffer = new char[CHUNK_SIZE];
+        bytes = null;
+        classes = CHAR_CLASS;
+        wordAtATime = false;
+    }
+
+    /**
+     * Starts scanning the given characters, as if this Lexer had just
+     * been constructed for them. The character buffer is reused if it is
+     * large enough, so a Lexer can scan many small inputs without
+     * allocating.
+     * @param text The characters to be scanned.
+     */
+    public void setInput(CharSequence text) {
+        limit = text.length();
+        if (buffer == null || buffer.length < limit) {
+            buffer = new char[limit];
+        }
+        if (text instanceof String) {
+            ((String) text).getChars(0, limit, buffer, 0);
+        }
+        else {
+            for (int i = 0; i < limit; i++) {
+                buffer[i] = text.charAt(i);
+            }
+        }
+        filled = limit;
+        bytes = null;
+        reader = null;
+        classes = CHAR_CLASS;
+        wordAtATime = false;
+        origin = 0;
+        ended = false;
+        position = 0;
+        type = EOF;
+        start = end = 0;
+        pushedBack = false;
+    }
+
+    /**
+     * Makes this Lexer skip spaces and comments in byte input one byte
+     * at a time, as it does characters, so that <code>LexerBenchmark</code>
+     * can measure what skipping eight at a time gains.
+     */
+    void skipOneByteAtATime() {
+        wordAtATime = false;
+    }
+
+    /**
+     * Scans the next token and returns its type, one of
+     * <code>EOF</code>, <code>EOL</code>, <code>WORD</code>,
+     * <code>NUMBER</code> or <code>SYMBOL</code>.
+     *
+     * @return The type of the next token.
+     */
+    public int next() {
+        if (pushedBack) {
+            pushedBack = false;
+            return type;
+        }
+        int n = limit;
+        int p = position;
+        while (true) {
+            if (p >= n) {
+                position = p;
+                boolean more = refill();
+                p = position;
+                if (!more) return token(EOF, p, p);
+                n = limit;
+                continue;
+            }
+            switch (classOf(at(p))) {
+                case SPACE:
+                    p++;
+                    if (wordAtATime) p = skipSpaces(p, n);
+                    continue;
+                case NEWLINE:
+                    return token(EOL, p, p + 1);
+                case RETURN:
+                    // "\r\n" is a single line end
+                    if (p + 1 < n && at(p + 1) == '\n') {
+                        return token(EOL, p, p + 2);
+                    }
+                    return token(EOL, p, p + 1);
+                case DIGIT:
+                    return scanNumber(p);
+                case ALPHA:
+                    return scanWord(p);
+                case LEAD:
+                    if (isControl(p)) return token(SYMBOL, p, p + 2);
+                    return scanWord(p);
+                case QUOTE:
+                    return scanQuote(p);
+                case SLASH:
+                    if (p + 1 < n && at(p + 1) == '/') {
+                        p = skipLineComment(p + 2);
+                        continue;
+                    }
+                    if (p + 1 < n && at(p + 1) == '*') {
+                        p = skipBlockComment(p + 2);
+                        continue;
+                    }
+                    return token(SYMBOL, p, p + 1);
+                default:
+                    return token(SYMBOL, p, p + 1);
+            }
+        }
+    }
+
+    /**
+     * Causes the next call to <code>next()</code> to return the
+     * current token again. Only one token can be pushed back.
+     */
+    public void pushBack() {
+        pushedBack = true;
+    }
+
+    /**
+     * Returns the type of the current token.
+     * @return The type of the current token.
+     */
+    public int type() {
+        return type;
+    }
+
+    /**
+     * Returns the offset of the first character of the current token.
+     * @return The start offset of the current token.
+     */
+    public int start() {
+        return origin + start;
+    }
+
+    /**
+     * Returns the offset just past the last character of the current token.
+     * @return The end offset of the current token.
+     */
+    public int end() {
+        return origin + end;
+    }
+
+    /**
+     * Returns the numeric value of the current token, which must
+     * be a <code>NUMBER</code>.
+     * @return The value of the current number.
+     */
+    public double number() {
+        return number;
+    }
+
+    /**
+     * Returns the character of the current token, which must be a
+     * <code>SYMBOL</code>. For a quoted string this is the quote mark.
+     * @return The symbol character.
+     */
+    public char symbol() {
+        // A control character is the only symbol of two bytes
+        if (bytes != null && at(start) == 0xc2) return (char) at(start + 1);
+        return (char) at(start);
+    }
+
+    /**
+     * Returns the character at the given offset in the input.
+     * @param offset The offset of the character.
+     * @return The character at that offset.
+     */
+    public char charAt(int offset) {
+        return (char) at(offset - origin);
+    }
+
+    /**
+     * Returns the characters of the current token as a new String.
+     * @return The text of the current token.
+     */
+    public String text() {
+        int length = end - start;
+        if (bytes == null) {
+            return new String(buffer, start, length);
+        }
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start,
+                              length, StandardCharsets.UTF_8);
+        }
+        // Bytes outside the heap: ASCII is copied straight to characters
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            byte b = bytes.get(start + i);
+            if (b < 0) return decode();
+            chars[i] = (char) b;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Tests whether the characters of the current token are exactly
+     * those of the given string, without allocating.
+     * @param s The string to compare against.
+     * @return <code>true</code> if the current token's text equals <code>s</code>.
+     */
+    public boolean textEquals(String s) {
+        if (!isCharPerUnit()) return text().equals(s);
+        int length = end - start;
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (at(start + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code of the characters of the current token, the
+     * same as <code>text().hashCode()</code> but without making a String.
+     * @return The hash code of the current token's text.
+     */
+    public int textHash() {
+        if (!isCharPerUnit()) return text().hashCode();
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + at(i);
+        }
+        return h;
+    }
+
+    /**
+     * Returns the keyword that is the current token, looked up directly
+     * from the characters in the buffer.
+     * @return The keyword, or <code>null</code> if the current token is
+     *         not a keyword.
+     */
+    Token.Keyword keyword() {
+        if (type != WORD) return null;
+        if (bytes != null) return Token.Keyword.of(bytes, start, end);
+        return Token.Keyword.of(buffer, start, end);
+    }
+
+    /**
+     * Returns the Token type of the current token, telling keywords
+     * apart from names.
+     * @return The type of the current token.
+     */
+    public Token.Type tokenType() {
+        switch (type) {
+            case WORD:
+                return keyword() != null ? Token.Type.KEYWORD
+                                         : Token.Type.NAME;
+            case NUMBER: return Token.Type.NUMBER;
+            case EOL: return Token.Type.EOL;
+            case EOF: return Token.Type.EOF;
+            default: return Token.Type.SYMBOL;
+        }
+    }
+
+    /**
+     * Tests whether the current token has the given type and value.
+     * Symbols, names and keywords are compared on the lexer's own
+     * characters, so no Token or String is created.
+     * @param tokenType The expected type.
+     * @param value The expected value; must not be <code>null</code>.
+     * @return <code>true</code> if the current token matches.
+     */
+    public boolean matches(Token.Type tokenType, String value) {
+        switch (type) {
+            case WORD:
+                if (tokenType != Token.Type.KEYWORD
+                        && tokenType != Token.Type.NAME) return false;
+                return textEquals(value)
+                    && (keyword() != null) == (tokenType == Token.Type.KEYWORD);
+            case SYMBOL:
+                return tokenType == Token.Type.SYMBOL && value.length() == 1
+                    && value.charAt(0) == symbol();
+            default:
+                return tokenType == tokenType() && value.equals(token().value());
+        }
+    }
+
+    /**
+     * Makes a Token from the current token. Keywords, symbols and line
+     * ends give the shared Token for that keyword or symbol.
+     * @return The current token as a Token.
+     */
+    public Token token() {
+        switch (type) {
+            case WORD:
+                Token.Keyword keyword = keyword();
+                if (keyword != null) return keyword.token;
+                return new Token(Token.Type.NAME, text());
+            case NUMBER:
+                return new Token(number);
+            case EOL:
+                return Token.EOL_TOKEN;
+            case EOF:
+                return Token.EOF_TOKEN;
+            default:
+                return Token.symbol(symbol());
+        }
+    }
+
+    //------------------------- Private "helper" methods
+
+    /**
+     * Returns the character (or byte) at the given offset in the input.
+     * @param p The offset.
+     * @return The character there, or the byte as an unsigned value.
+     */
+    private int at(int p) {
+        return bytes == null ? buffer[p] : bytes.get(p) & 0xFF;
+    }
+
+    /**
+     * Decodes the UTF-8 bytes of the current token.
+     * @return The text of the current token.
+     */
+    private String decode() {
+        byte[] utf8 = new byte[end - start];
+        for (int i = 0; i < utf8.length; i++) {
+            utf8[i] = bytes.get(start + i);
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the class of a character (or byte) of the input.
+     * @param c The character, or the byte as an unsigned value.
+     * @return The class of the character.
+     */
+    private byte classOf(int c) {
+        return c < 256 ? classes[c] : ALPHA;
+    }
+
+    /**
+     * Tests whether the byte at the given offset, which is 0xc2, begins
+     * a control character, from <code>'\u0080'</code> to
+     * <code>'\u009f'</code>.
+     * @param p The offset of the byte.
+     * @return <code>true</code> if the next byte is from 0x80 to 0x9f.
+     */
+    private boolean isControl(int p) {
+        return p + 1 < limit && (at(p + 1) & 0xe0) == 0x80;
+    }
+
+    /**
+     * Tests whether each character of the current token is one unit of
+     * the input: always true for characters, and true for bytes if they
+     * are all ASCII.
+     * @return <code>true</code> if offsets within the token are
+     *         offsets of characters.
+     */
+    private boolean isCharPerUnit() {
+        if (bytes == null) return true;
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads more input into the buffer, when there is a Reader, keeping
+     * the unscanned characters from the current position on and moving
+     * them to the front. Reading goes on until the buffer holds another
+     * complete line or the input ends; the buffer grows if a line does
+     * not fit.
+     * @return <code>true</code> if there are characters to scan from
+     *         the (possibly moved) current position.
+     * @throws ReadFailure If the Reader throws an IOException.
+     */
+    private boolean refill() {
+        if (reader == null || ended) return false;
+        int kept = filled - position;
+        System.arraycopy(buffer, position, buffer, 0, kept);
+        origin += position;
+        position = 0;
+        filled = kept;
+        int scanned = kept;
+        try {
+            while (true) {
+                if (filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                }
+                int count = reader.read(buffer, filled, buffer.length - filled);
+                if (count < 0) {
+                    ended = true;
+                    limit = filled;
+                    return limit > 0;
+                }
+                filled += count;
+                limit = lineBoundary(scanned);
+                if (limit > 0) return true;
+                scanned = filled;
+            }
+        }
+        catch (IOException e) {
+            throw new ReadFailure(e);
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line in the buffer. A line
+     * end counts only if a token cannot continue past it: a
+     * <code>'\r'</code> must not be the last character read, since a
+     * <code>'\n'</code> may follow, and neither may follow a backslash,
+     * which would escape it inside a quoted string.
+     * @param from Where to stop looking, since no earlier line end counts.
+     * @return The offset just past the line end, or 0 if there is none.
+     */
+    private int lineBoundary(int from) {
+        for (int p = filled - 1; p >= from && p > 0; p--) {
+            char c = buffer[p];
+            if ((c == '\n' || (c == '\r' && p + 1 < filled))
+                    && buffer[p - 1] != '\\') {
+                return p + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records the current token and advances past it.
+     * @param tokenType The type of the token.
+     * @param from The offset of its first character.
+     * @param to The offset just past its last character.
+     * @return The type of the token.
+     */
+    private int token(int tokenType, int from, int to) {
+        type = tokenType;
+        start = from;
+        end = to;
+        position = to;
+        return tokenType;
+    }
+
+    /**
+     * Scans digits with at most one decimal point, computing the value
+     * as it goes.
+     * @param p The offset of the first digit.
+     * @return <code>NUMBER</code>.
+     */
+    private int scanNumber(int p) {
+        final int n = limit;
+        int from = p;
+        double v = 0;
+        int decimals = 0;
+        int seenDot = 0;
+        while (p < n) {
+            int c = at(p);
+            if (c == '.' && seenDot == 0) {
+                seenDot = 1;
+            }
+            else if (c >= '0' && c <= '9') {
+                v = v * 10 + (c - '0');
+                decimals += seenDot;
+            }
+            else break;
+            p++;
+        }
+        if (decimals != 0) {
+            double denominator = 10;
+            while (--decimals > 0) {
+                denominator *= 10;
+            }
+            // One division of the exact digits is the most accurate
+            v = v / denominator;
+        }
+        number = v;
+        return token(NUMBER, from, p);
+    }
+
+    /**
+     * Scans a letter followed by any number of letters and digits.
+     * @param p The offset of the first letter.
+     * @return <code>WORD</code>.
+     */
+    private int scanWord(int p) {
+        final int n = limit;
+        int from = p++;
+        while (p < n) {
+            byte charClass = classOf(at(p));
+            if (charClass == LEAD) {
+                if (isControl(p)) break;
+            }
+            else if (charClass != ALPHA && charClass != DIGIT) break;
+            p++;
+        }
+        return token(WORD, from, p);
+    }
+
+    /**
+     * Scans a quoted string, which ends at the matching quote or at the
+     * end of the line. The string is reported as the quote symbol.
+     * @param p The offset of the opening quote.
+     * @return <code>SYMBOL</code>.
+     */
+    private int scanQuote(int p) {
+        final int n = limit;
+        int from = p++;
+        while (p < n) {
+            int c = at(p);
+            if (c == '"') {
+                p++;
+                break;
+            }
+            if (c == '\n' || c == '\r') break;
+            if (c == '\\' && p + 1 < n) p++;
+            p++;
+        }
+        return token(SYMBOL, from, p);
+    }
+
+    /**
+     * Skips to the end of a <code>//</code> comment, leaving the
+     * line end to be returned as a token.
+     * @param p The offset just after the <code>//</code>.
+     * @return The offset of the line end, or the end of the input.
+     */
+    private int skipLineComment(int p) {
+        final int n = limit;
+        if (wordAtATime) {
+            while (p + 8 <= n) {
+                long word = bytes.getLong(p);
+                long found = zeroBytes(word ^ NEWLINES) | zeroBytes(word ^ RETURNS);
+                if (found != 0) return p + (Long.numberOfTrailingZeros(found) >>> 3);
+                p += 8;
+            }
+        }
+        while (p < n && at(p) != '\n' && at(p) != '\r') {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Skips past the end of a <code>/*</code> comment, including any
+     * line ends inside it. An unclosed comment runs to the end of input.
+     * @param p The offset just after the <code>/*</code>.
+     * @return The offset just past the comment.
+     */
+    private int skipBlockComment(int p) {
+        while (true) {
+            final int n = limit;
+            while (p + 1 < n) {
+                if (wordAtATime) {
+                    p = skipTo(STARS, p, n);
+                    if (p + 1 >= n) break;
+                }
+                if (at(p) == '*' && at(p + 1) == '/') return p + 2;
+                p++;
+            }
+            // The comment may go on in input not yet read
+            position = p;
+            boolean more = refill();
+            p = position;
+            if (!more) return limit;
+        }
+    }
+
+    /**
+     * Skips over spaces in byte input, eight at a time. The last few
+     * bytes of the input are left to the caller.
+     * @param p The offset to start at.
+     * @param n The end of the input.
+     * @return The offset of the first byte that is not a space, or of
+     *         the last word that does not fit in a <code>long</code>.
+     */
+    private int skipSpaces(int p, final int n) {
+        while (p + 8 <= n) {
+            long different = bytes.getLong(p) ^ SPACES;
+            if (different != 0) return p + (Long.numberOfTrailingZeros(different) >>> 3);
+            p += 8;
+        }
+        return p;
+    }
+
+    /**
+     * Skips over byte input, eight bytes at a time, up to a given byte.
+     * The last few bytes of the input are left to the caller.
+     * @param pattern Eight copies of the byte to look for.
+     * @param p The offset to start at.
+     * @param n The end of the input.
+     * @return The offset of the first such byte, or of the last word
+     *         that does not fit in a <code>long</code>.
+     */
+    private int skipTo(long pattern, int p, final int n) {
+        while (p + 8 <= n) {
+            long found = zeroBytes(bytes.getLong(p) ^ pattern);
+            if (found != 0) return p + (Long.numberOfTrailingZeros(found) >>> 3);
+            p += 8;
+        }
+        return p;
+    }
+
+    /**
+     * Marks the zero bytes of a long by setting their high bits. A byte
+     * above a zero byte may be marked falsely, because of the borrow, but
+     * the lowest mark is always right, and that is the one used.
+     * @param word Eight bytes.
+     * @return A long whose lowest set bit, if any, is the high bit of
+     *         the first zero byte of <code>word</code>.
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGH_BITS;
+    }
+
+    /**
+     * The unchecked exception by which a failure to read the input
+     * escapes from <code>next()</code>, holding the IOException. It is
+     * thrown, for the same reason, by every method of a TokenBuffer,
+     * Parser or Recognizer reading from a Reader that lexes more of its
+     * input, such as the <code>isXxx</code> methods, which cannot throw
+     * the IOException itself. <code>getCause</code> returns the
+     * IOException.
+     */
+    public static class ReadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Wraps an IOException thrown by the Reader.
+         * @param cause The exception thrown.
+         */
+        ReadFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package bugs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Times the Lexer on UTF-8 bytes, skipping spaces and comments eight
+ * bytes at a time and then one byte at a time, on a few kinds of input.
+ * Each kind is lexed by the two in turn, many times over, and the best
+ * time of each is reported, as megabytes per second.
+ * <p>
+ * Run it with <code>java bugs.LexerBenchmark [rounds]</code>.
+ */
+final class LexerBenchmark {
+    /** The kinds of input, each a line repeated to make the whole input. */
+    private static final String[][] INPUTS = {
+        {"typical", "    move x + 1 // step\n    color red\n"},
+        {"indented", "                            move x + 1\n"},
+        {"comments", "/* a block comment that runs on for a while */ x\n"
+                     + "// and a line comment, such as documentation\n"},
+        {"dense", "a=b+c*d\n"},
+    };
+    /** How many times each line is repeated. */
+    private static final int LINES = 20000;
+
+    private LexerBenchmark() {}
+
+    /**
+     * Times both ways of skipping on each kind of input.
+     * @param args The number of rounds, if given; 200 by default.
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        System.out.printf("%-10s %12s %12s%n", "input", "8 at a time", "1 at a time");
+        for (String[] input : INPUTS) {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < LINES; i++) {
+                source.append(input[1]);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(source.toString().getBytes(StandardCharsets.UTF_8));
+            long wordTime = Long.MAX_VALUE;
+            long byteTime = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                wordTime = Math.min(wordTime, time(new Lexer(bytes)));
+                Lexer lexer = new Lexer(bytes);
+                lexer.skipOneByteAtATime();
+                byteTime = Math.min(byteTime, time(lexer));
+            }
+            System.out.printf("%-10s %12.1f %12.1f%n", input[0],
+                              rate(bytes.limit(), wordTime), rate(bytes.limit(), byteTime));
+        }
+    }
+
+    /**
+     * Lexes the whole of a Lexer's input.
+     * @param lexer The Lexer.
+     * @return How long it took, in nanoseconds.
+     */
+    private static long time(Lexer lexer) {
+        long start = System.nanoTime();
+        while (lexer.next() != Lexer.EOF) {
+            // only the scanning is timed
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Converts a time to a rate.
+     * @param length The number of bytes lexed.
+     * @param nanos How long it took.
+     * @return Megabytes per second.
+     */
+    private static double rate(int length, long nanos) {
+        return length * 1e3 / nanos;
+    }
+}
@@ -0,0 +1,270 @@
+package bugs;
+
+import static org.junit.Assert.*;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class LexerTest {
+
+    @Test
+    public final void testWordsAndKeywords() {
+        Lexer lexer = new Lexer("abc move x2");
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("abc", lexer.text());
+        assertEquals(Token.Type.NAME, lexer.tokenType());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals(Token.Type.KEYWORD, lexer.tokenType());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("x2", lexer.text());
+        assertEquals(Lexer.EOF, lexer.next());
+    }
+
+    @Test
+    public final void testOffsets() {
+        Lexer lexer = new Lexer("  foo += 12.5");
+        lexer.next();
+        assertEquals(2, lexer.start());
+        assertEquals(5, lexer.end());
+        lexer.next();
+        assertEquals(6, lexer.start());
+        assertEquals(7, lexer.end());
+        lexer.next();
+        assertEquals('=', lexer.symbol());
+        lexer.next();
+        assertEquals(9, lexer.start());
+        assertEquals(13, lexer.end());
+    }
+
+    @Test
+    public final void testNumbers() {
+        Lexer lexer = new Lexer("12 12.5 007 1.2.3 .5 -4");
+        assertEquals(Lexer.NUMBER, lexer.next());
+        assertEquals(12.0, lexer.number(), 0.0);
+        lexer.next();
+        assertEquals(12.5, lexer.number(), 0.0);
+        lexer.next();
+        assertEquals(7.0, lexer.number(), 0.0);
+        lexer.next();
+        assertEquals(1.2, lexer.number(), 0.0);
+        assertEquals(Lexer.SYMBOL, lexer.next());
+        assertEquals('.', lexer.symbol());
+        lexer.next();
+        assertEquals(3.0, lexer.number(), 0.0);
+        assertEquals(Lexer.SYMBOL, lexer.next());
+        assertEquals(Lexer.NUMBER, lexer.next());
+        assertEquals(5.0, lexer.number(), 0.0);
+        assertEquals(Lexer.SYMBOL, lexer.next());
+        assertEquals('-', lexer.symbol());
+        assertEquals(Lexer.NUMBER, lexer.next());
+    }
+
+    @Test
+    public final void testLineEnds() {
+        Lexer lexer = new Lexer("a\nb\r\nc\rd");
+        int[] expected = { Lexer.WORD, Lexer.EOL, Lexer.WORD, Lexer.EOL,
+                           Lexer.WORD, Lexer.EOL, Lexer.WORD, Lexer.EOF };
+        for (int type : expected) {
+            assertEquals(type, lexer.next());
+        }
+    }
+
+    @Test
+    public final void testComments() {
+        Lexer lexer = new Lexer("a // comment \n b /* two \n lines */ c / d");
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals(Lexer.EOL, lexer.next());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("b", lexer.text());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("c", lexer.text());
+        assertEquals(Lexer.SYMBOL, lexer.next());
+        assertEquals('/', lexer.symbol());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals(Lexer.EOF, lexer.next());
+    }
+
+    @Test
+    public final void testPushBack() {
+        Lexer lexer = new Lexer("abc 25");
+        lexer.next();
+        lexer.pushBack();
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("abc", lexer.text());
+        assertEquals(Lexer.NUMBER, lexer.next());
+    }
+
+    @Test
+    public final void testMatches() {
+        Lexer lexer = new Lexer("move foo + 3");
+        lexer.next();
+        assertTrue(lexer.matches(Token.Type.KEYWORD, "move"));
+        assertFalse(lexer.matches(Token.Type.NAME, "move"));
+        lexer.next();
+        assertTrue(lexer.matches(Token.Type.NAME, "foo"));
+        assertFalse(lexer.matches(Token.Type.NAME, "fo"));
+        lexer.next();
+        assertTrue(lexer.matches(Token.Type.SYMBOL, "+"));
+        assertFalse(lexer.matches(Token.Type.SYMBOL, "-"));
+        lexer.next();
+        assertTrue(lexer.matches(Token.Type.NUMBER, "3.0"));
+    }
+
+    @Test
+    public final void testToken() {
+        Lexer lexer = new Lexer("color red 5 * \n");
+        assertEquals(new Token(Token.Type.KEYWORD, "color"), next(lexer));
+        assertEquals(new Token(Token.Type.KEYWORD, "red"), next(lexer));
+        assertEquals(new Token(Token.Type.NUMBER, "5.0"), next(lexer));
+        assertEquals(new Token(Token.Type.SYMBOL, "*"), next(lexer));
+        assertEquals(new Token(Token.Type.EOL, "\n"), next(lexer));
+        assertEquals(new Token(Token.Type.EOF, "EOF"), next(lexer));
+    }
+
+    @Test
+    public final void testBytesLexLikeCharacters() {
+        String[] sources = {
+            "Bug fred {\r\n  move 12.5 // comment\n  x = y+.5*(3 - z)\n}\n",
+            "a /* long \n comment */ b \"quoted\" c != d <= 2.",
+            "caf\u00e9 = na\u00efve + \u65e5\u672c\n",
+            "" };
+        for (String source : sources) {
+            Lexer chars = new Lexer(source);
+            Lexer bytes = new Lexer(utf8(source));
+            while (true) {
+                int type = chars.next();
+                assertEquals(type, bytes.next());
+                assertEquals(chars.token(), bytes.token());
+                assertEquals(chars.tokenType(), bytes.tokenType());
+                assertEquals(chars.textHash(), bytes.textHash());
+                if (type == Lexer.EOF) break;
+            }
+        }
+    }
+
+    @Test
+    public final void testBytesSkipLikeCharacters() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < i; j++) source.append(' ');
+            source.append("x //");
+            for (int j = 0; j < i; j++) source.append('*');
+            source.append(i % 2 == 0 ? "\n" : "\r\n").append("/*");
+            for (int j = 0; j < i; j++) source.append(j % 3 == 0 ? '*' : '/');
+            source.append("*/").append(i).append('\t');
+        }
+        source.append("/* unclosed *");
+        for (boolean eightAtATime : new boolean[] {true, false}) {
+            Lexer chars = new Lexer(source);
+            Lexer bytes = new Lexer(utf8(source.toString()));
+            if (!eightAtATime) bytes.skipOneByteAtATime();
+            while (true) {
+                int type = chars.next();
+                assertEquals(type, bytes.next());
+                assertEquals(chars.token(), bytes.token());
+                assertEquals(chars.start(), bytes.start());
+                if (type == Lexer.EOF) break;
+            }
+        }
+    }
+
+    @Test
+    public final void testBytes() {
+        Lexer lexer = new Lexer(utf8("\ufeffmove \u00e9t\u00e9 2"));
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals(Token.Keyword.MOVE, lexer.keyword());
+        assertEquals(3, lexer.start());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("\u00e9t\u00e9", lexer.text());
+        assertTrue(lexer.textEquals("\u00e9t\u00e9"));
+        assertEquals(8, lexer.start());
+        assertEquals(13, lexer.end());
+        assertEquals(Lexer.NUMBER, lexer.next());
+        assertEquals(2.0, lexer.number(), 0.0);
+    }
+
+    @Test
+    public final void testBytesControlCharacters() {
+        String source = "a\u0085b \u009f\u00c2\u0080\u00c2x \u00a0\u0080";
+        Lexer chars = new Lexer(source);
+        Lexer bytes = new Lexer(utf8(source));
+        int count = 0;
+        while (true) {
+            int type = chars.next();
+            assertEquals(type, bytes.next());
+            assertEquals(chars.token(), bytes.token());
+            assertEquals(chars.text(), bytes.text());
+            if (type == Lexer.EOF) break;
+            count++;
+        }
+        assertEquals(9, count);
+    }
+
+    @Test
+    public final void testReaderLexesLikeCharacters() {
+        StringBuilder longLine = new StringBuilder("x");
+        for (int i = 0; i < 20000; i++) longLine.append('y');
+        String[] sources = {
+            "Bug fred {\r\n  move 12.5 // comment\n  x = y+.5*(3 - z)\n}\n",
+            "a /* long \n comment\n\n */ b \"quo\\\nted\" c != d <= 2.",
+            "one\rtwo\r\nthree\r",
+            longLine + " 1\n2",
+            "" };
+        for (String source : sources) {
+            for (int chunk : new int[] {1, 3, 100000}) {
+                Lexer chars = new Lexer(source);
+                Lexer reader = new Lexer(trickle(source, chunk));
+                while (true) {
+                    int type = chars.next();
+                    assertEquals(type, reader.next());
+                    assertEquals(chars.token(), reader.token());
+                    assertEquals(chars.start(), reader.start());
+                    assertEquals(chars.end(), reader.end());
+                    if (type == Lexer.EOF) break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a Reader that gives out at most <code>chunk</code>
+     * characters of the given string at a time.
+     */
+    private Reader trickle(String s, final int chunk) {
+        return new FilterReader(new StringReader(s)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(chunk, length));
+            }
+        };
+    }
+
+    @Test
+    public final void testBytesOutsideTheHeap() {
+        byte[] source = "move na\u00efve x".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(source.length);
+        direct.put(source).flip();
+        Lexer lexer = new Lexer(direct);
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("move", lexer.text());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("na\u00efve", lexer.text());
+        assertEquals(Lexer.WORD, lexer.next());
+        assertEquals("x", lexer.text());
+    }
+
+    private ByteBuffer utf8(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Token next(Lexer lexer) {
+        lexer.next();
+        return lexer.token();
+    }
+}
@@ -0,0 +1,72 @@
+package bugs;
+
+/**
+ * Receives the steps of building the Tree of what is parsed, as the
+ * <code>Parser</code> takes them, so that a program can be analysed
+ * without its Tree ever being made.
+ * <p>
+ * As the Parser starts and finishes each rule of the grammar, such as
+ * <code>colorStatement</code>, it calls <code>enterNode</code> and
+ * <code>exitNode</code>, which nest, and between them
+ * <code>token</code> for each token kept. A listener that only counts,
+ * say, the <code>color</code> commands, or the functions called, needs
+ * nothing else. Those calls are made whether the rules build Trees or
+ * not; the rest tell how the Trees are built.
+ * <p>
+ * The Tree is built bottom up, on a stack of nodes, in the same way as
+ * <code>Bugs.grammar</code> describes: each token kept becomes a node
+ * of its own, and some of the top nodes are then made children of
+ * another of them. A listener that needs to know what each node ends up
+ * holding can keep its own stack, of whatever it likes.
+ * <code>TreeStack</code> is the listener that keeps the Trees
+ * themselves, and ignores the rules.
+ * <p>
+ * Nodes are counted from the top of the stack, the top being 1.
+ *
+ * @see Parser#setListener(ParseListener)
+ */
+public interface ParseListener {
+    /**
+     * Called when the Parser starts on a rule, before any of its tokens.
+     * @param rule The name of the rule, as in <code>Bugs.grammar</code>.
+     */
+    void enterNode(String rule);
+
+    /**
+     * Called when the Parser has finished with the rule it last started
+     * on that is not finished. Every <code>enterNode</code> is matched by
+     * one <code>exitNode</code>, unless a <code>SyntaxException</code>
+     * is thrown.
+     * @param rule The name of the rule.
+     * @param parsed <code>false</code> if the rule was not there after
+     *        all, or had an error that was recovered from.
+     */
+    void exitNode(String rule, boolean parsed);
+
+    /**
+     * Called when a token becomes a node on top of the stack: a token
+     * read, or one that the grammar supplies, such as <code>list</code>
+     * or <code>block</code>. Most punctuation that is not kept in the
+     * Tree, such as braces, is never passed on; line ends are passed on
+     * and then discarded.
+     * @param token The token.
+     */
+    void token(Token token);
+
+    /**
+     * Called when some of the nodes on top of the stack are made the
+     * children of another of them, which takes their place on the
+     * stack. The node given as the root may already have children, in
+     * which case these are added after them. The root and the children
+     * are together the top <code>children.length + 1</code> nodes.
+     * @param root The node that becomes the parent.
+     * @param children The nodes that become its children, in order;
+     *        the array is the listener's own.
+     */
+    void reduce(int root, int... children);
+
+    /**
+     * Called when the node on top of the stack is thrown away.
+     */
+    void discard();
+}
@@ -1,49 +1,253 @@
 package bugs;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
-import java.util.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import tree.Tree;
 
 /**
  * Parser for numeric expressions. Used as starter code for
  * the Bugs language parser in CIT594, Spring 2015.
+ * <p>
+ * The grammar, and the Trees built for it, are written down once in
+ * <code>Bugs.grammar</code>. Each <code>isXxx</code> method runs the
+ * corresponding rule on a table-driven <code>Engine</code>.
  * 
  * @author Dave Matuszek
  * @version February 2015
  */
 public class Parser {
-    /** The tokenizer used by this Parser. */
-    StreamTokenizer tokenizer = null;
-    /** The number of the line of source code currently being processed. */
-    private int lineNumber = 1;
+    /** The tokens being parsed. */
+    TokenBuffer tokens = null;
 
     /**
      * The stack used for holding Trees as they are created.
      */
-    public Stack<Tree<Token>> stack = new Stack<>();
+    public TreeStack stack = new TreeStack();
+
+    // The rules of the grammar, one for each isXxx method
+    private static final Grammar GRAMMAR = Grammar.BUGS;
+    static final int EXPRESSION = GRAMMAR.rule("expression");
+    static final int ARITHMETIC_EXPRESSION = GRAMMAR.rule("arithmeticExpression");
+    static final int TERM = GRAMMAR.rule("term");
+    static final int FACTOR = GRAMMAR.rule("factor");
+    static final int UNSIGNED_FACTOR = GRAMMAR.rule("unsignedFactor");
+    static final int PARAMETER_LIST = GRAMMAR.rule("parameterList");
+    static final int ADD_OPERATOR = GRAMMAR.rule("addOperator");
+    static final int MULTIPLY_OPERATOR = GRAMMAR.rule("multiplyOperator");
+    static final int VARIABLE = GRAMMAR.rule("variable");
+    static final int COMPARATOR = GRAMMAR.rule("comparator");
+    static final int PROGRAM = GRAMMAR.rule("program");
+    static final int ALLBUGS_CODE = GRAMMAR.rule("allbugsCode");
+    static final int BUG_DEFINITION = GRAMMAR.rule("bugDefinition");
+    static final int VAR_DECLARATION = GRAMMAR.rule("varDeclaration");
+    static final int INITIALIZATION_BLOCK = GRAMMAR.rule("initializationBlock");
+    static final int COMMAND = GRAMMAR.rule("command");
+    static final int STATEMENT = GRAMMAR.rule("statement");
+    static final int ACTION = GRAMMAR.rule("action");
+    static final int MOVE_ACTION = GRAMMAR.rule("moveAction");
+    static final int MOVE_TO_ACTION = GRAMMAR.rule("moveToAction");
+    static final int TURN_ACTION = GRAMMAR.rule("turnAction");
+    static final int TURN_TO_ACTION = GRAMMAR.rule("turnToAction");
+    static final int LINE_ACTION = GRAMMAR.rule("lineAction");
+    static final int ASSIGNMENT_STATEMENT = GRAMMAR.rule("assignmentStatement");
+    static final int LOOP_STATEMENT = GRAMMAR.rule("loopStatement");
+    static final int EXIT_IF_STATEMENT = GRAMMAR.rule("exitIfStatement");
+    static final int SWITCH_STATEMENT = GRAMMAR.rule("switchStatement");
+    static final int RETURN_STATEMENT = GRAMMAR.rule("returnStatement");
+    static final int DO_STATEMENT = GRAMMAR.rule("doStatement");
+    static final int COLOR_STATEMENT = GRAMMAR.rule("colorStatement");
+    static final int BLOCK = GRAMMAR.rule("block");
+    static final int FUNCTION_DEFINITION = GRAMMAR.rule("functionDefinition");
+    static final int FUNCTION_CALL = GRAMMAR.rule("functionCall");
+    static final int EOL = GRAMMAR.rule("eol");
+
+    /** Runs the grammar, building Trees on the stack. */
+    private final Engine engine;
+
+    /** The errors recovered from, or <code>null</code> if not recovering. */
+    private List<SyntaxException> errors = null;
+
+    /** What is told how the Trees are built, or <code>null</code> to build them on the stack. */
+    private ParseListener listener = null;
+
+    /** The Parser that <code>pooled</code> reuses on each thread. */
+    private static final ThreadLocal<Parser> POOL = new ThreadLocal<Parser>() {
+        @Override
+        protected Parser initialValue() {
+            return new Parser("");
+        }
+    };
 
     /**
      * Constructs a Parser for the given string.
      * @param text The string to be parsed.
      */
     public Parser(String text) {
-        Reader reader = new StringReader(text);
-        tokenizer = new StreamTokenizer(reader);
-        tokenizer.parseNumbers();
-        tokenizer.eolIsSignificant(true);
-        tokenizer.slashStarComments(true);
-        tokenizer.slashSlashComments(true);
-        tokenizer.lowerCaseMode(false);
-        tokenizer.ordinaryChars(33, 47);
-        tokenizer.ordinaryChars(58, 64);
-        tokenizer.ordinaryChars(91, 96);
-        tokenizer.ordinaryChars(123, 126);
-        tokenizer.quoteChar('\"');
-        lineNumber = 1;
+        tokens = new TokenBuffer(text);
+        engine = new Engine(GRAMMAR, tokens);
+    }
+
+    /**
+     * Constructs a Parser for a UTF-8 encoded program, such as one
+     * received over a socket, without first decoding it into a String.
+     * The bytes are lexed in place, and only words that are not ASCII
+     * are ever decoded; offsets are byte offsets.
+     * @param utf8 The program to be parsed.
+     */
+    public Parser(byte[] utf8) {
+        this(ByteBuffer.wrap(utf8));
+    }
+
+    /**
+     * Constructs a Parser for the UTF-8 encoded bytes between the
+     * position and the limit of the given buffer, as
+     * <code>Parser(byte[])</code> does. The bytes must not change while
+     * they are being parsed.
+     * @param utf8 The program to be parsed.
+     */
+    public Parser(ByteBuffer utf8) {
+        tokens = new TokenBuffer(utf8);
+        engine = new Engine(GRAMMAR, tokens);
+    }
+
+    /**
+     * Constructs a Parser for the UTF-8 encoded file at the given path.
+     * The file is memory-mapped and lexed in place, and tokens are
+     * discarded once they have been read, so heap use does not grow
+     * with the size of the file.
+     * @param path The file to be parsed.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public Parser(Path path) throws IOException {
+        tokens = new TokenBuffer(path);
+        engine = new Engine(GRAMMAR, tokens);
+        tokens.setLookbehind(1); // only one token is ever pushed back
+    }
+
+    /**
+     * Constructs a Parser that reads the program from the given Reader,
+     * a chunk at a time, as it is parsed. Tokens are discarded once they
+     * have been read; with <code>isProgram(DefinitionHandler)</code>,
+     * memory use then depends on the largest single definition, not on
+     * the length of the program. The Reader is not closed. If it throws
+     * an IOException, the <code>isXxx</code> method reading from it
+     * throws a <code>Lexer.ReadFailure</code> holding the IOException;
+     * <code>isProgram(DefinitionHandler)</code> throws the IOException
+     * itself.
+     * @param reader Where the program comes from.
+     */
+    public Parser(Reader reader) {
+        tokens = new TokenBuffer(reader);
+        engine = new Engine(GRAMMAR, tokens);
+        tokens.setLookbehind(1);
+    }
+
+    /**
+     * Constructs a Parser that reads a UTF-8 encoded program from the
+     * given stream, as <code>Parser(Reader)</code> does.
+     * @param in Where the program comes from.
+     */
+    public Parser(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Makes this Parser start again on the given string, as if it had
+     * just been constructed for it. Its token buffer and stack keep
+     * their capacity, so parsing many small programs with one Parser
+     * allocates little more than the Trees it builds. The interner, if
+     * any, is kept, and so is error recovery, but the errors recorded
+     * are forgotten; a list of them already returned by
+     * <code>getErrors</code> is left as it was.
+     * @param text The string to be parsed.
+     */
+    public void reset(CharSequence text) {
+        tokens.setInput(text);
+        stack.clear();
+        if (errors != null) errors = new ArrayList<>();
+    }
+
+    /**
+     * Returns this thread's Parser, reset to parse the given string.
+     * Each thread has one such Parser, which is reused by every call on
+     * that thread, so it must not be used after the next call; the Trees
+     * it has built remain valid. Interning, error recovery and any
+     * listener are turned off.
+     * @param text The string to be parsed.
+     * @return A Parser for <code>text</code>.
+     */
+    public static Parser pooled(CharSequence text) {
+        Parser parser = POOL.get();
+        parser.reset(text);
+        parser.setInterner(null);
+        parser.setListener(null);
+        parser.setRecovery(false);
+        return parser;
+    }
+
+    /**
+     * Turns error recovery on or off. While it is on, a syntax error in
+     * a command or a Bug definition does not end the parse: the error is
+     * recorded, the Parser skips to the end of the line (or of the
+     * braces opened on it), or to the next Bug definition, and the
+     * command or definition is replaced in the Tree by a node whose
+     * Token has type <code>ERROR</code> and the error's detail as its
+     * value. A whole program can then be checked in one pass. Errors
+     * elsewhere are still thrown. Turning recovery on clears the
+     * recorded errors.
+     * @param on <code>true</code> to recover from errors.
+     */
+    public void setRecovery(boolean on) {
+        errors = on ? new ArrayList<SyntaxException>() : null;
+    }
+
+    /**
+     * Returns the errors recovered from since recovery was turned on,
+     * in the order they were found.
+     * @return The errors, or an empty list if recovery is off.
+     */
+    public List<SyntaxException> getErrors() {
+        if (errors == null) return new ArrayList<>();
+        return errors;
+    }
+
+    /**
+     * Turns interning on or off. While it is on, every subtree the Parser
+     * finishes is replaced by an equal one from the given table, so that
+     * repeated subtrees (<code>move 1.0</code>, <code>x + 1.0</code>, and
+     * so on) are stored once and can be compared by reference. The Trees
+     * built are equal to those built without interning, but share nodes,
+     * which cannot be changed.
+     * @param interner The table of shared subtrees, or <code>null</code>
+     *        to turn interning off.
+     */
+    public void setInterner(TreeInterner interner) {
+        stack.setInterner(interner);
+    }
+
+    /**
+     * Sets what the <code>isXxx</code> methods tell how the Trees of what
+     * they parse are built, instead of building them on the stack. A
+     * listener that only gathers facts, such as how often each color is
+     * used, lets a program be analysed without any Tree being made. The
+     * stack itself is the listener that builds the Trees. The listener
+     * is also told as each rule of the grammar is entered and exited.
+     * Error nodes are passed on as tokens, when recovering from errors,
+     * and the rule recovered from is exited as not parsed.
+     * <code>isProgram(DefinitionHandler)</code> always uses the stack.
+     * @param listener The listener, or <code>null</code> to build the
+     *        Trees on the stack again.
+     */
+    public void setListener(ParseListener listener) {
+        this.listener = listener;
     }
 
     /**
@@ -55,12 +259,7 @@ public class Parser {
      * @return <code>true</code> if an expression is parsed.
      */
     public boolean isExpression() {
-        if (!isArithmeticExpression()) return false;
-        while (isComparator()) {
-            if (!isArithmeticExpression()) error("Illegal expression after comparator");
-            makeTree(2, 3, 1);
-        }
-        return true;
+        return parse(EXPRESSION);
     }
 
     /**
@@ -71,13 +270,7 @@ public class Parser {
      * @return <code>true</code> if an expression is recognized.
      */
     public boolean isArithmeticExpression() {
-        if (!isTerm())
-            return false;
-        while (isAddOperator()) {
-            if (!isTerm()) error("Error in expression after '+' or '-'");
-            makeTree(2, 3, 1);
-        }
-        return true;
+        return parse(ARITHMETIC_EXPRESSION);
     }
 
     /**
@@ -89,16 +282,7 @@ public class Parser {
      */
 
     public boolean isTerm() {
-        if (!isFactor()) {
-            return false;
-        }
-        while (isMultiplyOperator()) {
-            if (!isFactor()) {
-                error("No term after '*' or '/'");
-            }
-            makeTree(2, 3, 1);
-        }
-        return true;
+        return parse(TERM);
     }
 
     /**
@@ -110,15 +294,7 @@ public class Parser {
      * @return <code>true</code> if a factor is parsed.
      */
     public boolean isFactor() {
-        if(symbol("+") || symbol("-")) {
-            if (isUnsignedFactor()) {
-                makeTree(2, 1);
-                return true;
-            }
-            error("No factor following unary plus or minus");
-            return false; // Can't ever get here
-        }
-        return isUnsignedFactor();
+        return parse(FACTOR);
     }
 
     /**
@@ -134,40 +310,7 @@ public class Parser {
      * @return <code>true</code> if a factor is parsed.
      */
     public boolean isUnsignedFactor() {
-        if (name()) {
-            if (symbol(".")) {
-                // reference to another Bug
-                if (name()) {
-                    makeTree(2, 3, 1);
-                }
-                else error("Incorrect use of dot notation");
-            }
-            else if (isParameterList()) {
-                // function call
-                pushNewNode("call");
-                makeTree(1, 3, 2);
-            }
-            else {
-                // just a variable; leave it on the stack
-            }
-        }
-        else if (number()) {
-            // leave the number on the stack
-        }
-        else if (symbol("(")) {
-            stack.pop();
-            if (!isExpression()) {
-                error("Error in parenthesized expression");
-            }
-            if (!symbol(")")) {
-                error("Unclosed parenthetical expression");
-            }
-            stack.pop();
-        }
-        else {
-            return false;
-        }
-       return true;
+        return parse(UNSIGNED_FACTOR);
     }
     
     /**
@@ -176,20 +319,7 @@ public class Parser {
      * @return <code>true</code> if a parameter list is parsed.
      */
     public boolean isParameterList() {
-        if (!symbol("(")) return false;
-        stack.pop(); // remove open paren
-        pushNewNode("var");
-        if (isExpression()) {
-            makeTree(2, 1);
-            while (symbol(",")) {
-                stack.pop(); // remove comma
-                if (!isExpression()) error("No expression after ','");
-                makeTree(2, 1);
-            }
-        }
-        if (!symbol(")")) error("Parameter list doesn't end with ')'");
-        stack.pop(); // remove close paren
-        return true;
+        return parse(PARAMETER_LIST);
     }
 
     /**
@@ -198,7 +328,7 @@ public class Parser {
      * @return <code>true</code> if an addop is recognized.
      */
     public boolean isAddOperator() {
-        return symbol("+") || symbol("-");
+        return parse(ADD_OPERATOR);
     }
 
     /**
@@ -207,7 +337,7 @@ public class Parser {
      * @return <code>true</code> if a multiply_operator is recognized.
      */
     public boolean isMultiplyOperator() {
-        return symbol("*") || symbol("/");
+        return parse(MULTIPLY_OPERATOR);
     }
     
     /**
@@ -216,7 +346,7 @@ public class Parser {
      * @return <code>true</code> if a variable is parsed.
      */
     public boolean isVariable() {
-        return name();
+        return parse(VARIABLE);
     }
     /**
      * Tries to build a &lt;comparator&gt; on the global stack
@@ -224,27 +354,7 @@ public class Parser {
      * @return <code>true</code> if a comparator is parsed.
      */
     public boolean isComparator() {
-    	if(symbol("<")||symbol(">")||symbol("!")){
-    		
-    		if(symbol("=")) {
-    			
-    			stack.pop();
-    			Tree<Token> s = stack.pop();
-    			Token tok = s.getValue();
-    			String str = tok.toStringHelper();
-    			String ss  = (str).concat("=");
-    			pushNewNode(ss);
-    			return true;
-    		}
-    		else return true;
-    	}
-    	else if(symbol("=")){
-    		return true;
-    	}
-    	return false;
-    		
-	//	return symbol("<")||symbol(">")||symbol(">=")||symbol("<=")||symbol("=")||symbol("!=");
-    	
+        return parse(COMPARATOR);
     }
     /**
      * Tries to build a &lt;program&gt; on the global stack
@@ -252,37 +362,52 @@ public class Parser {
      * A <code>SyntaxException</code> will be thrown if an allbugs code is present not followed by  a &lt;bugs definition&gt;
      * @return <code>true</code> if a program is parsed.
      */
-    public boolean isProgram(){
-    	//pushNewNode("Allbugs");
-    	if(isAllbugsCode()){
-    		//stack.pop();
-    		if(!isBugDefinition()) error("Bugs Definition not found");
-    		pushNewNode("list");
-    		makeTree(1,2);
-    	}
-    	else {
-    	pushNewNode("Allbugs");
-    	if(!isBugDefinition()) 
-    		return false;
-    	
-    	pushNewNode("list");
-    	makeTree(1,2);
-    	
-    	}
-    	while(true){
-    		if(isBugDefinition()) {
-    			makeTree(2,1);
-    			continue;
-    		}
-    		
-    		else  break;
-    	}
-    	if(!eof()) error("Early terminaton of the program, end of program not recognized");
-    	stack.pop();
-    	pushNewNode("program");
-    	makeTree(1,3,2);
-    	return true;
+    public boolean isProgram() {
+        return parse(PROGRAM);
     }
+
+    /**
+     * Tries to parse a &lt;program&gt;, as <code>isProgram()</code> does,
+     * but hands each definition to the given handler as soon as it is
+     * complete instead of building a Tree of the whole program. Nothing
+     * is left on the stack.
+     * <p>
+     * If the program has no Allbugs code, an empty <code>Allbugs</code>
+     * node is handed over before the first Bug definition, just as
+     * <code>isProgram()</code> puts one in its Tree. Definitions before a
+     * syntax error have already been handed over when the
+     * <code>SyntaxException</code> is thrown.
+     * @param handler What to do with each definition.
+     * @return <code>true</code> if a program is parsed.
+     * @throws IOException If the program cannot be read.
+     */
+    public boolean isProgram(DefinitionHandler handler) throws IOException {
+        try {
+            if (engine.parse(ALLBUGS_CODE, stack, errors, false)) {
+                handler.definition(stack.pop());
+                if (!isBugDefinitionOrRecover()) {
+                    error("Bugs Definition not found", Token.Keyword.BUG.ordinal());
+                }
+            }
+            else {
+                if (!isBugDefinitionOrRecover()) return false;
+                handler.definition(new Tree<>(Token.valueOf("Allbugs")));
+            }
+            do {
+                handler.definition(stack.pop());
+            } while (isBugDefinitionOrRecover());
+            if (!tokens.matches(Token.Type.EOF)) {
+                error("Early terminaton of the program, end of program not recognized",
+                      Grammar.EOF);
+            }
+            tokens.skip();
+            return true;
+        }
+        catch (Lexer.ReadFailure e) {
+            throw e.getCause();
+        }
+    }
+
     /**
      * Tries to build an &lt;allbugs code&gt; on the global stack
      * <pre> &lt;allbugs code&gt; ::= "Allbugs" "{" &lt;eol&gt;
@@ -294,39 +419,8 @@ public class Parser {
      * @return <code>true</code> if an allbugs code is parsed.
      */
     
-    public boolean isAllbugsCode(){
-    	if(!keyword("Allbugs")) return false;
- //  	stack.pop();
- //   	pushNewNode("Allbugs");
-//    	makeTree(1,3,2);
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	stack.pop();
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	pushNewNode("list");
-    	while(true){
-    		if(isVarDeclaration()){
-    			
-    			makeTree(2,1);
-    			continue;
-    		}
-    		else  break;
-    	}
-    	pushNewNode("list");
-    	while(true){
-    			if(isFunctionDefinition()) {
-    			makeTree(2,1);
-    			continue;
-    		}
-    		else  break;
-    	}
-    	if(!symbol("}")) error("Missing closed braces '}'");
-    	stack.pop();
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	//pushNewNode("Allbugs");
-    	makeTree(3,2,1);
-    	return true;
+    public boolean isAllbugsCode() {
+        return parse(ALLBUGS_CODE);
     }
     /**
      * Tries to build a &lt;bugs definition&gt; on the global stack
@@ -341,65 +435,8 @@ public class Parser {
      * followed by a name, open braces and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a bug definition is parsed.
      */
-    public boolean isBugDefinition(){
-    	if(!keyword("Bug")) return false;
-//      stack.pop();
-//    	pushNewNode("Bug");
-    	if(!name()) error("syntax error :  no bug name found");
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	stack.pop();
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	makeTree(2,1);
-    	pushNewNode("list");
-    	while(true){
-    		if(isVarDeclaration()) {
-    		//	pushNewNode("list");
-    			makeTree(2,1);
-    			continue;
-    		}
-    		else  break;
-    	}
-    	makeTree(2,1);
-    	
-    	if(isInitializationBlock()){
-    		//stack.pop();
-    		makeTree(2,1);
-    		if(!isCommand()) error("command not found");
-    		pushNewNode("block");
-    		makeTree(1,2);
-    	}
-    	else{
-    	pushNewNode("initially");
-        makeTree(2,1);
-    	if(!isCommand()) error("command not found");
-    	pushNewNode("block");
-		makeTree(1,2);
-    	}
-    	while(true){
-    		if(isCommand()) {
-    			makeTree(2,1);
-    			continue;
-    		}
-    		
-    		else  break;
-    	}
-    	makeTree(2,1);
-    	pushNewNode("list");
-    	while(true){
-    		if(isFunctionDefinition()) {
-    			//pushNewNode("list");
-    			makeTree(2,1);
-    			continue;
-    		}
-    		else  break;
-    	}
-    	if(!symbol("}")) error(" Missing close braces '{'");
-    	stack.pop();
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	makeTree(2,1);
-    	return true;
+    public boolean isBugDefinition() {
+        return parse(BUG_DEFINITION);
     }
 
     /**
@@ -409,18 +446,8 @@ public class Parser {
      * followed by a name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a var definition is parsed.
      */
-    public boolean isVarDeclaration(){
-    	if(!keyword("var")) return false;
-    	if(!name()) error("syntax error :  no variable name found");
-    	makeTree(2,1);
-    	while(symbol(",")){
-    		stack.pop();
-    		if(!name()) error("Syntax error : no name after ','");
-    		makeTree(2,1);
-    	}
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isVarDeclaration() {
+        return parse(VAR_DECLARATION);
     }
     
     /**
@@ -430,23 +457,19 @@ public class Parser {
      * followed by a &lt;block&gt; 
      * @return <code>true</code> if a initialization block is parsed.
      */
-    public boolean isInitializationBlock(){
-    	if(!keyword("initially")) return false;
-    	if(!isBlock()) error("syntax error :  no initializaton found");
-    	makeTree(2,1);
-    	return true;
+    public boolean isInitializationBlock() {
+        return parse(INITIALIZATION_BLOCK);
     }
     /**
      * Tries to build a &lt;command&gt; on the global stack
      * <pre> &lt;command&gt; ::=  &lt;action&gt;
      *                            | &lt;statement &gt; </pre>
+     * The kind of command is chosen from its first token alone.
      * @return <code>true</code> if a initialization block is parsed.
      */
     
-    public boolean isCommand(){
-    	if(!(isAction()||isStatement())) return false;
-    	return true;
-    	
+    public boolean isCommand() {
+        return parse(COMMAND);
     }
     
     /**
@@ -458,11 +481,11 @@ public class Parser {
      *                           | &lt;return statement&gt;
      *                           | &lt;do statement&gt;
      *                           | &lt;color statement&gt; </pre>
+     * The kind of statement is chosen from its first token alone.
      * @return <code>true</code> if a ststement is parsed.
      */
-    public boolean isStatement(){
-    	if(!(isAssignmentStatement()||isLoopStatement()||isExitIfStatement()||isSwitchStatement()||isReturnStatement()||isDoStatement()||isColorStatement())) return false;
-    	return true;
+    public boolean isStatement() {
+        return parse(STATEMENT);
     }
     /**
      * Tries to build a &lt;action&gt; on the global stack.
@@ -471,11 +494,11 @@ public class Parser {
      *                        | &lt;turn action &gt;
      *                        | &lt;turnto action &gt;
      *                        | &lt;line action &gt; </pre>
+     * The kind of action is chosen from its first token alone.
      * @return <code>true</code> if an action is parsed.
      */
-    public boolean isAction(){
-    	if(!(isMoveAction()||isMoveToAction()||isTurnAction()||isTurnToAction()||isLineAction())) return false;
-    	return true;
+    public boolean isAction() {
+        return parse(ACTION);
     }
     /**
      * Tries to build a &lt;move action&gt; on the global stack
@@ -485,13 +508,8 @@ public class Parser {
      * @return <code>true</code> if a move action is parsed.
      */
     
-    public boolean isMoveAction(){
-    	if(!keyword("move")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isMoveAction() {
+        return parse(MOVE_ACTION);
     }
     /**
      * Tries to build a &lt;moveto action&gt; on the global stack
@@ -500,16 +518,8 @@ public class Parser {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a moveto action is parsed.
      */
-    public boolean isMoveToAction(){
-     	if(!keyword("moveto")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	stack.pop();
-    	if(!isExpression()) error("Incomplete move to action");
-    	makeTree(3,2,1);
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	stack.pop();
-    	return true;
+    public boolean isMoveToAction() {
+        return parse(MOVE_TO_ACTION);
     }
     /**
      * Tries to build a &lt;turn action&gt; on the global stack.
@@ -518,13 +528,8 @@ public class Parser {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a turn action is parsed.
      */
-    public boolean isTurnAction(){
-    	if(!keyword("turn")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isTurnAction() {
+        return parse(TURN_ACTION);
     }
     /**
      * Tries to build a &lt;turnto action&gt; on the global stack.
@@ -533,13 +538,8 @@ public class Parser {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a turnto action is parsed.
      */
-    public boolean isTurnToAction(){
-    	if(!keyword("turnto")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-      	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isTurnToAction() {
+        return parse(TURN_TO_ACTION);
     }
     /**
      * Tries to build a &lt;line action&gt; on the global stack.
@@ -548,25 +548,8 @@ public class Parser {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a line action is parsed.
      */
-    public boolean isLineAction(){
-    	if(!keyword("line")) return false;
-    	if(!isExpression()) error("Expression not found");
-    	makeTree(2,1);
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	stack.pop();
-    	if(!isExpression()) error("Expression not found");
-    	makeTree(2,1);
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	stack.pop();
-    	if(!isExpression()) error("Expression not found");
-    	makeTree(2,1);
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	stack.pop();
-    	if(!isExpression()) error("Expression not found");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	stack.pop();
-    	return true;
+    public boolean isLineAction() {
+        return parse(LINE_ACTION);
     }
     /**
      * Tries to build a &lt;assignment statement&gt; on the global stack
@@ -575,17 +558,8 @@ public class Parser {
      * followed by a "=" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an assignment statement is parsed.
      */
-    public boolean isAssignmentStatement(){
-    	if(!isVariable())return false;
-    	pushNewNode("assign");
-    	makeTree(1,2);
-    	if(!symbol("=")) error("Incomplete assignment statement, expected an expression");
-     	stack.pop();
-    	if(!isExpression()) error("expression not found after assignment");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isAssignmentStatement() {
+        return parse(ASSIGNMENT_STATEMENT);
     }
     /**
      * Tries to build a &lt;loop statement&gt; on the global stack.
@@ -594,11 +568,8 @@ public class Parser {
      * followed by a block.
      * @return <code>true</code> if a loop statement action is parsed.
      */
-    public boolean isLoopStatement(){
-    	if(!keyword("loop")) return false;
-    	if(!isBlock()) error("Incomplete loop");
-    	makeTree(2,1);
-    	return true;
+    public boolean isLoopStatement() {
+        return parse(LOOP_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;exit if statement&gt; on the global stack.
@@ -607,15 +578,8 @@ public class Parser {
      * followed by a keyword "if" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an exit if statement is parsed.
      */
-    public boolean isExitIfStatement(){
-    	if(!keyword("exit")) return false;
-    	if(!keyword("if")) error("Syntax error");
-    	stack.pop();
-    	if(!isExpression()) error("Expression not found after exitif ");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isExitIfStatement() {
+        return parse(EXIT_IF_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;switch statement&gt; on the global stack.
@@ -627,44 +591,8 @@ public class Parser {
      * followed by an open braces "{" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an switch statement is parsed.
      */
-    public boolean isSwitchStatement(){
-    	if(!keyword("switch")) return false;
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	stack.pop();
-    	if(!isEol()) error("no end of line found");
-    	stack.pop();
-    	if(!keyword("case")){
-    		if(!symbol("}")) error("Missing close braces '}'");
-        	stack.pop();
-        	if(!isEol()) error("Syntax error, end of line not found ");
-        	stack.pop();
-        	return true;
-    	}
-    	pushBack();
-    	stack.pop();
-    	while(keyword("case")){
-    		//stack.pop();
-    		if(!isExpression()) error("Incomplete case action, expression expected");
-    		makeTree(2,1);
-    		if(!isEol()) error("Syntax error, end of line not found ");
-    		stack.pop();
-    		pushNewNode("block");
-    		while(true){
-        		if(isCommand()){
-        			makeTree(2,1);
-        			continue;
-        		}
-        		else  break;
-        	//	else error("Incomplete switch case statement. Missing '}'");
-        	}	
-    		makeTree(2,1);
-    	}
-    	makeTree(2,1);
-    	if(!symbol("}")) error("Missing close braces '}'");
-    	stack.pop();
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	stack.pop();
-    	return true;
+    public boolean isSwitchStatement() {
+        return parse(SWITCH_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;return statement&gt; on the global stack.
@@ -673,13 +601,8 @@ public class Parser {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an return statement is parsed.
      */
-    public boolean isReturnStatement(){
-    	if(!keyword("return")) return false;
-    	if(!isExpression()) error("Incomplete return statement");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isReturnStatement() {
+        return parse(RETURN_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;do statement&gt; on the global stack.
@@ -688,25 +611,8 @@ public class Parser {
      * followed by a variable and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an do statement is parsed.
      */
-    public boolean isDoStatement(){
-    	if(!keyword("do")) return false;
-    	stack.pop();
-    	pushNewNode("call");
-    	if(!isVariable()) error("syntax error, expected variable");
-    	makeTree(2,1);
-    	if(isParameterList()){
-    		makeTree(2,1);
-    		if(!isEol()) error("Syntax error, end of line not found");
-    		stack.pop();
-    	}
-    	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
-    	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
-    	else{
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	}
-    	return true;
-    	
+    public boolean isDoStatement() {
+        return parse(DO_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;color statement&gt; on the global stack.
@@ -715,13 +621,8 @@ public class Parser {
      * followed by a color name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a color statement is parsed.
      */
-    public boolean isColorStatement(){
-    	if(!keyword("color")) return false;
-    	if(!keyword()) error("missing color name");
-    	makeTree(2,1);
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isColorStatement() {
+        return parse(COLOR_STATEMENT);
     }
     
     /**
@@ -731,26 +632,8 @@ public class Parser {
      * followed by  non-terminals/terminals of the definition.
      * @return <code>true</code> if a block is parsed.
      */
-    public boolean isBlock(){
-    	if(!symbol("{"))   return false;
-    	stack.pop();
-    	pushNewNode("block");
-    	if(!isEol()) error("Syntak error");
-    	stack.pop();
-    	while(true){
-    		if(isCommand()) {
-    			makeTree(2,1);
-    			continue;
-    		}
-    		else if (symbol("}")) {
-    			stack.pop();
-    			break;
-    		}
-    		else error("Incomplete block. Missing '}'");
-    	}
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	stack.pop();
-    	return true;
+    public boolean isBlock() {
+        return parse(BLOCK);
     }
     /**
      * Tries to build a &lt;function definition&gt; on the global stack.
@@ -759,225 +642,62 @@ public class Parser {
      * followed by a  name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a function definition is parsed.
      */ 
-    public boolean isFunctionDefinition(){
-    	if(!keyword("define"))   return false;
-    	stack.pop();
-    	pushNewNode("function");
-    	if(!name())   return false;// false or error?
-    	makeTree(2,1);
-    	pushNewNode("var");
-    	if(keyword("using")) {
-    		stack.pop();
-    		if(!isVariable()) return false;
-    		makeTree(2,1);
-    		  while (symbol(",")) {
-    				stack.pop();
-                  if (!isVariable()) error("No variable after ','");
-                  makeTree(2,1);
-              }
-    	}
-    	if(!isBlock()) return false;
-    	makeTree(3,2,1);
-		return true;
+    public boolean isFunctionDefinition() {
+        return parse(FUNCTION_DEFINITION);
     }
     /**
      * Tries to build a &lt;function call&gt; on the global stack.
      * <pre>  &lt;function call&gt; ::=  &lt;NAME&gt;  &lt;parameter list&gt; </pre>
      * @return <code>true</code> if a function call is parsed.
      */
-    public boolean isFunctionCall(){
-    	
-    	if(!name()) return false;
-    	pushNewNode("call");
-    	makeTree(1,2);
-    	if(!isParameterList()) return false;
-    	makeTree(2,1);
-    	return true;
+    public boolean isFunctionCall() {
+        return parse(FUNCTION_CALL);
     }
     /**
      * Tries to build a &lt;eol&gt; on the global stack. (will be popped later)
      * <pre>  &lt;eol&gt; ::=  &lt;eol&gt; { &lt;eol&gt; } </pre> 
      * @return <code>true</code> if an eol is parsed.
      */
-    public boolean isEol(){
-    	if(!eol()) 	return false;
-    	while(true){
-    		if(eol()) {
-        		stack.pop();
-    			continue;
-    		}
-    		else
-    			break;
-    	}
-    	return true;
+    public boolean isEol() {
+        return parse(EOL);
     }
     //------------------------- Private "helper" methods
-    
-    /**
-     * Creates a new Tree consisting of a single node containing a
-     * Token with the correct type and the given <code>value</code>,
-     * and pushes it onto the global stack. 
-     *
-     * @param value The value of the token to be pushed onto the global stack.
-     */
-    private void pushNewNode(String value) {
-        stack.push(new Tree<>(new Token(Token.typeOf(value), value)));
-    }
-
-    /**
-     * Tests whether the next token is a number. If it is, the token
-     * is moved to the stack, otherwise it is not.
-     * 
-     * @return <code>true</code> if the next token is a number.
-     */
-    private boolean number() {
-        return nextTokenMatches(Token.Type.NUMBER);
-    }
-
-    /**
-     * Tests whether the next token is a name. If it is, the token
-     * is moved to the stack, otherwise it is not.
-     * 
-     * @return <code>true</code> if the next token is a name.
-     */
-    private boolean name() {
-        return nextTokenMatches(Token.Type.NAME);
-    }
-
-    /**
-     * Tests whether the next token is the expected name. If it is, the token
-     * is moved to the stack, otherwise it is not.
-     * 
-     * @param expectedName The String value of the expected next token.
-     * @return <code>true</code> if the next token is a name with the expected value.
-     */
-    private boolean name(String expectedName) {
-        return nextTokenMatches(Token.Type.NAME, expectedName);
-    }
-    /**
-     * Tests whether the next token is a eol. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a eol.
-     */
-    private boolean eol() {
-        return nextTokenMatches(Token.Type.EOL);
-    }
-    /**
-     * Tests whether the next token is a eof. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a eof.
-     */
-    private boolean eof() {
-        return nextTokenMatches(Token.Type.EOF);
-    }
-    /**
-     * Tests whether the next token is the expected keyword. If it is, the token
-     * is moved to the stack, otherwise it is not.
-     *
-     * @param expectedKeyword The String value of the expected next token.
-     * @return <code>true</code> if the next token is a keyword with the expected value.
-     */
-    private boolean keyword(String expectedKeyword) {
-        return nextTokenMatches(Token.Type.KEYWORD, expectedKeyword);
-    }
-    /**
-     * Tests whether the next token is a keyword. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a keyword.
-     */
-    private boolean keyword() {
-        return nextTokenMatches(Token.Type.KEYWORD);
-    }
-    /**
-     * Tests whether the next token is the expected symbol. If it is,
-     * the token is moved to the stack, otherwise it is not.
-     * 
-     * @param expectedSymbol The single-character String that is expected
-     *        as the next symbol.
-     * @return <code>true</code> if the next token is the expected symbol.
-     */
-    private boolean symbol(String expectedSymbol) {
-        return nextTokenMatches(Token.Type.SYMBOL, expectedSymbol);
-    }
 
     /**
-     * If the next Token has the expected type, it is used as the
-     * value of a new (childless) Tree node, and that node
-     * is then pushed onto the stack. If the next Token does not
-     * have the expected type, this method effectively does nothing.
-     * 
-     * @param type The expected type of the next token.
-     * @return <code>true</code> if the next token has the expected type.
+     * Tries to parse the given rule of the grammar, building its Tree on
+     * the global stack, or telling the listener how it would be built.
+     * @param rule The rule.
+     * @return <code>true</code> if the rule is parsed.
      */
-    private boolean nextTokenMatches(Token.Type type) {
-        Token t = nextToken();
-        if (t.type == type) {
-            stack.push(new Tree<>(t));
-            return true;
-        }
-        pushBack();
-        return false;
+    private boolean parse(int rule) {
+        return engine.parse(rule, listener != null ? listener : stack, errors, false);
     }
 
     /**
-     * If the next Token has the expected type and value, it is used as
-     * the value of a new (childless) Tree node, and that node
-     * is then pushed onto the stack; otherwise, this method does
-     * nothing.
-     * 
-     * @param type The expected type of the next token.
-     * @param value The expected value of the next token; must
-     *              not be <code>null</code>.
-     * @return <code>true</code> if the next token has the expected type.
+     * Tries to build a &lt;bug definition&gt; on the global stack, as
+     * <code>isBugDefinition</code> does. When recovering from errors, a
+     * definition with an error, or anything else where a definition
+     * could be, is replaced by an error node.
+     * @return <code>true</code> if a definition (or an error node) is built.
      */
-    private boolean nextTokenMatches(Token.Type type, String value) {
-        Token t = nextToken();
-        if (type == t.type && value.equals(t.value)) {
-            stack.push(new Tree<>(t));
-            return true;
-        }
-        pushBack();
-        return false;
+    private boolean isBugDefinitionOrRecover() {
+        return engine.parse(BUG_DEFINITION, stack, errors, true);
     }
 
     /**
-     * Returns the next Token. Increments the global variable
-     * <code>lineNumber</code> when an EOL is returned.
+     * Returns the next Token.
      * 
      * @return The next Token.
      */
     Token nextToken() {
-        int code;
-        try { code = tokenizer.nextToken(); }
-        catch (IOException e) { throw new Error(e); } // Should never happen
-        switch (code) {
-            case StreamTokenizer.TT_WORD:
-                if (Token.KEYWORDS.contains(tokenizer.sval)) {
-                    return new Token(Token.Type.KEYWORD, tokenizer.sval);
-                }
-                return new Token(Token.Type.NAME, tokenizer.sval);
-            case StreamTokenizer.TT_NUMBER:
-                return new Token(Token.Type.NUMBER, tokenizer.nval + "");
-            case StreamTokenizer.TT_EOL:
-                lineNumber++;
-                return new Token(Token.Type.EOL, "\n");
-            case StreamTokenizer.TT_EOF:
-                return new Token(Token.Type.EOF, "EOF");
-            default:
-                return new Token(Token.Type.SYMBOL, ((char) code) + "");
-        }
+        return tokens.next();
     }
 
     /**
-     * Returns the most recent Token to the tokenizer. Decrements the global
-     * variable <code>lineNumber</code> if an EOL is pushed back.
+     * Moves back to the most recent Token, so that it will be read again.
      */
     void pushBack() {
-        tokenizer.pushBack();
-        if (tokenizer.ttype == StreamTokenizer.TT_EOL) lineNumber--;
+        tokens.pushBack();
     }
 
     /**
@@ -993,38 +713,20 @@ public class Parser {
      * of the root.
      */    
     void makeTree(int rootIndex, int... childIndices) {
-        // Get root from stack
-        Tree<Token> root = getStackItem(rootIndex);
-        // Get other trees from stack and add them as children of root
-        for (int i = 0; i < childIndices.length; i++) {
-            root.addChild(getStackItem(childIndices[i]));
-        }
-        // Pop root and all children from stack
-        for (int i = 0; i <= childIndices.length; i++) {
-            stack.pop();
-        }
-        // Put the root back on the stack
-        stack.push(root);
-    }
-    
-    /**
-     * Returns the n-th item from the top of the global stack (counting the
-     * top element as 1).
-     * 
-     * @param n Which stack element to return.
-     * @return The n-th element in the global stack.
-     */
-    private Tree<Token> getStackItem(int n) {
-        return stack.get(stack.size() - n);
+        stack.reduce(rootIndex, childIndices);
     }
 
     /**
      * Utility routine to throw a <code>SyntaxException</code> with the
-     * given message.
+     * given message, at the next token.
      * @param message The text to put in the <code>SyntaxException</code>.
+     * @param expected The terminal that should have come next.
      */
-    private void error(String message) {
-        throw new SyntaxException("Line " + lineNumber + ": " + message);
+    private void error(String message, int expected) {
+        int line = tokens.lineNumber();
+        int position = tokens.position();
+        throw new SyntaxException(message, GRAMMAR.messageCode(message), new int[] {expected},
+                                  line, tokens.column(position), tokens.start(position));
     }
 }
 
@@ -0,0 +1,768 @@
+package bugs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates the Java source of a parser and a recognizer from a grammar
+ * written as <code>Bugs.grammar</code> is, and of the tables that the
+ * <code>Engine</code> runs. Run it as a build step whenever the grammar
+ * changes:
+ * <pre>    java bugs.ParserGenerator src/bugs/Bugs.grammar src/bugs</pre>
+ * which writes <code>GeneratedParser.java</code> and
+ * <code>GeneratedRecognizer.java</code>, and also
+ * <code>GeneratedGrammar.java</code>, which holds the compiled tables
+ * that the <code>Engine</code> runs, so that the grammar need not be
+ * read and compiled, or even be on the classpath, when the program runs.
+ * <p>
+ * The code generated is straight-line recursive descent: each rule is a
+ * method, and each choice of alternative, and each decision whether to
+ * go round a loop again, is a <code>switch</code> (or a single
+ * comparison) on the terminal number of the next token, taken from the
+ * same LL(1) analysis that the <code>Engine</code>'s tables come from.
+ * Binary operators are parsed by a method for each <code>%binary</code>
+ * group that climbs their levels of precedence recursively.
+ * There are no tables or interpretive overhead for the JIT to see
+ * through, only small methods and constant comparisons. The parser
+ * builds the same Trees as <code>Parser</code>; the recognizer makes no
+ * Trees at all. Neither recovers from errors, tells a listener, or reads
+ * from a Reader, so <code>Parser</code> and <code>Recognizer</code> run
+ * on the <code>Engine</code>, and the generated classes are kept only
+ * as package-private fixtures that <code>ParserGeneratorTest</code>
+ * checks against them.
+ */
+public final class ParserGenerator {
+    /** The width of the code generated, for wrapping lists of cases. */
+    private static final int WIDTH = 80;
+
+    private final Grammar grammar;
+    private final String grammarName;
+    /** Whether the code generated builds Trees. */
+    private final boolean builds;
+    /** The code generated so far. */
+    private final StringBuilder out = new StringBuilder();
+    /** The child index arrays used by <code>reduce</code>, by name. */
+    private final Set<String> children = new TreeSet<>();
+    /** The <code>%binary</code> groups, by the name of the method that climbs them. */
+    private final Map<String, Grammar.Element> binaries = new LinkedHashMap<>();
+    /** The name of the rule whose method is being generated. */
+    private String rule;
+    private int indent = 0;
+    /** The number of labels made so far. */
+    private int labels = 0;
+
+    /**
+     * Reads a grammar and writes the parser and recognizer generated
+     * from it.
+     * @param args The grammar file, and the directory to write to.
+     * @throws IOException If the grammar cannot be read, or the code
+     *         cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java bugs.ParserGenerator <grammar> <output directory>");
+            System.exit(1);
+        }
+        Path file = Paths.get(args[0]);
+        Path directory = Paths.get(args[1]);
+        String name = file.getFileName().toString();
+        Grammar grammar;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            grammar = Grammar.read(name, reader);
+        }
+        write(directory.resolve("GeneratedParser.java"), generate(grammar, name, true));
+        write(directory.resolve("GeneratedRecognizer.java"), generate(grammar, name, false));
+        write(directory.resolve("GeneratedGrammar.java"), generateTables(grammar, name));
+    }
+
+    /**
+     * Writes a file, if it is not already as given.
+     * @param file The file.
+     * @param text What it should hold.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void write(Path file, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(file) && java.util.Arrays.equals(Files.readAllBytes(file), bytes)) return;
+        Files.write(file, bytes);
+        System.out.println("Wrote " + file);
+    }
+
+    /**
+     * Generates the source of a parser or a recognizer for a grammar.
+     * @param grammar The grammar.
+     * @param grammarName The name of the grammar file, for comments.
+     * @param builds <code>true</code> for a parser, which builds Trees,
+     *        or <code>false</code> for a recognizer.
+     * @return The source of the class.
+     */
+    static String generate(Grammar grammar, String grammarName, boolean builds) {
+        return new ParserGenerator(grammar, grammarName, builds).generate();
+    }
+
+    /**
+     * Generates the source of the class holding a grammar's compiled
+     * tables, from which the Grammar can be made again.
+     * @param grammar The grammar.
+     * @param grammarName The name of the grammar file, for comments.
+     * @return The source of the class.
+     */
+    static String generateTables(Grammar grammar, String grammarName) {
+        return new ParserGenerator(grammar, grammarName, false).tables();
+    }
+
+    private ParserGenerator(Grammar grammar, String grammarName, boolean builds) {
+        this.grammar = grammar;
+        this.grammarName = grammarName;
+        this.builds = builds;
+    }
+
+    /**
+     * Generates the whole class.
+     * @return Its source.
+     */
+    private String generate() {
+        String className = builds ? "GeneratedParser" : "GeneratedRecognizer";
+        line("// Generated from " + grammarName + " by ParserGenerator; do not edit.");
+        line("// To change it, change the grammar and run");
+        line("//     java bugs.ParserGenerator src/bugs/" + grammarName + " src/bugs");
+        line("package bugs;");
+        line("");
+        if (builds) {
+            line("import tree.Tree;");
+            line("");
+        }
+        line("/**");
+        if (builds) {
+            line(" * A parser for the Bugs language, generated from <code>" + grammarName + "</code>.");
+            line(" * It builds the same Trees on its stack as <code>Parser</code>, but does");
+            line(" * not recover from errors, tell a listener, or read from a Reader.");
+        }
+        else {
+            line(" * A recognizer for the Bugs language, generated from");
+            line(" * <code>" + grammarName + "</code>. It accepts what <code>Parser</code> does, but");
+            line(" * builds nothing.");
+        }
+        line(" * <p>");
+        line(" * It is not used by the program, which runs the same grammar on the");
+        line(" * <code>Engine</code>; <code>ParserGeneratorTest</code> checks that it is");
+        line(" * up to date and agrees with <code>Parser</code>.");
+        line(" */");
+        line("final class " + className + " {");
+        indent++;
+        line("/** The tokens being " + (builds ? "parsed" : "recognized") + ". */");
+        line("private final TokenBuffer tokens;");
+        if (builds) {
+            line("");
+            line("/**");
+            line(" * The stack used for holding Trees as they are created.");
+            line(" */");
+            line("final TreeStack stack = new TreeStack();");
+        }
+        int childrenAt = out.length();
+        line("");
+        line("/**");
+        line(" * Constructs a " + className + " for the given string.");
+        line(" * @param text The string to be " + (builds ? "parsed" : "recognized") + ".");
+        line(" */");
+        line(className + "(String text) {");
+        line("    this(new TokenBuffer(text));");
+        line("}");
+        line("");
+        line("/**");
+        line(" * Constructs a " + className + " for the given tokens.");
+        line(" * @param tokens The tokens to be " + (builds ? "parsed" : "recognized") + ".");
+        line(" */");
+        line(className + "(TokenBuffer tokens) {");
+        line("    this.tokens = tokens;");
+        line("}");
+        for (int rule = 0; rule < grammar.ruleNames.length; rule++) {
+            rule(rule);
+        }
+        for (Map.Entry<String, Grammar.Element> binary : binaries.entrySet()) {
+            climb(binary.getKey(), binary.getValue());
+        }
+        helpers();
+        indent--;
+        line("}");
+        if (builds) {
+            StringBuilder constants = new StringBuilder("\n");
+            for (String name : children) {
+                String[] indices = name.substring("CHILDREN_".length()).split("_");
+                constants.append("    private static final int[] ").append(name).append(" = { ")
+                         .append(join(indices, ", ")).append(" };\n");
+            }
+            out.insert(childrenAt, constants);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Generates the class holding the compiled tables.
+     * @return Its source.
+     */
+    private String tables() {
+        line("// Generated from " + grammarName + " by ParserGenerator; do not edit.");
+        line("// To change it, change the grammar and run");
+        line("//     java bugs.ParserGenerator src/bugs/" + grammarName + " src/bugs");
+        line("package bugs;");
+        line("");
+        line("/**");
+        line(" * The tables compiled from <code>" + grammarName + "</code>, from which");
+        line(" * <code>Grammar.BUGS</code> is made.");
+        line(" */");
+        line("final class GeneratedGrammar {");
+        indent++;
+        line("private GeneratedGrammar() {}");
+        line("");
+        line("/**");
+        line(" * Makes the Grammar from the tables.");
+        line(" * @return The grammar.");
+        line(" */");
+        line("static Grammar grammar() {");
+        line("    return new Grammar(CODE, TABLES, VALUES, TREES, MESSAGES, RULE_NAMES,");
+        line("                       STUBS, RECOVERY, RECOVERY_MESSAGES, RECOVERY_ENDS);");
+        line("}");
+        line("");
+        line("/** The instructions of all the rules. */");
+        array("int", "CODE", ints(grammar.code));
+        String[] tables = new String[grammar.tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            StringBuilder entries = new StringBuilder();
+            for (int t = 0; t < Grammar.TERMINALS; t++) {
+                if (grammar.tables[i][t] < 0) continue;
+                if (entries.length() > 0) entries.append(", ");
+                entries.append(t).append(", ").append(grammar.tables[i][t]);
+            }
+            tables[i] = "{ " + entries + " }";
+        }
+        line("/** Each prediction table, as each terminal in it followed by where to go. */");
+        array("int[]", "TABLES", tables);
+        line("/** The values of the nodes that are pushed. */");
+        array("String", "VALUES", quotes(grammar.values));
+        String[] trees = new String[grammar.treeRoots.length];
+        for (int i = 0; i < trees.length; i++) {
+            String[] children = ints(grammar.treeChildren[i]);
+            trees[i] = "{ " + grammar.treeRoots[i]
+                       + (children.length > 0 ? ", " + join(children, ", ") : "") + " }";
+        }
+        line("/** The root index of each tree that is made, followed by its child indices. */");
+        array("int[]", "TREES", trees);
+        line("/** The messages of required elements. */");
+        array("String", "MESSAGES", quotes(grammar.messages));
+        line("/** The name of each rule. */");
+        array("String", "RULE_NAMES", quotes(grammar.ruleNames));
+        line("/** Where to start to parse each rule as if it had been called. */");
+        array("int", "STUBS", ints(grammar.stubs));
+        String[] recovery = new String[grammar.recovery.length];
+        for (int i = 0; i < recovery.length; i++) {
+            recovery[i] = String.valueOf(grammar.recovery[i]);
+        }
+        line("/** How each rule is recovered from. */");
+        array("byte", "RECOVERY", recovery);
+        line("/** The error where a recovered rule could be but is not, by rule. */");
+        array("String", "RECOVERY_MESSAGES", quotes(grammar.recoveryMessages));
+        String[] ends = new String[grammar.recoveryEnds.length];
+        for (int i = 0; i < ends.length; i++) {
+            if (grammar.recoveryEnds[i] == null) {
+                ends[i] = "null";
+                continue;
+            }
+            StringBuilder terminals = new StringBuilder();
+            for (int t = 0; t < Grammar.TERMINALS; t++) {
+                if (!grammar.recoveryEnds[i][t]) continue;
+                if (terminals.length() > 0) terminals.append(", ");
+                terminals.append(t);
+            }
+            ends[i] = "{ " + terminals + " }";
+        }
+        line("/** The terminals that may follow where a recovered rule could be, by rule. */");
+        array("int[]", "RECOVERY_ENDS", ends);
+        indent--;
+        line("}");
+        return out.toString();
+    }
+
+    /**
+     * Generates the declaration of a constant array, with as many
+     * elements on each line as fit.
+     * @param type The type of the elements.
+     * @param name The name of the array.
+     * @param elements The elements, as Java expressions.
+     */
+    private void array(String type, String name, String[] elements) {
+        line("private static final " + type + "[] " + name + " = {");
+        indent++;
+        StringBuilder text = new StringBuilder();
+        for (String element : elements) {
+            if (text.length() > 0 && 4 * indent + text.length() + element.length() + 1 >= WIDTH) {
+                line(text.toString().trim());
+                text.setLength(0);
+            }
+            text.append(element).append(", ");
+        }
+        if (text.length() > 0) line(text.toString().trim());
+        indent--;
+        line("};");
+    }
+
+    /**
+     * Returns ints as Java literals.
+     * @param values The ints.
+     * @return Their literals.
+     */
+    private static String[] ints(int[] values) {
+        String[] literals = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            literals[i] = String.valueOf(values[i]);
+        }
+        return literals;
+    }
+
+    /**
+     * Returns strings as Java literals.
+     * @param values The strings, some of which may be <code>null</code>.
+     * @return Their literals.
+     */
+    private static String[] quotes(String[] values) {
+        String[] literals = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            literals[i] = values[i] == null ? "null" : quote(values[i]);
+        }
+        return literals;
+    }
+
+    /**
+     * Generates the method for a rule.
+     * @param rule The number of the rule.
+     */
+    private void rule(int rule) {
+        String name = grammar.ruleNames[rule];
+        this.rule = name;
+        line("");
+        line("/**");
+        line(" * Tries to " + (builds ? "build" : "recognize") + " " + article(name) + " &lt;" + words(name) + "&gt;"
+             + (builds ? " on the stack." : "."));
+        line(" * @return <code>true</code> if " + article(name) + " " + words(name) + " is "
+             + (builds ? "parsed" : "recognized") + ".");
+        line(" */");
+        line("boolean " + method(name) + "() {");
+        indent++;
+        choice(grammar.bodies[rule], "return false;", true);
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Generates a choice between alternatives: a whole rule, or a group
+     * in parentheses.
+     * @param group The choice.
+     * @param fail The statement for when no alternative is present.
+     * @param isRule Whether to return after each alternative.
+     */
+    private void choice(Grammar.Element group, String fail, boolean isRule) {
+        List<List<Grammar.Element>> alternatives = group.alternatives;
+        String end = isRule ? "return true;" : "break;";
+        if (alternatives.size() == 1) {
+            sequence(alternatives.get(0), fail, -1);
+            if (isRule) line(end);
+            return;
+        }
+        int otherwise = otherwise(group);
+        line("switch (terminal()) {");
+        for (int i = 0; i < alternatives.size(); i++) {
+            if (i == otherwise) continue;
+            int only = cases(group, i);
+            if (only == -2) continue;
+            indent++;
+            sequence(alternatives.get(i), fail, only);
+            line(end);
+            indent--;
+        }
+        line("default:");
+        indent++;
+        if (otherwise >= 0) {
+            sequence(alternatives.get(otherwise), fail, -1);
+            line(end);
+        }
+        else line(fail);
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Generates an optional or repeated group. The group is skipped, or
+     * the loop ends, if no alternative can start with the next token, or
+     * if the first element of the alternative taken is missing.
+     * @param group The group.
+     */
+    private void loop(Grammar.Element group) {
+        List<List<Grammar.Element>> alternatives = group.alternatives;
+        boolean repeats = group.kind == Grammar.Kind.REPEAT;
+        String label = (repeats ? "loop" : "option") + ++labels;
+        String exit = "break " + label + ";";
+        int only = alternatives.size() == 1 ? onlyTerminal(group, 0) : -1;
+        if (only >= 0) {
+            // a single comparison decides
+            line(label + ":");
+            line((repeats ? "while" : "if") + " (terminal() == " + only + ") {"
+                 + comment(only));
+            indent++;
+            sequence(alternatives.get(0), exit, only);
+            indent--;
+            line("}");
+            return;
+        }
+        line(label + ":");
+        if (repeats) {
+            line("while (true) {");
+            indent++;
+        }
+        line("switch (terminal()) {");
+        for (int i = 0; i < alternatives.size(); i++) {
+            int terminal = cases(group, i);
+            if (terminal == -2) continue;
+            indent++;
+            sequence(alternatives.get(i), exit, terminal);
+            line("break;");
+            indent--;
+        }
+        line("default:");
+        line("    " + exit);
+        line("}");
+        if (repeats) {
+            indent--;
+            line("}");
+        }
+    }
+
+    /**
+     * Generates the method for a <code>%binary</code> group, which takes
+     * the operators of a level and those that bind more tightly, and
+     * recurses for the more tightly binding operators after each one.
+     * @param name The name of the method.
+     * @param group The group.
+     */
+    private void climb(String name, Grammar.Element group) {
+        List<List<Grammar.Element>> alternatives = group.alternatives;
+        int levels = alternatives.size();
+        String operand = alternatives.get(0).get(1).name;
+        line("");
+        line("/**");
+        line(" * " + (builds ? "Parses" : "Recognizes") + " any binary operators that bind at least as tightly as");
+        line(" * the given level, each followed by " + article(operand) + " &lt;" + words(operand)
+             + "&gt;, by precedence climbing.");
+        line(" * @param min The loosest level to take, the loosest of all being 1.");
+        line(" * @return <code>false</code> if an operator is not all there.");
+        line(" */");
+        line("private boolean " + name + "(int min) {");
+        indent++;
+        line("while (true) {");
+        indent++;
+        if (levels > 1) line("int level;");
+        line("switch (terminal()) {");
+        for (int i = 0; i < levels; i++) {
+            List<Grammar.Element> alternative = alternatives.get(i);
+            if (cases(group, i) == -2) continue;
+            indent++;
+            if (i + 1 < levels) line("if (min > " + (i + 1) + ") return true;");
+            line("if (!" + method(alternative.get(0).name) + "()) return false;");
+            line("if (!" + method(operand) + "()) throw error(" + quote(alternative.get(1).required) + ");");
+            if (levels > 1) line("level = " + (i + 1) + ";");
+            line("break;");
+            indent--;
+        }
+        line("default:");
+        line("    return true;");
+        line("}");
+        if (levels > 1) line("if (level < " + levels + " && !" + name + "(level + 1)) return false;");
+        if (builds) {
+            children.add("CHILDREN_3_1");
+            line("stack.reduce(2, CHILDREN_3_1);");
+        }
+        indent--;
+        line("}");
+        indent--;
+        line("}");
+    }
+
+    /**
+     * Generates a sequence of elements.
+     * @param sequence The elements.
+     * @param firstFail The statement for when the first element that is
+     *        not an action is missing, unless it is required.
+     * @param known The terminal the next token is known to be, or a
+     *        negative number if it is not known.
+     */
+    private void sequence(List<Grammar.Element> sequence, String firstFail, int known) {
+        boolean isFirst = true;
+        for (int i = 0; i < sequence.size(); i++) {
+            Grammar.Element element = sequence.get(i);
+            if (element.kind.isAction()) {
+                if (builds) action(element);
+                continue;
+            }
+            String fail = element.required != null ? "throw error(" + quote(element.required) + ");"
+                        : isFirst ? firstFail : "return false;";
+            switch (element.kind) {
+                case TERMINAL:
+                    int terminal = element.terminal;
+                    if (!(isFirst && terminal == known)) {
+                        if (terminal == Grammar.ANY_KEYWORD) {
+                            line("if (terminal() >= " + Grammar.KEYWORDS + ") " + fail + " // KEYWORD");
+                        }
+                        else line("if (terminal() != " + terminal + ") " + fail + comment(terminal));
+                    }
+                    // a token that is popped at once is never pushed
+                    boolean popped = i + 1 < sequence.size()
+                                     && sequence.get(i + 1).kind == Grammar.Kind.POP;
+                    if (popped) i++;
+                    line(builds && !popped ? "push();" : "tokens.skip();");
+                    break;
+                case RULE:
+                    line("if (!" + method(element.name) + "()) " + fail);
+                    break;
+                case CHOICE:
+                    choice(element, fail, false);
+                    break;
+                case BINARY:
+                    String climb = "climb" + method(rule).substring(2);
+                    for (int n = 2; binaries.containsKey(climb); n++) {
+                        climb = "climb" + method(rule).substring(2) + n;
+                    }
+                    binaries.put(climb, element);
+                    line("if (!" + climb + "(1)) " + fail);
+                    break;
+                default:
+                    loop(element);
+                    break;
+            }
+            isFirst = false;
+        }
+    }
+
+    /**
+     * Generates an action on the stack.
+     * @param action The action.
+     */
+    private void action(Grammar.Element action) {
+        switch (action.kind) {
+            case PUSH:
+                line("push(" + quote(action.name) + ");");
+                break;
+            case POP:
+                line("stack.pop();");
+                break;
+            case TREE:
+                String[] indices = new String[action.tree.length - 1];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = String.valueOf(action.tree[i + 1]);
+                }
+                String name = "CHILDREN_" + join(indices, "_");
+                children.add(name);
+                line("stack.reduce(" + action.tree[0] + ", " + name + ");");
+                break;
+            default:
+                line("join();");
+                break;
+        }
+    }
+
+    /**
+     * Generates the case labels for an alternative of a group.
+     * @param group The group.
+     * @param alternative Which alternative.
+     * @return The only terminal the alternative is taken for, -1 if
+     *         there are several, or -2 if there are none.
+     */
+    private int cases(Grammar.Element group, int alternative) {
+        int otherwise = otherwise(group);
+        StringBuilder labels = new StringBuilder();
+        int count = 0;
+        int only = -2;
+        for (int t = 0; t < Grammar.TERMINALS; t++) {
+            if (group.predictions[t] != alternative || alternative == otherwise) continue;
+            String label = "case " + t + ":";
+            if (labels.length() > 0 && 4 * indent + labels.length() + label.length() + 1 > WIDTH) {
+                line(labels.toString());
+                labels.setLength(0);
+            }
+            if (labels.length() > 0) labels.append(' ');
+            labels.append(label);
+            only = count++ == 0 ? t : -1;
+        }
+        if (count == 1) line(labels + comment(only));
+        else if (count > 1) line(labels.toString());
+        return only;
+    }
+
+    /**
+     * Returns the only terminal an alternative of a group is taken for.
+     * @param group The group.
+     * @param alternative Which alternative.
+     * @return The terminal, or -1 if there is not just one.
+     */
+    private int onlyTerminal(Grammar.Element group, int alternative) {
+        int only = -1;
+        for (int t = 0; t < Grammar.TERMINALS; t++) {
+            if (group.predictions[t] == alternative) {
+                if (only >= 0) return -1;
+                only = t;
+            }
+        }
+        return only;
+    }
+
+    /**
+     * Returns the alternative of a group that is taken for any token no
+     * other can start with.
+     * @param group The group.
+     * @return The alternative, or -1 if there is none.
+     */
+    private int otherwise(Grammar.Element group) {
+        return group.predictions[Grammar.OTHER];
+    }
+
+    /**
+     * Generates the helper methods.
+     */
+    private void helpers() {
+        line("");
+        line("//------------------------- Private \"helper\" methods");
+        line("");
+        line("/**");
+        line(" * Returns the terminal number of the next token.");
+        line(" * @return The terminal number, as <code>Grammar</code> defines it.");
+        line(" */");
+        line("private int terminal() {");
+        line("    return Grammar.terminal(tokens);");
+        line("}");
+        if (builds) {
+            line("");
+            line("/**");
+            line(" * Moves the next token to the stack.");
+            line(" */");
+            line("private void push() {");
+            line("    stack.push(new Tree<>(tokens.next()));");
+            line("}");
+            line("");
+            line("/**");
+            line(" * Pushes a node for a token with the given value.");
+            line(" * @param value The value of the token.");
+            line(" */");
+            line("private void push(String value) {");
+            line("    stack.push(new Tree<>(Token.valueOf(value)));");
+            line("}");
+            line("");
+            line("/**");
+            line(" * Joins the top two nodes of the stack into one.");
+            line(" */");
+            line("private void join() {");
+            line("    Token second = stack.pop().getValue();");
+            line("    Token first = stack.pop().getValue();");
+            line("    push(first.value() + second.value());");
+            line("}");
+        }
+        line("");
+        line("/**");
+        line(" * Returns the next Token.");
+        line(" * @return The next Token.");
+        line(" */");
+        line("Token nextToken() {");
+        line("    return tokens.next();");
+        line("}");
+        line("");
+        line("/**");
+        line(" * Makes a <code>SyntaxException</code> with the given message, at the");
+        line(" * next token.");
+        line(" * @param message What is wrong.");
+        line(" * @return The exception.");
+        line(" */");
+        line("private SyntaxException error(String message) {");
+        line("    int position = tokens.position();");
+        line("    return new SyntaxException(message, tokens.lineNumber(),");
+        line("                               tokens.column(position), tokens.start(position));");
+        line("}");
+    }
+
+    /**
+     * Returns a comment saying what a terminal is.
+     * @param terminal The terminal number.
+     * @return The comment, starting with a space.
+     */
+    private static String comment(int terminal) {
+        return " // " + Grammar.describe(terminal);
+    }
+
+    /**
+     * Returns the name of the method for a rule.
+     * @param rule The name of the rule.
+     * @return <code>is</code> followed by the name, capitalized.
+     */
+    private static String method(String rule) {
+        return "is" + Character.toUpperCase(rule.charAt(0)) + rule.substring(1);
+    }
+
+    /**
+     * Returns the name of a rule as words.
+     * @param rule The name of the rule, such as <code>moveToAction</code>.
+     * @return The words, such as <code>move to action</code>.
+     */
+    private static String words(String rule) {
+        return rule.replaceAll("([a-z])([A-Z])", "$1 $2").toLowerCase();
+    }
+
+    /**
+     * Returns the indefinite article for the name of a rule.
+     * @param rule The name of the rule.
+     * @return <code>an</code> if the name starts with a vowel, otherwise
+     *         <code>a</code>.
+     */
+    private static String article(String rule) {
+        return "aeiou".indexOf(rule.charAt(0)) >= 0 ? "an" : "a";
+    }
+
+    /**
+     * Returns a string as a Java string literal.
+     * @param s The string.
+     * @return The literal, in quotes.
+     */
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Joins strings with a separator.
+     * @param parts The strings.
+     * @param separator What to put between them.
+     * @return The joined string.
+     */
+    private static String join(String[] parts, String separator) {
+        StringBuilder s = new StringBuilder();
+        for (String part : parts) {
+            if (s.length() > 0) s.append(separator);
+            s.append(part);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Appends a line of code at the current indentation.
+     * @param text The line.
+     */
+    private void line(String text) {
+        if (!text.isEmpty()) {
+            for (int i = 0; i < indent; i++) out.append("    ");
+        }
+        out.append(text).append('\n');
+    }
+}
@@ -0,0 +1,108 @@
+package bugs;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class ParserGeneratorTest {
+    private static final String[] PROGRAMS = {
+        "Allbugs { \n var a , b \n define f using x { \n return x * 2 \n } \n } \n"
+            + "Bug b1 { \n var c \n initially { \n color red \n } \n move f(1) + 2 \n"
+            + "loop { \n exit if c >= 10 \n c = c + 1 \n } \n } \n"
+            + "Bug b2 { \n switch { \n case a.x < 3 \n turnto 90 \n } \n line 1, 2, 3, 4 \n } \n",
+        "Bug b { \n moveto 1 , \n } \n",
+        "Bug b { \n x = \n } \n",
+        "Bug b { \n move 1 \n",
+        "Allbugs { \n } \n",
+    };
+
+    @Test
+    public final void testGeneratedFilesAreCurrent() throws IOException {
+        Path file = Paths.get("src", "bugs", "Bugs.grammar");
+        assumeTrue(Files.exists(file));
+        Grammar grammar;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            grammar = Grammar.read("Bugs.grammar", reader);
+        }
+        assertCurrent("GeneratedParser.java", ParserGenerator.generate(grammar, "Bugs.grammar", true));
+        assertCurrent("GeneratedRecognizer.java", ParserGenerator.generate(grammar, "Bugs.grammar", false));
+        assertCurrent("GeneratedGrammar.java", ParserGenerator.generateTables(grammar, "Bugs.grammar"));
+        // The Grammar made from the tables is the one they were made from
+        assertEquals(ParserGenerator.generateTables(grammar, "Bugs.grammar"),
+                     ParserGenerator.generateTables(Grammar.BUGS, "Bugs.grammar"));
+    }
+
+    @Test
+    public final void testGeneratedParser() {
+        for (String program : PROGRAMS) {
+            Parser parser = new Parser(program);
+            GeneratedParser generated = new GeneratedParser(program);
+            String expected = result(parser, program);
+            String actual;
+            try {
+                actual = generated.isProgram() + " " + generated.stack + " " + generated.nextToken();
+            }
+            catch (SyntaxException e) {
+                actual = e.getMessage();
+            }
+            assertEquals(program, expected, actual);
+        }
+    }
+
+    @Test
+    public final void testGeneratedRecognizer() {
+        for (String program : PROGRAMS) {
+            Parser parser = new Parser(program);
+            GeneratedRecognizer generated = new GeneratedRecognizer(program);
+            String expected = result(parser, program).replaceFirst(" \\[.*\\] ", " ");
+            String actual;
+            try {
+                actual = generated.isProgram() + " " + generated.nextToken();
+            }
+            catch (SyntaxException e) {
+                actual = e.getMessage();
+            }
+            assertEquals(program, expected, actual);
+        }
+        GeneratedRecognizer generated = new GeneratedRecognizer("x + 3 * y \n");
+        assertTrue(generated.isExpression());
+        assertFalse(generated.isExpression());
+        assertTrue(generated.isEol());
+    }
+
+    /**
+     * Parses a program with the hand-configured Parser.
+     * @param parser The parser.
+     * @param program The program.
+     * @return What was parsed and the next token, or the error message.
+     */
+    private String result(Parser parser, String program) {
+        try {
+            return parser.isProgram() + " " + parser.stack + " " + parser.nextToken();
+        }
+        catch (SyntaxException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Asserts that a generated file is what the generator now makes of
+     * the grammar.
+     * @param name The name of the file.
+     * @param generated What the generator makes.
+     * @throws IOException If the file cannot be read.
+     */
+    private void assertCurrent(String name, String generated) throws IOException {
+        Path file = Paths.get("src", "bugs", name);
+        String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertEquals(name + " is out of date; run ParserGenerator", generated, source);
+    }
+}
@@ -2,9 +2,21 @@ package bugs;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.Reader;
-import java.io.StreamTokenizer;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -572,6 +584,454 @@ public class ParserTest {
     }
     
     
+    @Test
+    public void testInterning() {
+        String block = " { \n move x + 1 \n turn 90 \n move x + 1 \n move 1 \n} \n";
+        use(block);
+        assertTrue(parser.isBlock());
+        Tree<Token> plain = parser.stack.peek();
+
+        TreeInterner interner = new TreeInterner();
+        use(block);
+        parser.setInterner(interner);
+        assertTrue(parser.isBlock());
+        Tree<Token> interned = parser.stack.peek();
+        assertEquals(plain, interned);
+        assertSame(interned.getChild(0), interned.getChild(2));
+        assertSame(interned.getChild(0).getChild(0).getChild(1),
+                   interned.getChild(3).getChild(0));
+        assertNotSame(plain.getChild(0), plain.getChild(2));
+
+        // The table is shared between parsers
+        use(block);
+        parser.setInterner(interner);
+        assertTrue(parser.isBlock());
+        assertSame(interned.getChild(1), parser.stack.peek().getChild(1));
+
+        // Trees that are thrown away are not kept by the shared nodes
+        for (int i = 0; i < 1000; i++) {
+            parser.reset(block);
+            assertTrue(parser.isBlock());
+        }
+        Tree<Token> move = interned.getChild(0);
+        assertTrue(move.isShared());
+        assertEquals(0, move.getNumberOfParents());
+        assertEquals(0, move.getChild(0).getNumberOfParents());
+    }
+    
+    @Test
+    public void testParsePath() throws IOException {
+        StringBuilder program = new StringBuilder("Allbugs { \n var a \n } \n");
+        for (int i = 0; i < 500; i++) {
+            program.append("Bug b").append(i).append(" { \n var x \n")
+                   .append(" initially { \n x = ").append(i).append(" \n } \n")
+                   .append(" move x * 2 \n turn 90 \n } \n");
+        }
+        Path file = Files.createTempFile("program", ".bug");
+        try {
+            Files.write(file, program.toString().getBytes(StandardCharsets.UTF_8));
+            use(program.toString());
+            assertTrue(parser.isProgram());
+            Parser fileParser = new Parser(file);
+            assertTrue(fileParser.isProgram());
+            assertEquals(parser.stack.peek(), fileParser.stack.peek());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    public void testSyntaxExceptionPosition() {
+        use("Bug fred { \n  move 1 \n  turn * \n } \n");
+        try {
+            parser.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(3, e.getLine());
+            assertEquals(8, e.getColumn());
+            assertEquals(29, e.getOffset());
+            assertEquals("Line 3: " + e.getDetail(), e.getMessage());
+            assertEquals(0, e.getStackTrace().length);
+        }
+        SyntaxException.setStackTraces(true);
+        try {
+            use("3 +");
+            parser.isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertTrue(e.getStackTrace().length > 0);
+        }
+        finally {
+            SyntaxException.setStackTraces(false);
+        }
+    }
+
+    @Test
+    public void testSyntaxExceptionExpected() {
+        use("Bug b { \n move 1 * \n } \n");
+        try {
+            parser.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(Grammar.BUGS.messageCode(e.getDetail()), e.getCode());
+            assertEquals(Arrays.asList("NAME", "NUMBER", "'('", "'+'", "'-'"),
+                         new ArrayList<>(e.getExpected()));
+        }
+        use("Allbugs { \n } \n move 1 \n");
+        try {
+            parser.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals("Bugs Definition not found", e.getDetail());
+            assertEquals(Grammar.BUGS.messageCode(e.getDetail()), e.getCode());
+            assertEquals(Collections.singleton("Bug"), e.getExpected());
+        }
+        SyntaxException e = new SyntaxException("Not from the grammar");
+        assertEquals(SyntaxException.NO_CODE, e.getCode());
+        assertTrue(e.getExpected().isEmpty());
+    }
+
+    @Test
+    public void testExpressionPrecedence() {
+        use("a < b + c * d - e / f != -g * h");
+        assertTrue(parser.isExpression());
+        assertEquals(tree("!=",
+                          tree("<", "a",
+                               tree("-", tree("+", "b", tree("*", "c", "d")),
+                                    tree("/", "e", "f"))),
+                          tree("*", tree("-", "g"), "h")),
+                     parser.stack.pop());
+
+        use("1 * 2 < 3 > 4 = 5");
+        assertTrue(parser.isArithmeticExpression());
+        assertEquals(tree("*", "1.0", "2.0"), parser.stack.pop());
+        assertTrue(parser.isComparator());
+
+        use("x + y * ");
+        try {
+            parser.isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals("No term after '*' or '/'", e.getDetail());
+        }
+    }
+
+    @Test
+    public void testRecovery() {
+        String program = "Bug a { \n"
+                       + " move * \n"                 // line 2: bad expression
+                       + " loop x { \n move 1 \n } \n"  // line 3: bad loop, body skipped
+                       + " turn 90 \n"
+                       + " 17 \n"                     // line 7: not a command
+                       + " switch { \n case x < 1 \n color 5 \n } \n"   // line 10: no color
+                       + "} \n"
+                       + "Bug { \n move 1 \n } \n"       // line 13: no name
+                       + "Bug c { \n move 2 \n } \n";
+        use(program);
+        parser.setRecovery(true);
+        assertTrue(parser.isProgram());
+        List<SyntaxException> errors = parser.getErrors();
+        assertEquals(5, errors.size());
+        int[] lines = {2, 3, 7, 10, 13};
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], errors.get(i).getLine());
+        }
+        Tree<Token> bugs = parser.stack.peek().getChild(1);
+        assertEquals(3, bugs.getNumberOfChildren());
+        Tree<Token> commands = bugs.getChild(0).getChild(3);
+        assertEquals(5, commands.getNumberOfChildren());
+        assertEquals(Token.Type.ERROR, commands.getChild(0).getValue().type);
+        assertEquals(Token.Type.ERROR, commands.getChild(1).getValue().type);
+        assertEquals(tree("turn", "90.0"), commands.getChild(2));
+        assertEquals(Token.Type.ERROR, commands.getChild(3).getValue().type);
+        Tree<Token> caseBlock = commands.getChild(4).getChild(0).getChild(1);
+        assertEquals(Token.Type.ERROR, caseBlock.getChild(0).getValue().type);
+        assertEquals(Token.Type.ERROR, bugs.getChild(1).getValue().type);
+        assertEquals("c", bugs.getChild(2).getChild(0).getValue().value());
+
+        // Without recovery, the first error is thrown
+        use(program);
+        try {
+            parser.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(2, e.getLine());
+        }
+        assertTrue(parser.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testReset() {
+        String first = "Bug a { \n move 10 \n turn x + 2 \n } \n";
+        String second = "Bug b { \n var y \n y = 3 * (y - 1) \n } \n";
+        use(second);
+        assertTrue(parser.isProgram());
+        Tree<Token> expected = parser.stack.peek();
+
+        Parser reused = new Parser(first);
+        assertTrue(reused.isProgram());
+        reused.reset(second);
+        assertTrue(reused.stack.isEmpty());
+        assertTrue(reused.isProgram());
+        assertEquals(1, reused.stack.size());
+        assertEquals(expected, reused.stack.peek());
+
+        // A half-parsed input leaves nothing behind
+        reused.reset("x + ");
+        try {
+            reused.isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+        }
+        reused.reset(second);
+        assertTrue(reused.isProgram());
+        assertEquals(expected, reused.stack.peek());
+
+        // Errors recorded for one input are not reported for the next
+        reused.setRecovery(true);
+        reused.reset("Bug a { \n move * \n } \n");
+        assertTrue(reused.isProgram());
+        List<SyntaxException> errors = reused.getErrors();
+        assertEquals(1, errors.size());
+        reused.reset(second);
+        assertTrue(reused.isProgram());
+        assertTrue(reused.getErrors().isEmpty());
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void testPooled() {
+        Parser pooled = Parser.pooled("3 * 4");
+        assertTrue(pooled.isExpression());
+        assertEquals(tree("*", "3.0", "4.0"), pooled.stack.peek());
+        assertSame(pooled, Parser.pooled("x"));
+        assertTrue(pooled.isExpression());
+        assertEquals(1, pooled.stack.size());
+        assertEquals(tree("x"), pooled.stack.peek());
+
+        // Recovery is turned off again for the next caller
+        pooled = Parser.pooled("Bug a { \n move * \n } \n");
+        pooled.setRecovery(true);
+        assertTrue(pooled.isProgram());
+        assertEquals(1, pooled.getErrors().size());
+        pooled = Parser.pooled("Bug b { \n turn * \n } \n");
+        try {
+            pooled.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+        }
+        assertTrue(pooled.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testParseBytes() {
+        String program = "Bug caf\u00e9 { \n var na\u00efve \n"
+                       + " na\u00efve = \u65e5 + 1 \n move na\u00efve * 2 \n } \n";
+        use(program);
+        assertTrue(parser.isProgram());
+        Parser bytes = new Parser(program.getBytes(StandardCharsets.UTF_8));
+        assertTrue(bytes.isProgram());
+        assertEquals(parser.stack.peek(), bytes.stack.peek());
+    }
+
+    @Test
+    public void testParseStreaming() throws IOException {
+        StringBuilder program = new StringBuilder("Allbugs { \n var a \n } \n");
+        for (int i = 0; i < 500; i++) {
+            program.append("Bug b").append(i).append(" { \n var x \n")
+                   .append(" move x * ").append(i).append(" \n /* turn \n */ turn 90 \n } \n");
+        }
+        use(program.toString());
+        assertTrue(parser.isProgram());
+        Tree<Token> whole = parser.stack.peek();
+
+        final List<Tree<Token>> definitions = new ArrayList<>();
+        DefinitionHandler collect = new DefinitionHandler() {
+            @Override
+            public void definition(Tree<Token> definition) {
+                definitions.add(definition);
+            }
+        };
+        Parser streaming = new Parser(new StringReader(program.toString()));
+        assertTrue(streaming.isProgram(collect));
+        assertTrue(streaming.stack.isEmpty());
+        assertEquals(501, definitions.size());
+        assertEquals(whole.getChild(0), definitions.get(0));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(whole.getChild(1).getChild(i), definitions.get(i + 1));
+        }
+
+        // Without Allbugs code, an empty Allbugs node comes first
+        definitions.clear();
+        byte[] bytes = "Bug b { \n move 1 \n } \n".getBytes(StandardCharsets.UTF_8);
+        streaming = new Parser(new ByteArrayInputStream(bytes));
+        assertTrue(streaming.isProgram(collect));
+        assertEquals(2, definitions.size());
+        assertEquals("Allbugs", definitions.get(0).getValue().value());
+        assertEquals(0, definitions.get(0).getNumberOfChildren());
+
+        definitions.clear();
+        assertFalse(new Parser(new StringReader("move 1 \n")).isProgram(collect));
+        assertTrue(definitions.isEmpty());
+    }
+
+    @Test
+    public void testReadFailure() {
+        final IOException failure = new IOException("disk gone");
+        Reader broken = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                throw failure;
+            }
+            @Override
+            public void close() {}
+        };
+        try {
+            new Parser(broken).isExpression();
+            fail();
+        }
+        catch (Lexer.ReadFailure e) {
+            assertSame(failure, e.getCause());
+        }
+        try {
+            new Parser(broken).isProgram(new DefinitionHandler() {
+                @Override
+                public void definition(Tree<Token> definition) {}
+            });
+            fail();
+        }
+        catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void testListener() {
+        String program = "Bug b { \n color red \n move f(1) \n color blue \n"
+                         + " x = f(2) <= 3 \n } \n";
+        use(program);
+        assertTrue(parser.isProgram());
+        Tree<Token> expected = parser.stack.peek();
+
+        // Counts the colors used and the functions called
+        final List<String> colors = new ArrayList<>();
+        final int[] calls = new int[1];
+        ParseListener counter = new ParseListener() {
+            private Token last;
+            @Override
+            public void enterNode(String rule) {}
+            @Override
+            public void exitNode(String rule, boolean parsed) {}
+            @Override
+            public void token(Token token) {
+                if (last != null && last.value().equals("color")) colors.add(token.value());
+                if (token.value().equals("call")) calls[0]++;
+                last = token;
+            }
+            @Override
+            public void reduce(int root, int... children) {}
+            @Override
+            public void discard() {}
+        };
+        use(program);
+        parser.setListener(counter);
+        assertTrue(parser.isProgram());
+        assertTrue(parser.stack.isEmpty());
+        assertEquals("[red, blue]", colors.toString());
+        assertEquals(2, calls[0]);
+
+        // A TreeStack builds the same Tree as the Parser's own stack
+        TreeStack trees = new TreeStack();
+        use(program);
+        parser.setListener(trees);
+        assertTrue(parser.isProgram());
+        assertEquals(1, trees.size());
+        assertEquals(expected, trees.peek());
+
+        parser.setListener(null);
+        parser.reset("x = 1 \n");
+        assertTrue(parser.isAssignmentStatement());
+        assertEquals(1, parser.stack.size());
+    }
+
+    @Test
+    public void testListenerRules() {
+        String program = "Bug b { \n color red \n move f(1) \n color blue \n"
+                         + " x = f(2) <= 3 \n } \n";
+        use(program);
+        assertTrue(parser.isProgram());
+        Tree<Token> expected = parser.stack.peek();
+
+        // Counts the rules parsed, checking that they nest
+        final Map<String, Integer> counts = new HashMap<>();
+        final Deque<String> rules = new ArrayDeque<>();
+        ParseListener counter = new ParseListener() {
+            @Override
+            public void enterNode(String rule) {
+                rules.push(rule);
+            }
+            @Override
+            public void exitNode(String rule, boolean parsed) {
+                assertEquals(rules.pop(), rule);
+                if (parsed) {
+                    Integer count = counts.get(rule);
+                    counts.put(rule, count == null ? 1 : count + 1);
+                }
+            }
+            @Override
+            public void token(Token token) {}
+            @Override
+            public void reduce(int root, int... children) {
+                // The array is the listener's own, to do with as it likes
+                Arrays.fill(children, 99);
+            }
+            @Override
+            public void discard() {}
+        };
+        use(program);
+        parser.setListener(counter);
+        assertTrue(parser.isProgram());
+        assertTrue(rules.isEmpty());
+        assertEquals(1, (int) counts.get("program"));
+        assertEquals(2, (int) counts.get("colorStatement"));
+        // Functions called in expressions are given their parameterList
+        assertEquals(2, (int) counts.get("parameterList"));
+        assertEquals(1, (int) counts.get("assignmentStatement"));
+
+        // A rule that is not there is exited as not parsed
+        counts.clear();
+        parser.reset("17 \n");
+        assertFalse(parser.isCommand());
+        assertTrue(rules.isEmpty());
+        assertTrue(counts.isEmpty());
+
+        // A rule recovered from is exited as not parsed
+        use("Bug b { \n color \n move 1 \n } \n");
+        parser.setListener(counter);
+        parser.setRecovery(true);
+        counts.clear();
+        assertTrue(parser.isProgram());
+        assertEquals(1, parser.getErrors().size());
+        assertTrue(rules.isEmpty());
+        assertNull(counts.get("colorStatement"));
+        assertEquals(1, (int) counts.get("moveAction"));
+
+        // The grammar's arrays were not changed by the listener
+        parser.setListener(null);
+        use(program);
+        assertTrue(parser.isProgram());
+        assertEquals(expected, parser.stack.peek());
+    }
+
     @Test
     public void testNextToken() {
         use("12 12.5 bogus switch + \n");
@@ -615,49 +1075,21 @@ public class ParserTest {
     
     /**
      * This method is given a String containing some or all of the
-     * tokens that should yet be returned by the Tokenizer, and tests
-     * whether the Tokenizer in fact has those Tokens. To succeed,
-     * everything in the given String must still be in the Tokenizer,
+     * tokens that should yet be returned by the Lexer, and tests
+     * whether the Lexer in fact has those Tokens. To succeed,
+     * everything in the given String must still be in the Lexer,
      * but there may be additional (untested) Tokens to be returned.
      * This method is primarily to test whether Tokens are pushed
      * back appropriately.
-     * @param parser TODO
-     * @param expectedTokens The Tokens we expect to get from the Tokenizer.
+     * @param parser The Parser whose Lexer is to be tested.
+     * @param expectedTokens The Tokens we expect to get from the Lexer.
      */
     private void followedBy(Parser parser, String expectedTokens) {
-        int expectedType;
-        int actualType;
-        StreamTokenizer actual = parser.tokenizer;
-
-        Reader reader = new StringReader(expectedTokens);
-        StreamTokenizer expected = new StreamTokenizer(reader);
-
-        try {
-            while (true) {
-                expectedType = expected.nextToken();
-                if (expectedType == StreamTokenizer.TT_EOF) break;
-                actualType = actual.nextToken();
-                assertEquals(typeName(expectedType), typeName(actualType));
-                if (actualType == StreamTokenizer.TT_WORD) {
-                    assertEquals(expected.sval, actual.sval);
-                }
-                else if (actualType == StreamTokenizer.TT_NUMBER) {
-                    assertEquals(expected.nval, actual.nval, 0.001);
-                }
-            }
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-    
-    private String typeName(int type) {
-        switch(type) {
-            case StreamTokenizer.TT_EOF: return "EOF";
-            case StreamTokenizer.TT_EOL: return "EOL";
-            case StreamTokenizer.TT_WORD: return "WORD";
-            case StreamTokenizer.TT_NUMBER: return "NUMBER";
-            default: return "'" + (char)type + "'";
+        Parser expected = new Parser(expectedTokens);
+        while (true) {
+            Token expectedToken = expected.nextToken();
+            if (expectedToken.type == Token.Type.EOF) break;
+            assertEquals(expectedToken, parser.nextToken());
         }
     }
     
@@ -1,9 +1,8 @@
 package bugs;
 
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 /**
  * This class consists of a number of methods that "recognize" strings
@@ -19,65 +18,162 @@ import java.io.StringReader;
  *       unrecoverable error has occurred and throw a
  *       <code>SyntaxException</code></li>.
  * </ul>
+ * The grammar is the one in <code>Bugs.grammar</code>, run by the same
+ * <code>Engine</code> as the Parser's, but building nothing: tokens are
+ * skipped rather than made into Tokens and Trees, so recognizing
+ * allocates nothing for each token. <code>check</code> recognizes a
+ * whole program without throwing, and reports the first error as
+ * numbers.
  * @author David Matuszek
  * @version February 2015
  */
 public class Recognizer {
-    StreamTokenizer tokenizer = null;
-    int lineNumber;
-    
+    TokenBuffer tokens = null;
+
+    /**
+     * The code <code>getErrorCode</code> gives when there is no program
+     * at all, rather than an error in one.
+     */
+    public static final int NOT_FOUND = Engine.NOT_FOUND;
+
+    /** Runs the grammar, recognizing only. */
+    private final Engine engine;
+
+    /** The Recognizer that <code>pooled</code> reuses on each thread. */
+    private static final ThreadLocal<Recognizer> POOL = new ThreadLocal<Recognizer>() {
+        @Override
+        protected Recognizer initialValue() {
+            return new Recognizer("");
+        }
+    };
+
     /**
      * Constructs a Recognizer for the given string.
      * @param text The string to be recognized.
      */
     public Recognizer(String text) {
-        Reader reader = new StringReader(text);
-        tokenizer = new StreamTokenizer(reader);
-        tokenizer.parseNumbers();
-        tokenizer.eolIsSignificant(true);
-        tokenizer.slashStarComments(true);
-        tokenizer.slashSlashComments(true);
-        tokenizer.lowerCaseMode(false);
-        tokenizer.ordinaryChars(33, 47);
-        tokenizer.ordinaryChars(58, 64);
-        tokenizer.ordinaryChars(91, 96);
-        tokenizer.ordinaryChars(123, 126);
-        tokenizer.quoteChar('\"');
-        lineNumber = 1;
+        tokens = new TokenBuffer(text);
+        engine = new Engine(Grammar.BUGS, tokens);
+    }
+
+    /**
+     * Constructs a Recognizer for a UTF-8 encoded program, such as one
+     * received over a socket, without first decoding it into a String.
+     * The bytes are lexed in place, and only words that are not ASCII
+     * are ever decoded; offsets are byte offsets.
+     * @param utf8 The program to be recognized.
+     */
+    public Recognizer(byte[] utf8) {
+        this(ByteBuffer.wrap(utf8));
+    }
+
+    /**
+     * Constructs a Recognizer for the UTF-8 encoded bytes between the
+     * position and the limit of the given buffer, as
+     * <code>Recognizer(byte[])</code> does. The bytes must not change while
+     * they are being recognized.
+     * @param utf8 The program to be recognized.
+     */
+    public Recognizer(ByteBuffer utf8) {
+        tokens = new TokenBuffer(utf8);
+        engine = new Engine(Grammar.BUGS, tokens);
+    }
+
+    /**
+     * Constructs a Recognizer for the UTF-8 encoded file at the given path.
+     * The file is memory-mapped and lexed in place, and tokens are
+     * discarded once they have been read, so heap use does not grow
+     * with the size of the file.
+     * @param path The file to be recognized.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public Recognizer(Path path) throws IOException {
+        tokens = new TokenBuffer(path);
+        engine = new Engine(Grammar.BUGS, tokens);
+        tokens.setLookbehind(1); // only one token is ever pushed back
+    }
+
+    /**
+     * Makes this Recognizer start again on the given string, as if it
+     * had just been constructed for it, reusing its token buffer.
+     * @param text The string to be recognized.
+     */
+    public void reset(CharSequence text) {
+        tokens.setInput(text);
+    }
+
+    /**
+     * Returns this thread's Recognizer, reset to recognize the given
+     * string. Each thread has one such Recognizer, which is reused by
+     * every call on that thread, so it must not be used after the next
+     * call.
+     * @param text The string to be recognized.
+     * @return A Recognizer for <code>text</code>.
+     */
+    public static Recognizer pooled(CharSequence text) {
+        Recognizer recognizer = POOL.get();
+        recognizer.reset(text);
+        return recognizer;
+    }
+
+    /**
+     * Recognizes a whole program, as <code>isProgram</code> does, but
+     * returns the first error instead of throwing it. Nothing is
+     * allocated, so a pooled Recognizer can check input after input,
+     * such as each batch of keystrokes in an editor, without making
+     * garbage.
+     * @return -1 if the input is a program; otherwise the offset of the
+     *         token at which the first error was found. The kind of
+     *         error is then given by <code>getErrorCode</code>.
+     */
+    public int check() {
+        return engine.check(Parser.PROGRAM);
+    }
+
+    /**
+     * Returns the code of the error that <code>check</code> last found.
+     * Each message in the grammar has its own code, which can be turned
+     * back into the message by <code>getMessage</code>.
+     * @return The code, or <code>NOT_FOUND</code> if there was no
+     *         program at all.
+     */
+    public int getErrorCode() {
+        return engine.errorCode();
+    }
+
+    /**
+     * Returns the message for an error code, as the
+     * <code>SyntaxException</code> for the error would have it.
+     * @param code An error code from <code>getErrorCode</code>.
+     * @return The message.
+     */
+    public static String getMessage(int code) {
+        if (code == NOT_FOUND) return "Program not found";
+        return Grammar.BUGS.messages[code];
     }
 
     /**
      * Tries to build an &lt;expression&gt;.
      * <pre>&lt;expression&gt; ::= &lt;arithmetic expression&gt; { &lt;comparator&gt; &lt;arithmetic expression&gt; }</pre>
      * A <code>SyntaxException</code> will be thrown if the comparator
-     * is present but not followed by a valid &lt;arithmetic expression&gt;.
+     * is present but not followed by a valid &lt;arithmetic expression&gt;,
+     * or if a sign is not followed by a factor, as in <code>isFactor</code>.
      * @return <code>true</code> if an expression is recognized.
      */
     public boolean isExpression() {
-       
-        if(!isArithmeticExpression()) return false;
-        while(isComparator()){
-        	if(!isArithmeticExpression())
-        		error("Error expression not found after comparator");
-        }
-        return true;
+        return recognize(Parser.EXPRESSION);
     }
 
     /**
      * Tries to build an &lt;arithmetic expression&gt; on the global stack.
      * <pre>&lt;arithmetic expression&gt; ::= &lt;term&gt; { &lt;add_operator&gt; &lt;expression&gt; }</pre>
      * A <code>SyntaxException</code> will be thrown if the add_operator
-     * is present but not followed by a valid &lt;expression&gt;.
+     * is present but not followed by a valid &lt;expression&gt;, or if a
+     * sign is not followed by a factor, as in <code>isFactor</code>.
      * @return <code>true</code> if an expression is recognized.
      */
     public boolean isArithmeticExpression() {
-        boolean startsWithUnary = symbol("+") || symbol("-"); // will be used late
-        if (!isTerm())
-            return false;
-        while (isAddOperator()) {
-            if (!isTerm()) error("Error in expression after '+' or '-'");
-        }
-        return true;
+        return recognize(Parser.ARITHMETIC_EXPRESSION);
     }
 
     /**
@@ -88,27 +184,19 @@ public class Recognizer {
      * @return <code>true</code> if a term is recognized.
      */
     public boolean isTerm() {
-        if (!isFactor()) return false;
-        while (isMultiplyOperator()) {
-            if (!isTerm()) error("No term after '*' or '/'");
-        }
-        return true;
+        return recognize(Parser.TERM);
     }
 
     /**
      * Tries to recognize a &lt;factor&gt;.
      * <pre>&lt;factor&gt; ::= [ &lt;add operator&gt; ] &lt;unsigned factor&gt;</pre>
+     * A <code>SyntaxException</code> will be thrown if the sign is
+     * present but not followed by a valid &lt;unsigned factor&gt;; a
+     * second sign is not one.
      * @return <code>true</code> if a factor is parsed.
      */
     public boolean isFactor() {
-        if(symbol("+") || symbol("-")) {
-            if (isUnsignedFactor()) {
-                return true;
-            }
-            error("No factor following unary plus or minus");
-            return false; // Can't ever get here
-        }
-        return isUnsignedFactor();
+        return recognize(Parser.FACTOR);
     }
 
     /**
@@ -124,21 +212,7 @@ public class Recognizer {
      * @return <code>true</code> if a factor is recognized.
      */
     public boolean isUnsignedFactor() {
-        if (isVariable()) {
-            if (symbol(".")) {              // reference to another Bug
-                if (name()) return true;
-                error("Incorrect use of dot notation");
-            }
-            else if (isParameterList()) return true; // function call
-            else return true;                        // just a variable
-        }
-        if (number()) return true;
-        if (symbol("(")) {
-            if (!isExpression()) error("Error in parenthesized expression");
-            if (!symbol(")")) error("Unclosed parenthetical expression");
-            return true;
-       }
-       return false;
+        return recognize(Parser.UNSIGNED_FACTOR);
     }
 
     /**
@@ -147,14 +221,7 @@ public class Recognizer {
      * @return <code>true</code> if a parameter list is recognized.
      */
     public boolean isParameterList() {
-        if (!symbol("(")) return false;
-        if (isExpression()) {
-            while (symbol(",")) {
-                if (!isExpression()) error("No expression after ','");
-            }
-        }
-        if (!symbol(")")) error("Parameter list doesn't end with ')'");
-        return true;
+        return recognize(Parser.PARAMETER_LIST);
     }
 
     /**
@@ -163,7 +230,7 @@ public class Recognizer {
      * @return <code>true</code> if an addop is recognized.
      */
     public boolean isAddOperator() {
-        return symbol("+") || symbol("-");
+        return recognize(Parser.ADD_OPERATOR);
     }
 
     /**
@@ -172,7 +239,7 @@ public class Recognizer {
      * @return <code>true</code> if a multiply_operator is recognized.
      */
     public boolean isMultiplyOperator() {
-        return symbol("*") || symbol("/");
+        return recognize(Parser.MULTIPLY_OPERATOR);
     }
 
     /**
@@ -181,7 +248,7 @@ public class Recognizer {
      * @return <code>true</code> if a variable is recognized.
      */
     public boolean isVariable() {
-        return name();
+        return recognize(Parser.VARIABLE);
     }
     /**
      * Tries to recognize a &lt;comparator&gt;.
@@ -189,17 +256,7 @@ public class Recognizer {
      * @return <code>true</code> if a comparator is recognized.
      */
     public boolean isComparator() {
-    	if(symbol("<")||symbol(">")||symbol("!")){
-    		if(symbol("=")) return true;
-    		else return true;
-    	}
-    	else if(symbol("=")){
-    		return true;
-    	}
-    	return false;
-    		
-	//	return symbol("<")||symbol(">")||symbol(">=")||symbol("<=")||symbol("=")||symbol("!=");
-    	
+        return recognize(Parser.COMPARATOR);
     }
     /**
      * Tries to recognize a &lt;program&gt;.
@@ -207,19 +264,8 @@ public class Recognizer {
      * A <code>SyntaxException</code> will be thrown if an allbugs code is present not followed by  a &lt;bugs definition&gt;
      * @return <code>true</code> if a program is recognized.
      */
-    public boolean isProgram(){
-    	if(isAllbugsCode()){
-    		if(!isBugDefinition()) error("Bugs Definition not found");
-    	}
-    	else {
-    	if(!isBugDefinition()) return false;
-    	}
-    	while(true){
-    		if(isBugDefinition()) continue;
-    		else  break;
-    	}
-    	if(!eof()) error("Early terminaton of the program, end of program not recognized");
-    	return true;
+    public boolean isProgram() {
+        return recognize(Parser.PROGRAM);
     }
     /**
      * Tries to recognize an &lt;allbugs code&gt;.
@@ -232,21 +278,8 @@ public class Recognizer {
      * @return <code>true</code> if an allbugs code is recognized.
      */
     
-    public boolean isAllbugsCode(){
-    	if(!keyword("Allbugs")) return false;
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	while(true){
-    		if(isVarDeclaration()) continue;
-    		else  break;
-    	}
-    	while(true){
-    		if(isFunctionDefinition()) continue;
-    		else  break;
-    	}
-    	if(!symbol("}")) error("Missing closed braces '}'");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isAllbugsCode() {
+        return recognize(Parser.ALLBUGS_CODE);
     }
     /**
      * Tries to recognize a &lt;bugs definition&gt;.
@@ -261,33 +294,8 @@ public class Recognizer {
      * followed by a name, open braces and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a bug definition is recognized.
      */
-    public boolean isBugDefinition(){
-    	if(!keyword("Bug")) return false;
-    	if(!name()) error("syntax error :  no bug name found");
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	while(true){
-    		if(isVarDeclaration()) continue;
-    		else  break;
-    	}
-    	if(isInitializationBlock()){
-    		if(!isCommand()) error("command not found");
-    	}
-   
-    	else{
-    	if(!isCommand()) error("command not found");
-    	}
-    	while(true){
-    		if(isCommand()) continue;
-    		else  break;
-    	}
-    	while(true){
-    		if(isFunctionDefinition()) continue;
-    		else  break;
-    	}
-    	if(!symbol("}")) error(" Missing close braces '{'");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isBugDefinition() {
+        return recognize(Parser.BUG_DEFINITION);
     }
 
     /**
@@ -297,14 +305,8 @@ public class Recognizer {
      * followed by a name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a var definition is recognized.
      */
-    public boolean isVarDeclaration(){
-    	if(!keyword("var")) return false;
-    	if(!name()) error("syntax error :  no variable name found");
-    	while(symbol(",")){
-    		if(!name()) error("Syntax error : no name after ','");
-    	}
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isVarDeclaration() {
+        return recognize(Parser.VAR_DECLARATION);
     }
     
     /**
@@ -314,22 +316,19 @@ public class Recognizer {
      * followed by a &lt;block&gt; 
      * @return <code>true</code> if a initialization block is recognized.
      */
-    public boolean isInitializationBlock(){
-    	if(!keyword("initially")) return false;
-    	if(!isBlock()) error("syntax error :  no initializaton found");
-    	return true;
+    public boolean isInitializationBlock() {
+        return recognize(Parser.INITIALIZATION_BLOCK);
     }
     /**
      * Tries to recognize a &lt;command&gt;.
      * <pre> &lt;command&gt; ::=  &lt;action&gt;
      *                            | &lt;statement &gt; </pre>
+     * The kind of command is chosen from its first token alone.
      * @return <code>true</code> if a initialization block is recognized.
      */
     
-    public boolean isCommand(){
-    	if(!(isAction()||isStatement())) return false;
-    	return true;
-    	
+    public boolean isCommand() {
+        return recognize(Parser.COMMAND);
     }
     
     /**
@@ -341,11 +340,11 @@ public class Recognizer {
      *                           | &lt;return statement&gt;
      *                           | &lt;do statement&gt;
      *                           | &lt;color statement&gt; </pre>
+     * The kind of statement is chosen from its first token alone.
      * @return <code>true</code> if a ststement is recognized.
      */
-    public boolean isStatement(){
-    	if(!(isAssignmentStatement()||isLoopStatement()||isExitIfStatement()||isSwitchStatement()||isReturnStatement()||isDoStatement()||isColorStatement())) return false;
-    	return true;
+    public boolean isStatement() {
+        return recognize(Parser.STATEMENT);
     }
     /**
      * Tries to recognize a &lt;action&gt;.
@@ -354,11 +353,11 @@ public class Recognizer {
      *                        | &lt;turn action &gt;
      *                        | &lt;turnto action &gt;
      *                        | &lt;line action &gt; </pre>
+     * The kind of action is chosen from its first token alone.
      * @return <code>true</code> if an action is recognized.
      */
-    public boolean isAction(){
-    	if(!(isMoveAction()||isMoveToAction()||isTurnAction()||isTurnToAction()||isLineAction())) return false;
-    	return true;
+    public boolean isAction() {
+        return recognize(Parser.ACTION);
     }
     /**
      * Tries to recognize a &lt;move action&gt;.
@@ -368,11 +367,8 @@ public class Recognizer {
      * @return <code>true</code> if a move action is recognized.
      */
     
-    public boolean isMoveAction(){
-    	if(!keyword("move")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isMoveAction() {
+        return recognize(Parser.MOVE_ACTION);
     }
     /**
      * Tries to recognize a &lt;moveto action&gt;.
@@ -381,13 +377,8 @@ public class Recognizer {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a moveto action is recognized.
      */
-    public boolean isMoveToAction(){
-     	if(!keyword("moveto")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	if(!isExpression()) error("Incomplete move to action");
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	return true;
+    public boolean isMoveToAction() {
+        return recognize(Parser.MOVE_TO_ACTION);
     }
     /**
      * Tries to recognize a &lt;turn action&gt;.
@@ -396,11 +387,8 @@ public class Recognizer {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a turn action is recognized.
      */
-    public boolean isTurnAction(){
-    	if(!keyword("turn")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isTurnAction() {
+        return recognize(Parser.TURN_ACTION);
     }
     /**
      * Tries to recognize a &lt;turnto action&gt;.
@@ -409,11 +397,8 @@ public class Recognizer {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a turnto action is recognized.
      */
-    public boolean isTurnToAction(){
-    	if(!keyword("turnto")) return false;
-    	if(!isExpression()) error("Incomplete move action");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isTurnToAction() {
+        return recognize(Parser.TURN_TO_ACTION);
     }
     /**
      * Tries to recognize a &lt;line action&gt;.
@@ -422,17 +407,8 @@ public class Recognizer {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a line action is recognized.
      */
-    public boolean isLineAction(){
-    	if(!keyword("line")) return false;
-    	if(!isExpression()) error("Expression not found");
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	if(!isExpression()) error("Expression not found");
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	if(!isExpression()) error("Expression not found");
-    	if(!symbol(",")) error("syntax error , expected ','");
-    	if(!isExpression()) error("Expression not found");
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	return true;
+    public boolean isLineAction() {
+        return recognize(Parser.LINE_ACTION);
     }
     /**
      * Tries to recognize a &lt;assignment statement&gt;.
@@ -441,12 +417,8 @@ public class Recognizer {
      * followed by a "=" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an assignment statement is recognized.
      */
-    public boolean isAssignmentStatement(){
-    	if(!isVariable())return false;
-    	if(!symbol("=")) error("Incomplete assignment statement, expected an expression");
-     	if(!isExpression()) error("expression not found after assignment");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isAssignmentStatement() {
+        return recognize(Parser.ASSIGNMENT_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;loop statement&gt;.
@@ -455,10 +427,8 @@ public class Recognizer {
      * followed by a block.
      * @return <code>true</code> if a loop statement action is recognized.
      */
-    public boolean isLoopStatement(){
-    	if(!keyword("loop")) return false;
-    	if(!isBlock()) error("Incomplete loop");
-    	return true;
+    public boolean isLoopStatement() {
+        return recognize(Parser.LOOP_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;exit if statement&gt;.
@@ -467,12 +437,8 @@ public class Recognizer {
      * followed by a keyword "if" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an exit if statement is recognized.
      */
-    public boolean isExitIfStatement(){
-    	if(!keyword("exit")) return false;
-    	if(!keyword("if")) error("Syntax error");
-    	if(!isExpression()) error("Expression not found after exitif ");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isExitIfStatement() {
+        return recognize(Parser.EXIT_IF_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;switch statement&gt;.
@@ -484,22 +450,8 @@ public class Recognizer {
      * followed by an open braces "{" and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an switch statement is recognized.
      */
-    public boolean isSwitchStatement(){
-    	if(!keyword("switch")) return false;
-    	if(!symbol("{")) error(" Missing open braces '{'");
-    	if(!isEol()) error("");
-    	while(keyword("case")){
-    		if(!isExpression()) error("Incomplete case action, expression expected");
-    		if(!isEol()) error("Syntax error, end of line not found ");
-    		while(true){
-        		if(isCommand()) continue;
-        		else  break;
-        	//	else error("Incomplete switch case statement. Missing '}'");
-        	}	
-    	}
-    	if(!symbol("}")) error("Missing close braces '}'");
-    	if(!isEol()) error("Syntax error, end of line not found ");
-    	return true;
+    public boolean isSwitchStatement() {
+        return recognize(Parser.SWITCH_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;return statement&gt;.
@@ -508,11 +460,8 @@ public class Recognizer {
      * followed by an expression and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an return statement is recognized.
      */
-    public boolean isReturnStatement(){
-    	if(!keyword("return")) return false;
-    	if(!isExpression()) error("Incomplete return statement");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isReturnStatement() {
+        return recognize(Parser.RETURN_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;do statement&gt;.
@@ -521,19 +470,8 @@ public class Recognizer {
      * followed by a variable and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if an do statement is recognized.
      */
-    public boolean isDoStatement(){
-    	if(!keyword("do")) return false;
-    	if(!isVariable()) error("syntax error, expected variable");
-    	if(isParameterList()){
-    		if(!isEol()) error("Syntax error, end of line not found");
-    	}
-    	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
-    	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
-    	else{
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	}
-    	return true;
-    	
+    public boolean isDoStatement() {
+        return recognize(Parser.DO_STATEMENT);
     }
     /**
      * Tries to recognize a &lt;color statement&gt;.
@@ -542,11 +480,8 @@ public class Recognizer {
      * followed by a color name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a color statement is recognized.
      */
-    public boolean isColorStatement(){
-    	if(!keyword("color")) return false;
-    	if(!keyword()) error("missing color name");
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isColorStatement() {
+        return recognize(Parser.COLOR_STATEMENT);
     }
     
     /**
@@ -556,16 +491,8 @@ public class Recognizer {
      * followed by  non-terminals/terminals of the definition.
      * @return <code>true</code> if a block is recognized.
      */
-    public boolean isBlock(){
-    	if(!symbol("{"))   return false;
-    	if(!isEol()) error("Syntak error");
-    	while(true){
-    		if(isCommand()) continue;
-    		else if (symbol("}")) break;
-    		else error("Incomplete block. Missing '}'");
-    	}
-    	if(!isEol()) error("Syntax error, end of line not found");
-    	return true;
+    public boolean isBlock() {
+        return recognize(Parser.BLOCK);
     }
     /**
      * Tries to recognize a &lt;function definition&gt;.
@@ -574,124 +501,34 @@ public class Recognizer {
      * followed by a  name and the following non-terminals/terminals of the definition.
      * @return <code>true</code> if a function definition is recognized.
      */ 
-    public boolean isFunctionDefinition(){
-    	if(!keyword("define"))   return false;
-    	if(!name())   return false;// false or error?
-    	if(keyword("using")) {
-    		if(!isVariable()) return false;
-    		  while (symbol(",")) {
-                  if (!isVariable()) error("No variable after ','");
-              }
-    	}
-    	if(!isBlock()) return false;
-
-		return true;
+    public boolean isFunctionDefinition() {
+        return recognize(Parser.FUNCTION_DEFINITION);
     }
     /**
      * Tries to recognize a &lt;function call&gt;.
      * <pre>  &lt;function call&gt; ::=  &lt;NAME&gt;  &lt;parameter list&gt; </pre>
      * @return <code>true</code> if a function call is recognized.
      */
-    public boolean isFunctionCall(){
-    	if(!name()) return false;
-    	if(!isParameterList()) return false;
-    	return true;
+    public boolean isFunctionCall() {
+        return recognize(Parser.FUNCTION_CALL);
     }
     /**
      * Tries to recognize a &lt;eol&gt;.
      * <pre>  &lt;eol&gt; ::=  &lt;eol&gt; { &lt;eol&gt; } </pre> 
      * @return <code>true</code> if an eol is recognized.
      */
-    public boolean isEol(){
-    	if(!eol())    	return false;
-    	while(true){
-    		if(eol()) continue;
-    		else
-    			break;
-    	}
-    	return true;
+    public boolean isEol() {
+        return recognize(Parser.EOL);
     }
 //----- Private "helper" methods
 
     /**
-   * Tests whether the next token is a number. If it is, the token
-   * is consumed, otherwise it is not.
-   *
-   * @return <code>true</code> if the next token is a number.
-   */
-      private boolean number() {
-        return nextTokenMatches(Token.Type.NUMBER);
-    }
-
-    /**
-     * Tests whether the next token is a name. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a name.
+     * Tries to recognize the given rule of the grammar.
+     * @param rule The rule.
+     * @return <code>true</code> if the rule is recognized.
      */
-    private boolean name() {
-        return nextTokenMatches(Token.Type.NAME);
-    }
-    /**
-     * Tests whether the next token is a eol. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a eol.
-     */
-    private boolean eol() {
-        return nextTokenMatches(Token.Type.EOL);
-    }
-    /**
-     * Tests whether the next token is a eof. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a eof.
-     */
-    private boolean eof() {
-        return nextTokenMatches(Token.Type.EOF);
-    }
-    /**
-     * Tests whether the next token is a keyword. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @return <code>true</code> if the next token is a keyword.
-     */
-    private boolean keyword() {
-        return nextTokenMatches(Token.Type.KEYWORD);
-    }
-  
-    /**
-     * Tests whether the next token is the expected name. If it is, the token
-     * is consumed, otherwise it is not.
-     *
-     * @param expectedName The String value of the expected next token.
-     * @return <code>true</code> if the next token is a name with the expected value.
-     */
-    private boolean name(String expectedName) {
-        return nextTokenMatches(Token.Type.NAME, expectedName);
-    }
-
-    /**
-     * Tests whether the next token is the expected keyword. If it is, the token
-     * is moved to the stack, otherwise it is not.
-     *
-     * @param expectedKeyword The String value of the expected next token.
-     * @return <code>true</code> if the next token is a keyword with the expected value.
-     */
-    private boolean keyword(String expectedKeyword) {
-        return nextTokenMatches(Token.Type.KEYWORD, expectedKeyword);
-    }
-
-    /**
-     * Tests whether the next token is the expected symbol. If it is,
-     * the token is consumed, otherwise it is not.
-     *
-     * @param expectedSymbol The String value of the token we expect
-     *    to encounter next.
-     * @return <code>true</code> if the next token is the expected symbol.
-     */
-    boolean symbol(String expectedSymbol) {
-        return nextTokenMatches(Token.Type.SYMBOL, expectedSymbol);
+    private boolean recognize(int rule) {
+        return engine.parse(rule, null, null, false);
     }
 
     /**
@@ -703,10 +540,9 @@ public class Recognizer {
      * @return <code>true</code> if the next token has the expected type.
      */
     boolean nextTokenMatches(Token.Type type) {
-        Token t = nextToken();
-        if (t.type == type) return true;
-        pushBack();
-        return false;
+        if (!tokens.matches(type)) return false;
+        tokens.skip();
+        return true;
     }
 
     /**
@@ -721,10 +557,9 @@ public class Recognizer {
      * @return <code>true</code> if the next token has the expected type.
      */
     boolean nextTokenMatches(Token.Type type, String value) {
-        Token t = nextToken();
-        if (type == t.type && value.equals(t.value)) return true;
-        pushBack();
-        return false;
+        if (!tokens.matches(type, value)) return false;
+        tokens.skip();
+        return true;
     }
 
     /**
@@ -732,39 +567,13 @@ public class Recognizer {
      * @return The next Token.
      */
     Token nextToken() {
-        int code;
-        try { code = tokenizer.nextToken(); }
-        catch (IOException e) { throw new Error(e); } // Should never happen
-        switch (code) {
-            case StreamTokenizer.TT_WORD:
-                if (Token.KEYWORDS.contains(tokenizer.sval)) {
-                    return new Token(Token.Type.KEYWORD, tokenizer.sval);
-                }
-                return new Token(Token.Type.NAME, tokenizer.sval);
-            case StreamTokenizer.TT_NUMBER:
-                return new Token(Token.Type.NUMBER, tokenizer.nval + "");
-            case StreamTokenizer.TT_EOL:
-                return new Token(Token.Type.EOL, "\n");
-            case StreamTokenizer.TT_EOF:
-                return new Token(Token.Type.EOF, "EOF");
-            default:
-                return new Token(Token.Type.SYMBOL, ((char) code) + "");
-        }
+        return tokens.next();
     }
 
     /**
-     * Returns the most recent Token to the tokenizer.
+     * Moves back to the most recent Token, so that it will be read again.
      */
     void pushBack() {
-        tokenizer.pushBack();
-    }
-
-    /**
-     * Utility routine to throw a <code>SyntaxException</code> with the
-     * given message.
-     * @param message The text to put in the <code>SyntaxException</code>.
-     */
-    private void error(String message) {
-        throw new SyntaxException("Line " + lineNumber + ": " + message);
+        tokens.pushBack();
     }
 }
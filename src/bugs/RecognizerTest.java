@@ -2,9 +2,7 @@ package bugs;
 
 import static org.junit.Assert.*;
 
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -79,6 +77,57 @@ public class RecognizerTest {
         assertTrue(new Recognizer("12+(+5*10)").isArithmeticExpression());
     }
 
+    @Test
+    public void testSignWithoutFactor() {
+        // A sign must be followed by a factor, as in the Parser
+        String unary = "No factor following unary plus or minus";
+        try {
+            new Recognizer("- =").isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+        try {
+            new Recognizer("+ \n").isArithmeticExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+        try {
+            new Recognizer("+ =").isFactor();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+        // Only one sign is allowed
+        try {
+            new Recognizer("+ + 1").isArithmeticExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+        try {
+            new Recognizer("f(+ - 1)").isFunctionCall();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+        assertTrue(new Recognizer("f(-(-1))").isFunctionCall());
+        // The error is reported where it is, not by the rule that needed the expression
+        try {
+            new Recognizer("move - \n").isMoveAction();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(unary, e.getDetail());
+        }
+    }
+
     @Test
     public void testIsTerm() {
         assertFalse(r0.isTerm()); // ""
@@ -198,6 +247,75 @@ public class RecognizerTest {
       catch (SyntaxException e) {
       }
     }
+
+    @Test
+    public void testReset() {
+        Recognizer r = new Recognizer("17 +");
+        try {
+            r.isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+        }
+        r.reset("12 * 5 - 3");
+        assertTrue(r.isExpression());
+        assertTrue(r.nextTokenMatches(Token.Type.EOF));
+        Recognizer pooled = Recognizer.pooled("#");
+        assertFalse(pooled.isExpression());
+        assertSame(pooled, Recognizer.pooled("(xyz + 3)"));
+        assertTrue(pooled.isExpression());
+    }
+
+    @Test
+    public void testRecognizeBytes() {
+        String program = "Bug b\u00e9b\u00e9 { \n move 1 \n } \n";
+        assertTrue(new Recognizer(program.getBytes(StandardCharsets.UTF_8)).isProgram());
+        Recognizer bad = new Recognizer("Bug { \n".getBytes(StandardCharsets.UTF_8));
+        try {
+            bad.isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+        }
+    }
+
+    @Test
+    public void testCheck() {
+        Recognizer r = Recognizer.pooled("Bug b { \n move 1 \n } \n");
+        assertEquals(-1, r.check());
+        String program = "Bug b { \n move 1 * \n } \n";
+        r = Recognizer.pooled(program);
+        assertEquals(program.indexOf("* \n") + 2, r.check());
+        try {
+            new Parser(program).isProgram();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals(e.getDetail(), Recognizer.getMessage(r.getErrorCode()));
+            assertEquals(r.getErrorCode(), e.getCode());
+        }
+        r = Recognizer.pooled("move 1 \n");
+        assertEquals(0, r.check());
+        assertEquals(Recognizer.NOT_FOUND, r.getErrorCode());
+    }
+
+    @Test
+    public void testMessagesAreTheParsers() {
+        try {
+            new Recognizer("1 < )").isExpression();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals("Illegal expression after comparator", e.getDetail());
+        }
+        try {
+            new Recognizer("switch { case").isSwitchStatement();
+            fail();
+        }
+        catch (SyntaxException e) {
+            assertEquals("no end of line found", e.getDetail());
+        }
+    }
 	//    
 	//    <allbugs code> ::= "Allbugs"  "{" <eol>
 	//    { <var declaration> }
@@ -639,42 +757,22 @@ public class RecognizerTest {
 
     /**
      * This method is given a String containing some or all of the
-     * tokens that should yet be returned by the Tokenizer, and tests
-     * whether the Tokenizer in fact has those Tokens. To succeed,
-     * everything in the given String must still be in the Tokenizer,
+     * tokens that should yet be returned by the Lexer, and tests
+     * whether the Lexer in fact has those Tokens. To succeed,
+     * everything in the given String must still be in the Lexer,
      * but there may be additional (untested) Tokens to be returned.
      * This method is primarily to test whether rejected Tokens are
      * pushed back appropriately.
      * 
-     * @param recognizer The Recognizer whose Tokenizer is to be tested.
-     * @param expectedTokens The Tokens we expect to get from the Tokenizer.
+     * @param recognizer The Recognizer whose Lexer is to be tested.
+     * @param expectedTokens The Tokens we expect to get from the Lexer.
      */
     private void followedBy(Recognizer recognizer, String expectedTokens) {
-        int expectedType;
-        int actualType;
-        StreamTokenizer actual = recognizer.tokenizer;
-
-        Reader reader = new StringReader(expectedTokens);
-        StreamTokenizer expected = new StreamTokenizer(reader);
-        expected.ordinaryChar('-');
-        expected.ordinaryChar('/');
-
-        try {
-            while (true) {
-                expectedType = expected.nextToken();
-                if (expectedType == StreamTokenizer.TT_EOF) break;
-                actualType = actual.nextToken();
-                assertEquals(expectedType, actualType);
-                if (actualType == StreamTokenizer.TT_WORD) {
-                    assertEquals(expected.sval, actual.sval);
-                }
-                else if (actualType == StreamTokenizer.TT_NUMBER) {
-                    assertEquals(expected.nval, actual.nval, 0.001);
-                }
-            }
-        }
-        catch (Exception e) {
-            e.printStackTrace();
+        Recognizer expected = new Recognizer(expectedTokens);
+        while (true) {
+            Token expectedToken = expected.nextToken();
+            if (expectedToken.type == Token.Type.EOF) break;
+            assertEquals(expectedToken, recognizer.nextToken());
         }
     }
 }
@@ -1,19 +1,57 @@
 package bugs;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Represents an error during recognition or parsing. All constructors
  * are as in RuntimeException.
- * 
+ * <p>
+ * Errors found by the <code>Parser</code> and <code>Recognizer</code>
+ * record where they occurred (line, column and offset), what was
+ * wrong, as a message and as a code, and which tokens could have come
+ * next, and build their message only if <code>getMessage</code> is
+ * called. Since a program that is rejected is not a bug in the caller,
+ * no stack trace is captured unless stack traces have been turned on,
+ * with <code>setStackTraces</code> or by setting the system property
+ * <code>bugs.syntaxStackTraces</code> to <code>true</code>.
+ *
  * @author David Matuszek
  * @version February 2015
  */
 public class SyntaxException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** The code of an error that is not one of the grammar's. */
+    public static final int NO_CODE = -1;
+
+    /** Whether new SyntaxExceptions capture the stack. */
+    private static volatile boolean stackTraces =
+        Boolean.getBoolean("bugs.syntaxStackTraces");
+
+    /** The line of the error, counting from 1, or 0 if not known. */
+    private final int line;
+    /** The column of the error, counting from 1, or 0 if not known. */
+    private final int column;
+    /** The offset in the source of the error, or -1 if not known. */
+    private final int offset;
+    /** What was wrong, without the position. */
+    private final String detail;
+    /** The code of the error, or NO_CODE. */
+    private final int code;
+    /** The terminals that could have come next, or null if not known. */
+    private final int[] expected;
+    /** The message, once it has been made. */
+    private String message;
+    /** The descriptions of the expected terminals, once made. */
+    private transient Set<String> expectedTokens;
 
     /**
      * Constructor for SyntaxException.
      */
     public SyntaxException() {
-
+        this(null, null);
     }
 
     /**
@@ -21,7 +59,7 @@ public class SyntaxException extends RuntimeException {
      * @param message An error message to include.
      */
     public SyntaxException(String message) {
-        super(message);
+        this(message, null);
     }
 
     /**
@@ -29,7 +67,7 @@ public class SyntaxException extends RuntimeException {
      * @param cause The original Exception that occurred.
      */
     public SyntaxException(Throwable cause) {
-        super(cause);
+        this(cause == null ? null : cause.toString(), cause);
     }
 
     /**
@@ -38,7 +76,140 @@ public class SyntaxException extends RuntimeException {
      * @param cause The original Exception that occurred.
      */
     public SyntaxException(String message, Throwable cause) {
-        super(message, cause);
+        super(null, cause, true, stackTraces);
+        this.line = 0;
+        this.column = 0;
+        this.offset = -1;
+        this.detail = message;
+        this.code = NO_CODE;
+        this.expected = null;
+        this.message = message;
+    }
+
+    /**
+     * Constructor for a SyntaxException at a known place in the source.
+     * The message, "Line <i>line</i>: <i>detail</i>", is made when it
+     * is first asked for.
+     * @param detail What was wrong.
+     * @param line The line of the error, counting from 1.
+     * @param column The column of the error, counting from 1, or 0 if
+     *        it is not known.
+     * @param offset The offset in the source of the error, or -1 if it
+     *        is not known.
+     */
+    public SyntaxException(String detail, int line, int column, int offset) {
+        this(detail, NO_CODE, null, line, column, offset);
+    }
+
+    /**
+     * Constructor for a SyntaxException found by the grammar.
+     * @param detail What was wrong.
+     * @param code The index of the detail in the grammar's messages, or
+     *        <code>NO_CODE</code>.
+     * @param expected The terminals that could have come next, or
+     *        <code>null</code> if they are not known.
+     * @param line The line of the error, counting from 1.
+     * @param column The column of the error, counting from 1, or 0.
+     * @param offset The offset in the source of the error, or -1.
+     */
+    SyntaxException(String detail, int code, int[] expected,
+                    int line, int column, int offset) {
+        super(null, null, true, stackTraces);
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.detail = detail;
+        this.code = code;
+        this.expected = expected;
+    }
+
+    /**
+     * Turns the capture of stack traces by new SyntaxExceptions on or
+     * off, for debugging. It is off unless the system property
+     * <code>bugs.syntaxStackTraces</code> is <code>true</code>.
+     * @param on <code>true</code> to capture stack traces.
+     */
+    public static void setStackTraces(boolean on) {
+        stackTraces = on;
+    }
+
+    /**
+     * Returns the line on which the error was found.
+     * @return The line number, counting from 1, or 0 if not known.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column at which the error was found.
+     * @return The column, counting from 1, or 0 if not known.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the offset in the source at which the error was found;
+     * this is a byte offset if the source was bytes.
+     * @return The offset, or -1 if not known.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns what was wrong, without the position. For errors found by
+     * the <code>Parser</code> and <code>Recognizer</code> this is a
+     * constant string, and identifies the kind of error.
+     * @return The description of the error.
+     */
+    public String getDetail() {
+        return detail;
     }
 
+    /**
+     * Returns the code of the error, which is the same as the
+     * <code>Recognizer</code>'s <code>getErrorCode</code> for the same
+     * error, and can be given to its <code>getMessage</code>.
+     * @return The code, or <code>NO_CODE</code> if the error is not one
+     *         of the grammar's.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the tokens that could have come where the error was found:
+     * keywords by their text, symbols in quotes, and "NAME", "NUMBER",
+     * "EOL" and "EOF" for the other kinds.
+     * @return An unmodifiable set, in the grammar's order of terminals,
+     *         which is empty if they are not known.
+     */
+    public Set<String> getExpected() {
+        if (expectedTokens == null) {
+            if (expected == null) {
+                expectedTokens = Collections.emptySet();
+            }
+            else {
+                Set<String> tokens = new LinkedHashSet<>();
+                for (int terminal : expected) tokens.add(Grammar.describe(terminal));
+                expectedTokens = Collections.unmodifiableSet(tokens);
+            }
+        }
+        return expectedTokens;
+    }
+
+    /**
+     * Returns the message, making it from the line and the detail if
+     * this is the first time it has been asked for.
+     * @see java.lang.Throwable#getMessage()
+     */
+    @Override
+    public String getMessage() {
+        if (message == null && line > 0) {
+            message = "Line " + line + ": " + detail;
+        }
+        return message;
+    }
 }
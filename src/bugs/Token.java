@@ -1,9 +1,13 @@
 package bugs;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * Tokens specific to the Bugs language.
@@ -12,9 +16,97 @@ import java.util.regex.Pattern;
  */
 public class Token {
     static enum Type { KEYWORD, NAME, NUMBER, SYMBOL, ERROR, EOL, EOF }
-    private static final Pattern NAME_REGEX = Pattern.compile("[a-zA-Z_]\\w*");
-    private static final Pattern NUMBER_REGEX = Pattern.compile("(\\d+\\.\\d*)|(\\.?\\d+)");
-    private static final Pattern SYMBOL_REGEX = Pattern.compile("[^\\w]+");
+
+    /**
+     * The keywords of the Bugs language, one for each entry in
+     * <code>KEYWORD_LIST</code>, so that a parser can switch on the
+     * keyword a token holds instead of comparing strings.
+     */
+    static enum Keyword {
+        ALLBUGS("Allbugs"), BUG("Bug"), MOVE("move"), MOVETO("moveto"),
+        TURN("turn"), TURNTO("turnto"), LINE("line"), LOOP("loop"),
+        EXIT("exit"), IF("if"), SWITCH("switch"), CASE("case"),
+        RETURN("return"), DO("do"), COLOR("color"), DEFINE("define"),
+        USING("using"), VAR("var"), INITIALLY("initially"),
+        BACKGROUND("background"), BLACK("black"), BLUE("blue"),
+        CYAN("cyan"), DARK_GRAY("darkGray"), GRAY("gray"), GREEN("green"),
+        LIGHT_GRAY("lightGray"), MAGENTA("magenta"), ORANGE("orange"),
+        PINK("pink"), RED("red"), WHITE("white"), YELLOW("yellow"),
+        BROWN("brown"), PURPLE("purple"), NONE("none");
+
+        /** The keywords, indexed by word id. */
+        private static final Keyword[] BY_ID = values();
+
+        /** The keyword as it is written in Bugs source. */
+        final String text;
+        /** The one Token for this keyword. */
+        final Token token;
+
+        private Keyword(String text) {
+            this.text = text;
+            this.token = Token.valueOf(text);
+        }
+
+        /**
+         * Returns the keyword written as the given string.
+         * @param s The possible keyword.
+         * @return The keyword, or <code>null</code> if <code>s</code>
+         *         is not a keyword.
+         */
+        static Keyword of(String s) {
+            return byId(wordId(s));
+        }
+
+        /**
+         * Returns the keyword written as the given characters, without
+         * making them into a String.
+         * @param chars The array holding the possible keyword.
+         * @param start The offset of its first character.
+         * @param end The offset just past its last character.
+         * @return The keyword, or <code>null</code> if the characters
+         *         are not a keyword.
+         */
+        static Keyword of(char[] chars, int start, int end) {
+            return byId(wordId(chars, start, end));
+        }
+
+        /**
+         * Returns the keyword written as the given bytes, without
+         * decoding them.
+         * @param bytes The buffer holding the possible keyword.
+         * @param start The index of its first byte.
+         * @param end The index just past its last byte.
+         * @return The keyword, or <code>null</code> if the bytes are
+         *         not a keyword.
+         */
+        static Keyword of(ByteBuffer bytes, int start, int end) {
+            return byId(wordId(bytes, start, end));
+        }
+
+        /**
+         * Returns the keyword with the given word id.
+         * @param id A word id, or -1.
+         * @return The keyword, or <code>null</code> if the id is not
+         *         that of a keyword.
+         */
+        private static Keyword byId(int id) {
+            return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+        }
+    }
+    // Character classes for typeOf, matching the regular expression \w
+    private static final byte OTHER = 0;
+    private static final byte LETTER = 1;
+    private static final byte DIGIT = 2;
+
+    /** The class of each ASCII character. */
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = LETTER;
+        for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = LETTER;
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+        CHAR_CLASS['_'] = LETTER;
+    }
 
     private static final String[] KEYWORD_LIST = new String[] {
         "Allbugs", "Bug", "move", "moveto", "turn", "turnto", "line",
@@ -35,20 +127,164 @@ public class Token {
 
     /** The set of strings that are considered to be keywords. */
     public static final Set<String> KEYWORDS =
-        new HashSet<>(Arrays.asList(KEYWORD_LIST));
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList(KEYWORD_LIST)));
 
     /** The set of strings that are considered to be pseudo keywords. */
     public static final Set<String> PSEUDO_KEYWORDS =
-            new HashSet<>(Arrays.asList(PSEUDO_KEYWORD_LIST));
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList(PSEUDO_KEYWORD_LIST)));
 
     /** The set of strings that are considered to be color names. */
     public static final Set<String> COLORS =
-        new HashSet<>(Arrays.asList(COLOR_LIST));
+        Collections.unmodifiableSet(new HashSet<>(Arrays.asList(COLOR_LIST)));
+
+    /*
+     * The whole fixed vocabulary -- keywords, then pseudo keywords -- is
+     * kept in a minimal perfect hash table: every word has its own slot,
+     * and there are no empty slots. Each word is given a "word id", its
+     * index in KEYWORD_LIST (so also its Keyword ordinal), or for pseudo
+     * keywords, KEYWORD_LIST.length plus its index in PSEUDO_KEYWORD_LIST.
+     *
+     * A word is looked up by hashing its characters two ways in one pass.
+     * The first hash picks a bucket, and the bucket's displacement,
+     * together with the second hash, picks the slot. The displacements
+     * are found once, when this class is loaded, and never change; after
+     * that the tables are only read, so any number of parsers can use
+     * them at once.
+     */
+
+    /** The number of first-level buckets; a power of two. */
+    private static final int BUCKETS = 16;
+    /** The displacement used for the words in each bucket. */
+    private static final int[] DISPLACEMENTS = new int[BUCKETS];
+    /** The word in each slot. */
+    private static final String[] SLOT_WORDS;
+    /** The word id of the word in each slot. */
+    private static final byte[] SLOT_IDS;
+    /** Whether the word with each word id is a color. */
+    private static final boolean[] IS_COLOR;
+    /** The lengths of the shortest and longest words. */
+    private static final int MIN_LENGTH, MAX_LENGTH;
+
+    static {
+        String[] vocabulary = new String[KEYWORD_LIST.length + PSEUDO_KEYWORD_LIST.length];
+        System.arraycopy(KEYWORD_LIST, 0, vocabulary, 0, KEYWORD_LIST.length);
+        System.arraycopy(PSEUDO_KEYWORD_LIST, 0, vocabulary, KEYWORD_LIST.length,
+                         PSEUDO_KEYWORD_LIST.length);
+        int n = vocabulary.length;
+        SLOT_WORDS = new String[n];
+        SLOT_IDS = new byte[n];
+        IS_COLOR = new boolean[n];
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+
+        // Group the words by bucket
+        int[] hash1 = new int[n];
+        int[] hash2 = new int[n];
+        int[][] buckets = new int[BUCKETS][n + 1]; // [0] is the count
+        for (int id = 0; id < n; id++) {
+            String word = vocabulary[id];
+            IS_COLOR[id] = COLORS.contains(word);
+            min = Math.min(min, word.length());
+            max = Math.max(max, word.length());
+            hash1[id] = hash1(word, 0, word.length());
+            hash2[id] = hash2(word, 0, word.length());
+            int[] bucket = buckets[bucketOf(hash1[id])];
+            bucket[++bucket[0]] = id;
+        }
+        MIN_LENGTH = min;
+        MAX_LENGTH = max;
+
+        // Place the fullest buckets first, while there are most free slots
+        Integer[] order = new Integer[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) order[b] = b;
+        final int[][] sizes = buckets;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return sizes[b][0] - sizes[a][0];
+            }
+        });
+        int[] slots = new int[n];
+        for (int b : order) {
+            int[] bucket = buckets[b];
+            int size = bucket[0];
+            if (size == 0) break;
+            int d = 0;
+            search:
+            while (true) {
+                if (++d == 1 << 20) {
+                    throw new IllegalStateException("No perfect hash for keywords");
+                }
+                for (int i = 0; i < size; i++) {
+                    int slot = slotOf(hash2[bucket[i + 1]], d, n);
+                    if (SLOT_WORDS[slot] != null) continue search;
+                    for (int j = 0; j < i; j++) {
+                        if (slots[j] == slot) continue search;
+                    }
+                    slots[i] = slot;
+                }
+                break;
+            }
+            DISPLACEMENTS[b] = d;
+            for (int i = 0; i < size; i++) {
+                SLOT_WORDS[slots[i]] = vocabulary[bucket[i + 1]];
+                SLOT_IDS[slots[i]] = (byte) bucket[i + 1];
+            }
+        }
+    }
+
+    /** The one Token for an end of line. */
+    static final Token EOL_TOKEN = new Token(Type.EOL, "\n");
+    /** The one Token for the end of the input. */
+    static final Token EOF_TOKEN = new Token(Type.EOF, "EOF");
+
+    /** The one Token for each printable ASCII symbol character. */
+    private static final Token[] SYMBOL_TOKENS = new Token[128];
+    /**
+     * The one Token for each keyword, pseudo keyword and symbol, so that
+     * equal Tokens for the fixed vocabulary of the language are shared
+     * rather than made again for every occurrence.
+     */
+    private static final Map<String, Token> CANONICAL = new HashMap<>();
+
+    static {
+        for (char c = '!'; c <= '~'; c++) {
+            if (!Character.isLetterOrDigit(c)) {
+                SYMBOL_TOKENS[c] = new Token(Type.SYMBOL, String.valueOf(c));
+            }
+        }
+        for (Token symbol : SYMBOL_TOKENS) {
+            // "_" is a symbol to the lexer, but a name to typeOf
+            if (symbol != null && typeOf(symbol.value) == Type.SYMBOL) {
+                CANONICAL.put(symbol.value, symbol);
+            }
+        }
+        for (String comparator : new String[] { "<=", ">=", "!=" }) {
+            CANONICAL.put(comparator, new Token(Type.SYMBOL, comparator));
+        }
+        // Not from Keyword.values(), which may still be being initialized
+        for (String keyword : KEYWORD_LIST) {
+            CANONICAL.put(keyword, new Token(Type.KEYWORD, keyword));
+        }
+        for (String pseudoKeyword : PSEUDO_KEYWORD_LIST) {
+            CANONICAL.put(pseudoKeyword, new Token(Type.KEYWORD, pseudoKeyword));
+        }
+        CANONICAL.put(EOL_TOKEN.value, EOL_TOKEN);
+    }
 
     /** The type of this token (name, number, etc.). */
     final Type type;
-    /** The characters that make up this token. */
-    final String value;
+    /**
+     * The characters of this token, as <code>value()</code> returns
+     * them. For a number token made from its value this is
+     * <code>null</code> until first asked for, and is then always the
+     * same string, so the token is immutable as far as can be seen.
+     */
+    private String value;
+    /** Whether this token was made from its numeric value. */
+    private final boolean numeric;
+    /** The value of this token, if it was made from its numeric value. */
+    private final double number;
 
     /**
      * Constructor for Tokens.
@@ -59,6 +295,8 @@ public class Token {
     public Token(Type type, String value) {
         this.type = type;
         this.value = value;
+        this.numeric = false;
+        this.number = 0;
     }
 
     /**
@@ -68,8 +306,73 @@ public class Token {
      * determined from the token.
      */
     public Token(String value) {
-        this.type = typeOf(value);
-        this.value = value;
+        this(typeOf(value), value);
+    }
+
+    /**
+     * Constructor for number Tokens. The characters of the token, as
+     * given by <code>Double.toString</code>, are not produced unless
+     * they are asked for.
+     * 
+     * @param number The value of the number.
+     */
+    public Token(double number) {
+        this.type = Type.NUMBER;
+        this.value = null;
+        this.numeric = true;
+        this.number = number;
+    }
+
+    /**
+     * Returns the characters that make up this token. For a number that
+     * was lexed, or made from its value, this is the form produced by
+     * <code>Double.toString</code> rather than the text of the source,
+     * so <code>12</code> gives <code>12.0</code>, as StreamTokenizer's
+     * numbers did.
+     * @return The characters of this token.
+     */
+    public String value() {
+        String s = value;
+        if (s == null && numeric) {
+            s = Double.toString(number);
+            value = s;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the value of this token, which must be a number. No
+     * string conversion is done if the token was made from its value.
+     * @return The value of this number token.
+     * @throws NumberFormatException If this token is not a number.
+     */
+    public double number() {
+        return numeric ? number : Double.parseDouble(value);
+    }
+
+    /**
+     * Returns a Token for the given string, with its type determined
+     * from the string. Keywords, pseudo keywords and symbols always give
+     * the same shared Token; any other string gives a new one.
+     * 
+     * @param value The characters making up the token.
+     * @return A Token equal to <code>new Token(value)</code>.
+     */
+    public static Token valueOf(String value) {
+        Token token = CANONICAL.get(value);
+        return token != null ? token : new Token(value);
+    }
+
+    /**
+     * Returns the shared Token for a one-character symbol.
+     * @param c The symbol character.
+     * @return A SYMBOL Token whose value is <code>c</code>.
+     */
+    static Token symbol(char c) {
+        if (c < SYMBOL_TOKENS.length && SYMBOL_TOKENS[c] != null) {
+            return SYMBOL_TOKENS[c];
+        }
+        return new Token(Type.SYMBOL, String.valueOf(c));
     }
 
     /**
@@ -80,15 +383,178 @@ public class Token {
      */
     public static Token.Type typeOf(String s) {
         if (s == null) return Token.Type.EOF;
-        if (s.equals("\n")) return Token.Type.EOL;
-        if (SYMBOL_REGEX.matcher(s).matches()) return Token.Type.SYMBOL;
-        if (NUMBER_REGEX.matcher(s).matches()) return Token.Type.NUMBER;
-        if (NAME_REGEX.matcher(s).matches()) {
-            if (Token.KEYWORDS.contains(s)) return Token.Type.KEYWORD;
-            if (Token.PSEUDO_KEYWORDS.contains(s)) return Token.Type.KEYWORD;
-            return Token.Type.NAME;
+        int n = s.length();
+        if (n == 0) return Token.Type.ERROR;
+        char first = s.charAt(0);
+        switch (classOf(first)) {
+            case LETTER: // name or keyword: [a-zA-Z_]\w*
+                for (int i = 1; i < n; i++) {
+                    if (classOf(s.charAt(i)) == OTHER) return Token.Type.ERROR;
+                }
+                if (wordId(s) >= 0) return Token.Type.KEYWORD;
+                return Token.Type.NAME;
+            case DIGIT: // number: \d+ or \d+\.\d*
+                int i = 1;
+                while (i < n && classOf(s.charAt(i)) == DIGIT) i++;
+                if (i < n && s.charAt(i) == '.') i++;
+                while (i < n && classOf(s.charAt(i)) == DIGIT) i++;
+                return i == n ? Token.Type.NUMBER : Token.Type.ERROR;
+            default:
+                if (n == 1 && first == '\n') return Token.Type.EOL;
+                // symbol: [^\w]+, or a number: \.\d+
+                int j = 1;
+                while (j < n && classOf(s.charAt(j)) == OTHER) j++;
+                if (j == n) return Token.Type.SYMBOL;
+                if (first != '.' || j != 1) return Token.Type.ERROR;
+                while (j < n && classOf(s.charAt(j)) == DIGIT) j++;
+                return j == n ? Token.Type.NUMBER : Token.Type.ERROR;
+        }
+    }
+
+    /**
+     * Returns the word id of the given string, if it is a keyword or a
+     * pseudo keyword.
+     * @param s The possible keyword.
+     * @return The word id, or -1 if <code>s</code> is not in the
+     *         fixed vocabulary of the language.
+     */
+    static int wordId(String s) {
+        if (s == null) return -1;
+        int length = s.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return -1;
+        int h1 = length;
+        int h2 = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            h1 = (h1 ^ c) * 0x01000193;
+            h2 = 31 * h2 + c;
+        }
+        int slot = slotOf(h2, DISPLACEMENTS[bucketOf(h1)], SLOT_WORDS.length);
+        return SLOT_WORDS[slot].equals(s) ? SLOT_IDS[slot] : -1;
+    }
+
+    /**
+     * Returns the word id of the given characters, if they are a keyword
+     * or a pseudo keyword, without making them into a String.
+     * @param chars The array holding the possible keyword.
+     * @param start The offset of its first character.
+     * @param end The offset just past its last character.
+     * @return The word id, or -1 if the characters are not in the
+     *         fixed vocabulary of the language.
+     */
+    static int wordId(char[] chars, int start, int end) {
+        int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return -1;
+        int h1 = length;
+        int h2 = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            h1 = (h1 ^ c) * 0x01000193;
+            h2 = 31 * h2 + c;
+        }
+        int slot = slotOf(h2, DISPLACEMENTS[bucketOf(h1)], SLOT_WORDS.length);
+        String word = SLOT_WORDS[slot];
+        if (word.length() != length) return -1;
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[start + i]) return -1;
+        }
+        return SLOT_IDS[slot];
+    }
+
+    /**
+     * Returns the word id of the given bytes, if they are the ASCII
+     * encoding of a keyword or a pseudo keyword.
+     * @param bytes The buffer holding the possible keyword.
+     * @param start The index of its first byte.
+     * @param end The index just past its last byte.
+     * @return The word id, or -1 if the bytes are not in the fixed
+     *         vocabulary of the language.
+     */
+    static int wordId(ByteBuffer bytes, int start, int end) {
+        int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return -1;
+        int h1 = length;
+        int h2 = 0;
+        for (int i = start; i < end; i++) {
+            int c = bytes.get(i);
+            h1 = (h1 ^ c) * 0x01000193;
+            h2 = 31 * h2 + c;
+        }
+        int slot = slotOf(h2, DISPLACEMENTS[bucketOf(h1)], SLOT_WORDS.length);
+        String word = SLOT_WORDS[slot];
+        if (word.length() != length) return -1;
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != bytes.get(start + i)) return -1;
+        }
+        return SLOT_IDS[slot];
+    }
+
+    /**
+     * The first-level hash of some characters, as computed inline by
+     * <code>wordId</code>.
+     */
+    private static int hash1(String s, int start, int end) {
+        int h = end - start;
+        for (int i = start; i < end; i++) {
+            h = (h ^ s.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+
+    /**
+     * The second-level hash of some characters, as computed inline by
+     * <code>wordId</code>.
+     */
+    private static int hash2(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
         }
-        return Token.Type.ERROR;
+        return h;
+    }
+
+    /**
+     * Returns the bucket for a first-level hash.
+     * @param h1 The first-level hash of a word.
+     * @return The bucket the word belongs to.
+     */
+    private static int bucketOf(int h1) {
+        return mix(h1) & (BUCKETS - 1);
+    }
+
+    /**
+     * Returns the slot for a second-level hash and a displacement.
+     * @param h2 The second-level hash of a word.
+     * @param displacement The displacement of the word's bucket.
+     * @param slots The number of slots.
+     * @return The slot the word belongs in.
+     */
+    private static int slotOf(int h2, int displacement, int slots) {
+        return (mix(h2 + displacement * 0x9E3779B9) >>> 1) % slots;
+    }
+
+    /**
+     * Scrambles the bits of a hash (the finalizer of MurmurHash3).
+     * @param h The hash to be scrambled.
+     * @return The scrambled hash.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the class of a character as far as <code>typeOf</code>
+     * is concerned: an ASCII letter or underscore, an ASCII digit, or
+     * anything else.
+     * @param c The character to be classified.
+     * @return <code>LETTER</code>, <code>DIGIT</code> or <code>OTHER</code>.
+     */
+    private static byte classOf(char c) {
+        return c < CHAR_CLASS.length ? CHAR_CLASS[c] : OTHER;
     }
 
     /**
@@ -98,17 +564,48 @@ public class Token {
     public boolean equals(Object o) {
         if (o instanceof Token) {
             Token that = (Token) o;
-            return this.type == that.type && this.value.equals(that.value);
+            if (this.type != that.type) return false;
+            if (this.numeric && that.numeric) {
+                // Equal exactly when their Double.toString forms are
+                return Double.doubleToLongBits(this.number)
+                    == Double.doubleToLongBits(that.number);
+            }
+            return this.value().equals(that.value());
         }
         return false;
     }
 
     /**
+     * Returns a hash code for this token. A number is hashed by its
+     * value, so that a number made from its value need not be turned
+     * into characters; a number made from its characters hashes the
+     * same as one made from the value they stand for, which it equals
+     * when they are its <code>Double.toString</code> form.
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return value.hashCode();
+        int h = 31 * type.ordinal();
+        if (numeric) return h + hash(number);
+        if (type == Type.NUMBER) {
+            try {
+                return h + hash(Double.parseDouble(value));
+            }
+            catch (NumberFormatException e) {
+                // equal to no number made from its value
+            }
+        }
+        return h + value.hashCode();
+    }
+
+    /**
+     * Hashes a double as <code>Double.hashCode</code> does.
+     * @param number The number.
+     * @return Its hash code.
+     */
+    private static int hash(double number) {
+        long bits = Double.doubleToLongBits(number);
+        return (int) (bits ^ (bits >>> 32));
     }
 
     /**
@@ -116,13 +613,13 @@ public class Token {
      */
     @Override
     public String toString() {
-        return type + ":" + value;
+        return type + ":" + value();
     //	return  value;
     }
 
     
     public String toStringHelper() {
-        return  value;
+        return  value();
     }
     /**
      * Returns <code>true</code> if the argument is a recognized keyword,
@@ -131,7 +628,8 @@ public class Token {
      * @return <code>true</code> if the argument is a keyword.
      */
     public static boolean isKeyword(String s) {
-        return KEYWORDS.contains(s);
+        int id = wordId(s);
+        return id >= 0 && id < KEYWORD_LIST.length;
     }
 
     /**
@@ -141,6 +639,7 @@ public class Token {
      * @return <code>true</code> if the argument is a keyword.
      */
     public static boolean isColor(String s) {
-        return COLORS.contains(s);
+        int id = wordId(s);
+        return id >= 0 && IS_COLOR[id];
     }
 }
\ No newline at end of file
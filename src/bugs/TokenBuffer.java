@@ -0,0 +1,508 @@
+package bugs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The tokens of a Bugs program, each lexed exactly once and kept in
+ * parallel arrays, with a cursor that marks the next token to be read.
+ * <p>
+ * Because every token stays in the buffer, looking ahead any distance,
+ * pushing back any number of tokens, or rewinding to a saved position
+ * costs nothing more than moving the cursor; the source is never
+ * re-scanned. Tokens are lexed on demand, as the cursor (or a lookahead)
+ * first reaches them.
+ * <p>
+ * For very long inputs, the buffer can be told to discard tokens that
+ * are far enough behind the cursor (see <code>setLookbehind</code>), so
+ * that its size does not grow with the input.
+ */
+public class TokenBuffer {
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final Token.Keyword[] KEYWORDS = Token.Keyword.values();
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * The most distinct words kept from one input to the next, or while
+     * tokens are being discarded.
+     */
+    private static final int MAX_KEPT_WORDS = 4096;
+
+    /** The lexer that supplies the tokens. */
+    private final Lexer lexer;
+
+    /** The <code>Token.Type</code> ordinal of each token. */
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    /** The <code>Token.Keyword</code> ordinal of each token, or -1. */
+    private byte[] keywords = new byte[INITIAL_CAPACITY];
+    /** The offset of the first character of each token. */
+    private int[] starts = new int[INITIAL_CAPACITY];
+    /** The offset just past the last character of each token. */
+    private int[] ends = new int[INITIAL_CAPACITY];
+    /** The number of line ends before each token. */
+    private int[] linesBefore = new int[INITIAL_CAPACITY];
+    /** The value of each number token. */
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    /** The Token made for each position, once it has been asked for. */
+    private Token[] values = new Token[INITIAL_CAPACITY];
+
+    /**
+     * The one Token for each distinct word in the input, in an open
+     * addressing hash table, so that a name used many times is made
+     * into a String and a Token only once.
+     */
+    private Token[] words = new Token[INITIAL_CAPACITY];
+    /** The hash code of the text of each Token in <code>words</code>. */
+    private int[] wordHashes = new int[INITIAL_CAPACITY];
+    /** The <code>Token.Keyword</code> ordinal of each word, or -1. */
+    private byte[] wordKeywords = new byte[INITIAL_CAPACITY];
+    /** The number of Tokens in <code>words</code>. */
+    private int wordCount = 0;
+
+    /** The index of the token in element 0 of the arrays. */
+    private int base = 0;
+    /** How many read tokens must be kept, or -1 to keep them all. */
+    private int lookbehind = -1;
+    /** The number of tokens lexed so far. */
+    private int count = 0;
+    /** The number of line ends lexed so far. */
+    private int lines = 0;
+    /** Whether the end of the input has been lexed. */
+    private boolean atEnd = false;
+    /** The index of the next token to be read. */
+    private int position = 0;
+
+    /**
+     * Constructs a TokenBuffer for the given characters.
+     * @param text The characters to be tokenized.
+     */
+    public TokenBuffer(CharSequence text) {
+        lexer = new Lexer(text);
+    }
+
+    /**
+     * Constructs a TokenBuffer for the given UTF-8 encoded bytes, which
+     * are lexed in place. Offsets are then byte offsets.
+     * @param bytes The bytes to be tokenized, from their position to
+     *        their limit.
+     */
+    public TokenBuffer(ByteBuffer bytes) {
+        lexer = new Lexer(bytes);
+    }
+
+    /**
+     * Constructs a TokenBuffer for the UTF-8 encoded file at the given
+     * path. The file is memory-mapped and lexed in place, so it is never
+     * read into the heap as a whole. The file must not be changed while
+     * it is being tokenized.
+     * @param path The file to be tokenized.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public TokenBuffer(Path path) throws IOException {
+        this(map(path));
+    }
+
+    /**
+     * Constructs a TokenBuffer that reads its characters from the given
+     * Reader, a chunk at a time, as tokens are needed. Together with
+     * <code>setLookbehind</code>, this tokenizes input of any length in
+     * a bounded amount of memory. If the Reader throws an IOException,
+     * the method that was lexing throws a <code>Lexer.ReadFailure</code>
+     * holding it.
+     * @param reader Where the characters to be tokenized come from.
+     */
+    public TokenBuffer(Reader reader) {
+        lexer = new Lexer(reader);
+    }
+
+    /**
+     * Starts tokenizing the given characters, as if this TokenBuffer had
+     * just been constructed for them, but reusing its arrays. The Tokens
+     * for words are kept too, unless there are very many of them, so
+     * names seen in earlier inputs are not made again. The lookbehind
+     * setting is kept.
+     * @param text The characters to be tokenized.
+     */
+    public void setInput(CharSequence text) {
+        lexer.setInput(text);
+        Arrays.fill(values, 0, Math.min(count - base, values.length), null);
+        if (wordCount > MAX_KEPT_WORDS) clearWords();
+        base = 0;
+        count = 0;
+        lines = 0;
+        atEnd = false;
+        position = 0;
+    }
+
+    /**
+     * Allows tokens more than the given distance behind the cursor to be
+     * discarded, so that the buffer stays the same size however long the
+     * input is. After that, <code>reset</code>, <code>start</code>,
+     * <code>end</code> and <code>lineNumber</code> must not be used to
+     * reach a token that may have been discarded.
+     * @param tokens How many tokens behind the cursor must be kept (1 to
+     *        allow one <code>pushBack</code>), or -1 to keep them all,
+     *        which is the default.
+     */
+    public void setLookbehind(int tokens) {
+        lookbehind = tokens;
+    }
+
+    /**
+     * Returns the index of the next token to be read. This can later be
+     * given to <code>reset</code> to return to the same place.
+     * @return The current position.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Moves the cursor to the given position, as previously returned
+     * by <code>position()</code>.
+     * @param position The index of the next token to be read.
+     */
+    public void reset(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Returns the next Token and moves past it. Once the end of the input
+     * is reached, every further call returns the EOF Token.
+     * @return The next Token.
+     */
+    public Token next() {
+        return token(position++);
+    }
+
+    /**
+     * Moves past the next token without making a Token for it.
+     */
+    public void skip() {
+        position++;
+    }
+
+    /**
+     * Moves the cursor back by one token.
+     */
+    public void pushBack() {
+        position--;
+    }
+
+    /**
+     * Returns the type of the token <code>ahead</code> tokens past the
+     * cursor (0 is the next token).
+     * @param ahead How far to look ahead.
+     * @return The type of that token.
+     */
+    public Token.Type peekType(int ahead) {
+        int i = fill(position + ahead);
+        return TYPES[types[i]];
+    }
+
+    /**
+     * Returns the character of the next token if it is a symbol, so
+     * that a parser can choose an operator from a single lookup.
+     * @return The symbol, or 0 if the next token is not a symbol.
+     */
+    public char peekSymbol() {
+        int i = fill(position);
+        if (TYPES[types[i]] != Token.Type.SYMBOL) return 0;
+        return values[i].value().charAt(0);
+    }
+
+    /**
+     * Returns the keyword that is the next token, so that a parser can
+     * choose what to do from a single lookup.
+     * @return The next token's keyword, or <code>null</code> if the
+     *         next token is not a keyword.
+     */
+    public Token.Keyword peekKeyword() {
+        int i = fill(position);
+        int keyword = keywords[i];
+        return keyword < 0 ? null : KEYWORDS[keyword];
+    }
+
+    /**
+     * Tests whether the next token has the given type.
+     * @param type The expected type.
+     * @return <code>true</code> if the next token has that type.
+     */
+    public boolean matches(Token.Type type) {
+        return peekType(0) == type;
+    }
+
+    /**
+     * Tests whether the next token has the given type and value.
+     * @param type The expected type.
+     * @param value The expected value; must not be <code>null</code>.
+     * @return <code>true</code> if the next token matches.
+     */
+    public boolean matches(Token.Type type, String value) {
+        int i = fill(position);
+        if (TYPES[types[i]] != type) return false;
+        return value.equals(token(position).value());
+    }
+
+    /**
+     * Returns the line number of the cursor, counting from 1: that is,
+     * one more than the number of line ends already read.
+     * @return The current line number.
+     */
+    public int lineNumber() {
+        return 1 + (position < count ? linesBefore[fill(position)] : lines);
+    }
+
+    /**
+     * Returns the column of the token at the given index, counting from
+     * 1: that is, one more than its distance from the end of the last
+     * line end before it. The column is found by searching back through
+     * the buffer, so it is meant for error reports.
+     * @param index The index of the token.
+     * @return The column of the token, or 0 if the line it is on
+     *         starts in tokens that have been discarded.
+     */
+    public int column(int index) {
+        int i = fill(index);
+        for (int j = i - 1; j >= 0; j--) {
+            if (TYPES[types[j]] == Token.Type.EOL) return starts[i] - ends[j] + 1;
+        }
+        return base == 0 ? starts[i] + 1 : 0;
+    }
+
+    /**
+     * Returns the offset in the source of the first character of the
+     * token at the given index.
+     * @param index The index of the token.
+     * @return The start offset of the token.
+     */
+    public int start(int index) {
+        int i = fill(index);
+        return starts[i];
+    }
+
+    /**
+     * Returns the offset in the source just past the last character of
+     * the token at the given index.
+     * @param index The index of the token.
+     * @return The end offset of the token.
+     */
+    public int end(int index) {
+        int i = fill(index);
+        return ends[i];
+    }
+
+    /**
+     * Returns the Token at the given index, making it if this is the first
+     * time it has been asked for.
+     * @param index The index of the token.
+     * @return The Token at that index.
+     */
+    Token token(int index) {
+        int i = fill(index);
+        Token t = values[i];
+        if (t == null) {
+            switch (TYPES[types[i]]) {
+                case NUMBER:
+                    t = new Token(numbers[i]);
+                    break;
+                case EOL:
+                    t = Token.EOL_TOKEN;
+                    break;
+                default:
+                    t = Token.EOF_TOKEN;
+            }
+            values[i] = t;
+        }
+        return t;
+    }
+
+    //------------------------- Private "helper" methods
+
+    /**
+     * Lexes tokens until the given index is in the buffer, or the end
+     * of the input is reached.
+     * @param index The index of the token wanted.
+     * @return The element of the arrays at which that token is actually
+     *         stored; any index past the end of the input is the EOF token.
+     * @throws IllegalStateException If the token has been discarded.
+     */
+    private int fill(int index) {
+        if (index < base) {
+            throw new IllegalStateException("Token " + index + " has been discarded");
+        }
+        while (index >= count) {
+            if (atEnd) return count - 1 - base;
+            lex();
+        }
+        return index - base;
+    }
+
+    /**
+     * Lexes one token and appends it to the buffer.
+     */
+    private void lex() {
+        if (count - base == types.length) makeRoom();
+        int code = lexer.next();
+        int i = count++ - base;
+        starts[i] = lexer.start();
+        ends[i] = lexer.end();
+        linesBefore[i] = lines;
+        keywords[i] = -1;
+        switch (code) {
+            case Lexer.WORD:
+                int slot = word();
+                values[i] = words[slot];
+                types[i] = (byte) words[slot].type.ordinal();
+                keywords[i] = wordKeywords[slot];
+                break;
+            case Lexer.NUMBER:
+                types[i] = (byte) Token.Type.NUMBER.ordinal();
+                numbers[i] = lexer.number();
+                break;
+            case Lexer.EOL:
+                types[i] = (byte) Token.Type.EOL.ordinal();
+                lines++;
+                break;
+            case Lexer.EOF:
+                types[i] = (byte) Token.Type.EOF.ordinal();
+                atEnd = true;
+                break;
+            default:
+                // Made now, since a lexer reading a Reader drops scanned input
+                types[i] = (byte) Token.Type.SYMBOL.ordinal();
+                values[i] = Token.symbol(lexer.symbol());
+        }
+    }
+
+    /**
+     * Finds the word the lexer has just scanned in the table of words,
+     * adding it if this is its first occurrence. A keyword gets its
+     * shared Token, and a name a Token made for its first occurrence.
+     * While tokens are being discarded, the table is started again
+     * instead of growing past <code>MAX_KEPT_WORDS</code>, so that it
+     * does not grow with the input either; the tokens still in the
+     * buffer keep their Tokens, and a name met again is given a new one.
+     * @return The slot in <code>words</code> that holds the word.
+     */
+    private int word() {
+        int hash = lexer.textHash();
+        int mask = words.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (Token t = words[slot]; t != null; t = words[slot]) {
+            if (wordHashes[slot] == hash && lexer.textEquals(t.value())) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        Token.Keyword keyword = lexer.keyword();
+        if (keyword != null) {
+            words[slot] = keyword.token;
+            wordKeywords[slot] = (byte) keyword.ordinal();
+        }
+        else {
+            words[slot] = new Token(Token.Type.NAME, lexer.text());
+            wordKeywords[slot] = -1;
+        }
+        wordHashes[slot] = hash;
+        if (2 * ++wordCount > words.length) {
+            if (lookbehind >= 0 && wordCount > MAX_KEPT_WORDS) clearWords();
+            else growWords();
+            return word();
+        }
+        return slot;
+    }
+
+    /**
+     * Empties the table of words, shrinking it to its initial size.
+     */
+    private void clearWords() {
+        words = new Token[INITIAL_CAPACITY];
+        wordHashes = new int[INITIAL_CAPACITY];
+        wordKeywords = new byte[INITIAL_CAPACITY];
+        wordCount = 0;
+    }
+
+    /**
+     * Returns the number of distinct words in the table of words.
+     * @return The number of words.
+     */
+    int wordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Doubles the size of the table of words, keeping them all.
+     */
+    private void growWords() {
+        Token[] oldWords = words;
+        int[] oldHashes = wordHashes;
+        byte[] oldKeywords = wordKeywords;
+        words = new Token[2 * oldWords.length];
+        wordHashes = new int[words.length];
+        wordKeywords = new byte[words.length];
+        int mask = words.length - 1;
+        for (int j = 0; j < oldWords.length; j++) {
+            if (oldWords[j] == null) continue;
+            int hash = oldHashes[j];
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (words[slot] != null) slot = (slot + 1) & mask;
+            words[slot] = oldWords[j];
+            wordHashes[slot] = hash;
+            wordKeywords[slot] = oldKeywords[j];
+        }
+    }
+
+    /**
+     * Makes room in the parallel arrays for another token, by discarding
+     * tokens behind the cursor if that is allowed and would free at
+     * least half the arrays, and otherwise by growing them.
+     */
+    private void makeRoom() {
+        int discard = position - lookbehind - base;
+        if (lookbehind < 0 || 2 * discard < types.length) {
+            grow();
+            return;
+        }
+        int kept = count - base - discard;
+        System.arraycopy(types, discard, types, 0, kept);
+        System.arraycopy(keywords, discard, keywords, 0, kept);
+        System.arraycopy(starts, discard, starts, 0, kept);
+        System.arraycopy(ends, discard, ends, 0, kept);
+        System.arraycopy(linesBefore, discard, linesBefore, 0, kept);
+        System.arraycopy(numbers, discard, numbers, 0, kept);
+        System.arraycopy(values, discard, values, 0, kept);
+        Arrays.fill(values, kept, values.length, null);
+        base += discard;
+    }
+
+    /**
+     * Maps the whole of a file into memory, read-only.
+     * @param path The file to be mapped.
+     * @return The contents of the file.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Doubles the capacity of the parallel arrays.
+     */
+    private void grow() {
+        int capacity = 2 * types.length;
+        types = Arrays.copyOf(types, capacity);
+        keywords = Arrays.copyOf(keywords, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        linesBefore = Arrays.copyOf(linesBefore, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
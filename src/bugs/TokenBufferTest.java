@@ -0,0 +1,234 @@
+package bugs;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class TokenBufferTest {
+
+    @Test
+    public final void testNext() {
+        TokenBuffer tokens = new TokenBuffer("move 25 *\n");
+        assertEquals(new Token(Token.Type.KEYWORD, "move"), tokens.next());
+        assertEquals(new Token(Token.Type.NUMBER, "25.0"), tokens.next());
+        assertEquals(new Token(Token.Type.SYMBOL, "*"), tokens.next());
+        assertEquals(new Token(Token.Type.EOL, "\n"), tokens.next());
+        assertEquals(new Token(Token.Type.EOF, "EOF"), tokens.next());
+        assertEquals(new Token(Token.Type.EOF, "EOF"), tokens.next());
+    }
+
+    @Test
+    public final void testPushBackAndReset() {
+        TokenBuffer tokens = new TokenBuffer("a b c d");
+        int mark = tokens.position();
+        tokens.next();
+        tokens.next();
+        tokens.next();
+        tokens.pushBack();
+        tokens.pushBack();
+        assertEquals(new Token(Token.Type.NAME, "b"), tokens.next());
+        tokens.reset(mark);
+        assertEquals(new Token(Token.Type.NAME, "a"), tokens.next());
+    }
+
+    @Test
+    public final void testTokensAreLexedOnce() {
+        TokenBuffer tokens = new TokenBuffer("abc 12");
+        Token first = tokens.next();
+        Token second = tokens.next();
+        tokens.reset(0);
+        assertSame(first, tokens.next());
+        assertSame(second, tokens.next());
+    }
+
+    @Test
+    public final void testPeekType() {
+        TokenBuffer tokens = new TokenBuffer("x = 5\n");
+        assertEquals(Token.Type.NAME, tokens.peekType(0));
+        assertEquals(Token.Type.SYMBOL, tokens.peekType(1));
+        assertEquals(Token.Type.NUMBER, tokens.peekType(2));
+        assertEquals(Token.Type.EOL, tokens.peekType(3));
+        assertEquals(Token.Type.EOF, tokens.peekType(4));
+        assertEquals(Token.Type.EOF, tokens.peekType(40));
+        assertEquals(0, tokens.position());
+    }
+
+    @Test
+    public final void testPeekKeyword() {
+        TokenBuffer tokens = new TokenBuffer("moveto darkGray x 5");
+        assertEquals(Token.Keyword.MOVETO, tokens.peekKeyword());
+        tokens.skip();
+        assertEquals(Token.Keyword.DARK_GRAY, tokens.peekKeyword());
+        tokens.skip();
+        assertNull(tokens.peekKeyword());
+        tokens.skip();
+        assertNull(tokens.peekKeyword());
+    }
+
+    @Test
+    public final void testMatches() {
+        TokenBuffer tokens = new TokenBuffer("color red + x");
+        assertTrue(tokens.matches(Token.Type.KEYWORD));
+        assertTrue(tokens.matches(Token.Type.KEYWORD, "color"));
+        assertFalse(tokens.matches(Token.Type.NAME, "color"));
+        tokens.skip();
+        tokens.skip();
+        assertTrue(tokens.matches(Token.Type.SYMBOL, "+"));
+        assertFalse(tokens.matches(Token.Type.SYMBOL, "-"));
+        tokens.skip();
+        assertTrue(tokens.matches(Token.Type.NAME));
+    }
+
+    @Test
+    public final void testOffsetsAndLines() {
+        TokenBuffer tokens = new TokenBuffer("ab\n cd\n");
+        assertEquals(0, tokens.start(0));
+        assertEquals(2, tokens.end(0));
+        assertEquals(4, tokens.start(2));
+        assertEquals(1, tokens.lineNumber());
+        tokens.next();
+        tokens.next();
+        assertEquals(2, tokens.lineNumber());
+        tokens.pushBack();
+        assertEquals(1, tokens.lineNumber());
+        assertEquals(1, tokens.column(0));
+        assertEquals(2, tokens.column(2));
+    }
+
+    @Test
+    public final void testTokensAreShared() {
+        TokenBuffer tokens = new TokenBuffer("move x\nmove x + y\n");
+        Token move = tokens.next();
+        Token x = tokens.next();
+        Token eol = tokens.next();
+        assertSame(Token.Keyword.MOVE.token, move);
+        assertSame(move, tokens.next());
+        assertSame(x, tokens.next());
+        assertSame(Token.symbol('+'), tokens.next());
+        assertEquals(new Token(Token.Type.NAME, "y"), tokens.next());
+        assertSame(eol, tokens.next());
+    }
+
+    @Test
+    public final void testManyNames() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            source.append("n").append(i).append(" color ");
+        }
+        TokenBuffer tokens = new TokenBuffer(source.toString() + "n0 n499");
+        for (int i = 0; i < 500; i++) {
+            assertEquals(new Token(Token.Type.NAME, "n" + i), tokens.next());
+            assertEquals(Token.Keyword.COLOR, tokens.peekKeyword());
+            tokens.skip();
+        }
+        tokens.reset(0);
+        Token n0 = tokens.next();
+        tokens.reset(998);
+        Token n499 = tokens.next();
+        tokens.reset(1000);
+        assertSame(n0, tokens.next());
+        assertSame(n499, tokens.next());
+    }
+
+    @Test
+    public final void testNumbersKeepTheirValue() {
+        TokenBuffer tokens = new TokenBuffer("0.1 12 x");
+        assertEquals(0.1, tokens.next().number(), 0.0);
+        Token twelve = tokens.next();
+        assertEquals(12.0, twelve.number(), 0.0);
+        assertEquals("12.0", twelve.value());
+        assertTrue(tokens.matches(Token.Type.NAME, "x"));
+        tokens.pushBack();
+        assertTrue(tokens.matches(Token.Type.NUMBER, "12.0"));
+    }
+
+    @Test
+    public final void testLookbehind() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("move ").append(i).append("\n");
+        }
+        TokenBuffer tokens = new TokenBuffer(source);
+        tokens.setLookbehind(1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Token.Keyword.MOVE, tokens.peekKeyword());
+            tokens.skip();
+            assertEquals(i, tokens.next().number(), 0.0);
+            tokens.pushBack();
+            tokens.skip();
+            assertEquals(i + 1, tokens.lineNumber());
+            tokens.skip();
+        }
+        assertEquals(Token.Type.EOF, tokens.peekType(0));
+        try {
+            tokens.reset(0);
+            tokens.next();
+            fail("Discarded token was returned");
+        }
+        catch (IllegalStateException e) {}
+    }
+
+    @Test
+    public final void testLookbehindBoundsWords() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            source.append("x").append(i).append(" = y").append(i).append("\n");
+        }
+        TokenBuffer tokens = new TokenBuffer(new StringReader(source.toString()));
+        tokens.setLookbehind(1);
+        int most = 0;
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(new Token(Token.Type.NAME, "x" + i), tokens.next());
+            tokens.skip();
+            assertEquals(new Token(Token.Type.NAME, "y" + i), tokens.next());
+            tokens.skip();
+            most = Math.max(most, tokens.wordCount());
+        }
+        assertEquals(Token.Type.EOF, tokens.peekType(0));
+        assertTrue(most <= 4096 + 1);
+
+        // Without discarding, every word is kept
+        tokens = new TokenBuffer(source.toString());
+        while (tokens.next().type != Token.Type.EOF) {}
+        assertEquals(40000, tokens.wordCount());
+    }
+
+    @Test
+    public final void testSetInput() {
+        TokenBuffer tokens = new TokenBuffer("x 1 \n y 2");
+        Token x = tokens.next();
+        assertEquals(1.0, tokens.next().number(), 0.0);
+        while (tokens.next().type != Token.Type.EOF) {}
+        tokens.setInput("2.5 x\n");
+        assertEquals(0, tokens.position());
+        assertEquals(1, tokens.lineNumber());
+        assertEquals(new Token(2.5), tokens.next());
+        assertSame(x, tokens.next());
+        assertSame(Token.EOL_TOKEN, tokens.next());
+        assertEquals(2, tokens.lineNumber());
+        assertSame(Token.EOF_TOKEN, tokens.next());
+        assertEquals(5, tokens.end(1));
+    }
+
+    @Test
+    public final void testPath() throws IOException {
+        Path file = Files.createTempFile("tokens", ".bug");
+        try {
+            Files.write(file, "color red\n".getBytes(StandardCharsets.UTF_8));
+            TokenBuffer tokens = new TokenBuffer(file);
+            assertSame(Token.Keyword.COLOR.token, tokens.next());
+            assertSame(Token.Keyword.RED.token, tokens.next());
+            assertSame(Token.EOL_TOKEN, tokens.next());
+            assertSame(Token.EOF_TOKEN, tokens.next());
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -2,6 +2,10 @@ package bugs;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -26,6 +30,14 @@ public class TokenTest {
         Token t1 = new Token("switch");
         Token t2 = new Token(Token.Type.KEYWORD, "switch");
         assertEquals(t1.hashCode(), t2.hashCode());
+
+        // Numbers are hashed by their value, not their characters
+        assertEquals(new Token(12.5).hashCode(), new Token(Token.Type.NUMBER, "12.5").hashCode());
+        assertEquals(new Token(12.5).hashCode(), new Token(Token.Type.NUMBER, "12.50").hashCode());
+        assertEquals(new Token(5).hashCode(), new Token("5").hashCode());
+        assertFalse(new Token(0.0).hashCode() == new Token(-0.0).hashCode());
+        Token odd = new Token(Token.Type.NUMBER, "twelve");
+        assertEquals(odd.hashCode(), new Token(Token.Type.NUMBER, "twelve").hashCode());
     }
 
     /**
@@ -35,7 +47,7 @@ public class TokenTest {
     public final void testToken_Type_String() {
         Token t = new Token(Token.Type.KEYWORD, "loop");
         assertEquals(t.type, Token.Type.KEYWORD);
-        assertEquals(t.value, "loop");
+        assertEquals(t.value(), "loop");
     }
 
     /**
@@ -45,7 +57,7 @@ public class TokenTest {
     public final void testToken_String() {
         Token t = new Token("loop");
         assertEquals(Token.Type.KEYWORD, t.type);
-        assertEquals("loop", t.value);
+        assertEquals("loop", t.value());
         Token t2 = new Token("call");
         assertEquals(Token.Type.KEYWORD, t2.type);
     }
@@ -57,10 +69,29 @@ public class TokenTest {
     public final void testToken_NumericString() {
         Token t = new Token("5");
         assertEquals(Token.Type.NUMBER, t.type);
-        assertEquals("5", t.value);
+        assertEquals("5", t.value());
         t = new Token("5.0");
         assertEquals(Token.Type.NUMBER, t.type);
-        assertEquals("5.0", t.value);
+        assertEquals("5.0", t.value());
+    }
+
+    /**
+     * Test method for {@link bugs.Token#Token(double)}.
+     */
+    @Test
+    public final void testToken_Number() {
+        Token t = new Token(12.5);
+        assertEquals(Token.Type.NUMBER, t.type);
+        assertEquals(12.5, t.number(), 0.0);
+        assertEquals("12.5", t.value());
+        assertSame(t.value(), t.value());
+        assertEquals(new Token(Token.Type.NUMBER, "12.5"), t);
+        assertEquals(new Token(12.5), t);
+        assertEquals(new Token("12.5").hashCode(), new Token(12.5).hashCode());
+        assertFalse(new Token(12.5).equals(new Token(12.25)));
+        assertFalse(new Token(5).equals(new Token("5")));
+        assertEquals("NUMBER:5.0", new Token(5).toString());
+        assertEquals(7.0, new Token("7").number(), 0.0);
     }
 
     /**
@@ -95,6 +126,28 @@ public class TokenTest {
         assertEquals(Token.Type.ERROR, Token.typeOf("=7"));
     }
 
+    /**
+     * Test method for {@link bugs.Token#typeOf(java.lang.String)},
+     * on the edges of each type.
+     */
+    @Test
+    public final void testTypeOfEdgeCases() {
+        assertEquals(Token.Type.NAME, Token.typeOf("_"));
+        assertEquals(Token.Type.NAME, Token.typeOf("moveto2"));
+        assertEquals(Token.Type.ERROR, Token.typeOf("a-b"));
+        assertEquals(Token.Type.ERROR, Token.typeOf("caf\u00e9"));
+
+        assertEquals(Token.Type.NUMBER, Token.typeOf("0"));
+        assertEquals(Token.Type.ERROR, Token.typeOf("1..2"));
+        assertEquals(Token.Type.ERROR, Token.typeOf("..5"));
+        assertEquals(Token.Type.ERROR, Token.typeOf(".5."));
+
+        assertEquals(Token.Type.SYMBOL, Token.typeOf("."));
+        assertEquals(Token.Type.SYMBOL, Token.typeOf("\n\n"));
+        assertEquals(Token.Type.SYMBOL, Token.typeOf("\u00e9"));
+        assertEquals(Token.Type.ERROR, Token.typeOf(""));
+    }
+
     /**
      * Test method for {@link bugs.Token#equals(java.lang.Object)}.
      */
@@ -127,6 +180,70 @@ public class TokenTest {
         assertFalse(Token.isKeyword("algebra"));
     }
 
+    /**
+     * Test method for {@link bugs.Token.Keyword#of(java.lang.String)}.
+     */
+    @Test
+    public final void testKeywordOf() {
+        for (String keyword : Token.KEYWORDS) {
+            assertEquals(keyword, Token.Keyword.of(keyword).text);
+        }
+        assertEquals(Token.KEYWORDS.size(), Token.Keyword.values().length);
+        assertEquals(Token.Keyword.LIGHT_GRAY, Token.Keyword.of("lightGray"));
+        assertNull(Token.Keyword.of("list"));
+        assertNull(Token.Keyword.of("algebra"));
+    }
+
+    /**
+     * Test method for {@link bugs.Token#valueOf(java.lang.String)}.
+     */
+    @Test
+    public final void testValueOf() {
+        String[] values = { "move", "list", "block", "+", "<=", "!=", "\n",
+                            "_", "x", "abc12", "12.5", ".5", "#$", "" };
+        for (String value : values) {
+            assertEquals(new Token(value), Token.valueOf(value));
+        }
+        assertSame(Token.valueOf("move"), Token.valueOf("move"));
+        assertSame(Token.valueOf("list"), Token.valueOf("list"));
+        assertSame(Token.valueOf("{"), Token.symbol('{'));
+        assertSame(Token.valueOf("color"), Token.Keyword.COLOR.token);
+        assertSame(Token.EOL_TOKEN, Token.valueOf("\n"));
+        assertNotSame(Token.valueOf("x"), Token.valueOf("x"));
+    }
+
+    /**
+     * Test method for {@link bugs.Token#wordId(java.lang.String)}.
+     */
+    @Test
+    public final void testWordId() {
+        Set<Integer> ids = new HashSet<Integer>();
+        for (String word : Token.KEYWORDS) {
+            int id = Token.wordId(word);
+            assertEquals(Token.Keyword.of(word).ordinal(), id);
+            assertTrue(ids.add(id));
+        }
+        for (String word : Token.PSEUDO_KEYWORDS) {
+            int id = Token.wordId(word);
+            assertTrue(id >= Token.KEYWORDS.size());
+            assertTrue(ids.add(id));
+        }
+        assertEquals(ids.size() - 1, (int) Collections.max(ids));
+        for (String word : new String[] { "", "x", "mov", "movee", "Move",
+                                          "moveto ", "backgrounds", null }) {
+            assertEquals(-1, Token.wordId(word));
+        }
+        char[] source = "xx lightGray turnto".toCharArray();
+        assertEquals(Token.Keyword.LIGHT_GRAY.ordinal(), Token.wordId(source, 3, 12));
+        assertEquals(Token.Keyword.TURN.ordinal(), Token.wordId(source, 13, 17));
+        assertEquals(-1, Token.wordId(source, 0, 2));
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public final void testKeywordsAreUnmodifiable() {
+        Token.KEYWORDS.add("goto");
+    }
+
     /**
      * Test method for {@link bugs.Token#isColor(java.lang.String)}.
      */
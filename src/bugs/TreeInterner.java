@@ -0,0 +1,61 @@
+package bugs;
+
+import java.util.HashMap;
+
+import tree.Tree;
+
+/**
+ * A table of canonical subtrees, used to store each distinct subtree of
+ * parsed Bugs programs only once.
+ * <p>
+ * A subtree is interned only after all of its children have been, so its
+ * children can be compared by reference; looking up a node therefore
+ * costs time proportional to its number of children, not to the size of
+ * the subtree. Interned subtrees are shared between all the Trees that
+ * contain them, and cannot be changed afterwards. A shared subtree does
+ * not record the Trees it is part of, so the table keeps only the
+ * canonical subtrees alive, not every Tree that was built from them.
+ * <p>
+ * One table may be given to any number of Parsers, so that subtrees are
+ * shared across programs, but only on one thread: the table is not
+ * synchronized, and neither the table nor the Trees built with it may
+ * be passed to another thread without synchronization of their own.
+ */
+public class TreeInterner {
+    /** Each canonical subtree, mapped to itself. */
+    private final HashMap<Tree<Token>, Tree<Token>> table = new HashMap<>();
+
+    /**
+     * Returns the canonical subtree equal to the given one. If there is
+     * none yet, the given subtree becomes the canonical one, and is
+     * marked as shared.
+     * @param tree A subtree whose children have all been interned.
+     * @return A subtree equal to <code>tree</code>, shared by everyone
+     *         interning an equal subtree.
+     */
+    public Tree<Token> intern(Tree<Token> tree) {
+        Tree<Token> canonical = table.get(tree);
+        if (canonical == null) {
+            tree.share();
+            table.put(tree, tree);
+            return tree;
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of distinct subtrees in this table.
+     * @return The number of canonical subtrees.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Removes all the subtrees from this table. Trees already built
+     * keep the subtrees they share.
+     */
+    public void clear() {
+        table.clear();
+    }
+}
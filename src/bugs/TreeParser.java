@@ -36,8 +36,8 @@ public class TreeParser {
         if (!tokenizer.hasNext()) return root;
         
         token = nextActualToken(tokenizer);             // [ "("
-        if (!"(".equals(token.value)) {
-            tokenizer.pushBack(token.value);
+        if (!"(".equals(token.value())) {
+            tokenizer.pushBack(token.value());
             return root;
         }
         tree = makeTree(tokenizer);                // <tree>
@@ -45,8 +45,8 @@ public class TreeParser {
         
         assert tokenizer.hasNext();
         token = nextActualToken(tokenizer);
-        while (!token.value.equals(")")) {
-            tokenizer.pushBack(token.value);
+        while (!token.value().equals(")")) {
+            tokenizer.pushBack(token.value());
             tree = makeTree(tokenizer);            // <tree> }
             root.addChild(tree);
             if (!tokenizer.hasNext()) break;
@@ -64,7 +64,7 @@ public class TreeParser {
      */
     private static Token nextActualToken(PushbackStringTokenizer tokenizer) {
         String s = tokenizer.next();
-        return new Token(s);
+        return Token.valueOf(s);
     }
 
     
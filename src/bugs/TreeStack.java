@@ -0,0 +1,329 @@
+package bugs;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import tree.Tree;
+
+/**
+ * A growable, unsynchronized stack of Trees, used by the
+ * <code>Parser</code> to hold Trees as they are created.
+ * <p>
+ * The methods <code>push</code>, <code>pop</code>, <code>peek</code>,
+ * <code>empty</code>, <code>search</code>, <code>isEmpty</code>,
+ * <code>size</code>, <code>get</code>, <code>elementAt</code>,
+ * <code>firstElement</code>, <code>lastElement</code> and
+ * <code>contains</code> behave as the same methods of
+ * <code>java.util.Stack</code>, and a TreeStack is iterated over bottom
+ * first, as a Stack is. In addition, elements can be reached by their
+ * depth from the top, and <code>reduce</code> assembles the top
+ * elements into a new Tree in one operation.
+ * <p>
+ * A TreeStack is not a <code>java.util.Stack</code>, nor any other
+ * <code>Collection</code>: code that assigned the Parser's stack to a
+ * Stack or a List, or changed it through the rest of the
+ * <code>Vector</code> methods, must use these methods instead.
+ * <p>
+ * As a <code>ParseListener</code>, a TreeStack builds the Trees that
+ * the Parser's actions describe; which rules they are built for does
+ * not matter to it.
+ */
+public class TreeStack implements ParseListener, Iterable<Tree<Token>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The elements, bottom first. */
+    private Tree<Token>[] elements = newArray(INITIAL_CAPACITY);
+    /** The number of elements on the stack. */
+    private int size = 0;
+    /** Where finished subtrees are interned, or <code>null</code>. */
+    private TreeInterner interner = null;
+
+    /**
+     * Turns interning on or off. While it is on, <code>reduce</code>
+     * replaces each child by the equal subtree in the given table, so
+     * that repeated subtrees are stored once. A Tree that has become a
+     * child is never changed again, so it is safe to share.
+     * @param interner The table to intern children in, or
+     *        <code>null</code> to turn interning off.
+     */
+    public void setInterner(TreeInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Pushes a Tree onto the top of this stack.
+     * @param tree The Tree to be pushed.
+     * @return The Tree that was pushed.
+     */
+    public Tree<Token> push(Tree<Token> tree) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, 2 * size);
+        }
+        elements[size++] = tree;
+        return tree;
+    }
+
+    /**
+     * Does nothing, as the Trees are built from the other steps alone.
+     * @param rule The name of the rule.
+     */
+    @Override
+    public void enterNode(String rule) {}
+
+    /**
+     * Does nothing, as the Trees are built from the other steps alone.
+     * @param rule The name of the rule.
+     * @param parsed Whether the rule was parsed.
+     */
+    @Override
+    public void exitNode(String rule, boolean parsed) {}
+
+    /**
+     * Pushes a Tree with the given token and no children.
+     * @param token The value of the Tree.
+     */
+    @Override
+    public void token(Token token) {
+        push(new Tree<>(token));
+    }
+
+    /**
+     * Removes and returns the Tree at the top of this stack.
+     * @return The Tree that was on top.
+     * @throws EmptyStackException If the stack is empty.
+     */
+    public Tree<Token> pop() {
+        if (size == 0) throw new EmptyStackException();
+        Tree<Token> top = elements[--size];
+        elements[size] = null;
+        return top;
+    }
+
+    /**
+     * Returns the Tree at the top of this stack without removing it.
+     * @return The Tree on top.
+     * @throws EmptyStackException If the stack is empty.
+     */
+    public Tree<Token> peek() {
+        if (size == 0) throw new EmptyStackException();
+        return elements[size - 1];
+    }
+
+    /**
+     * Returns the n-th Tree from the top of this stack, counting the
+     * top element as 1.
+     * @param n Which element to return.
+     * @return The n-th element from the top.
+     * @throws IndexOutOfBoundsException If there are fewer than
+     *         <code>n</code> elements.
+     */
+    public Tree<Token> peek(int n) {
+        if (n < 1 || n > size) {
+            throw new IndexOutOfBoundsException("Depth " + n + ", size " + size);
+        }
+        return elements[size - n];
+    }
+
+    /**
+     * Removes the Tree at the top of this stack.
+     * @throws EmptyStackException If the stack is empty.
+     */
+    @Override
+    public void discard() {
+        pop();
+    }
+
+    /**
+     * Removes the top <code>k</code> Trees from this stack.
+     * @param k The number of Trees to remove.
+     * @throws EmptyStackException If there are fewer than <code>k</code>
+     *         elements.
+     */
+    public void popN(int k) {
+        if (k > size) throw new EmptyStackException();
+        int newSize = size - k;
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+    }
+
+    /**
+     * Assembles some number of elements from the top of this stack
+     * into a new Tree, and replaces those elements with the new Tree.
+     * The children are attached without a circularity check, since
+     * distinct stack elements are never ancestors of one another.<p>
+     * <b>Caution:</b> The arguments must be consecutive integers 1..N,
+     * in any order, but with no gaps; for example, reduce(2,4,1,5)
+     * would cause problems (3 was omitted).
+     *
+     * @param rootIndex Which stack element (counting from 1) to use as
+     * the root of the new Tree.
+     * @param childIndices Which stack elements to use as the children
+     * of the root, in order.
+     */
+    @Override
+    public void reduce(int rootIndex, int... childIndices) {
+        int count = childIndices.length + 1;
+        if (count > size) throw new EmptyStackException();
+        int base = size - count;
+        Tree<Token> root = elements[size - rootIndex];
+        for (int index : childIndices) {
+            Tree<Token> child = elements[size - index];
+            if (interner != null) child = interner.intern(child);
+            root.addTrustedChild(child);
+        }
+        Arrays.fill(elements, base + 1, size, null);
+        elements[base] = root;
+        size = base + 1;
+    }
+
+    /**
+     * Returns the Tree at the given position, counting the bottom of
+     * the stack as 0.
+     * @param index The position of the element.
+     * @return The element at that position.
+     * @throws IndexOutOfBoundsException If there is no such element.
+     */
+    public Tree<Token> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Returns the Tree at the given position, counting the bottom of
+     * the stack as 0, as <code>get</code> does.
+     * @param index The position of the element.
+     * @return The element at that position.
+     * @throws IndexOutOfBoundsException If there is no such element.
+     */
+    public Tree<Token> elementAt(int index) {
+        return get(index);
+    }
+
+    /**
+     * Returns the Tree at the bottom of this stack.
+     * @return The bottom element.
+     * @throws NoSuchElementException If the stack is empty.
+     */
+    public Tree<Token> firstElement() {
+        if (size == 0) throw new NoSuchElementException();
+        return elements[0];
+    }
+
+    /**
+     * Returns the Tree at the top of this stack.
+     * @return The top element.
+     * @throws NoSuchElementException If the stack is empty.
+     */
+    public Tree<Token> lastElement() {
+        if (size == 0) throw new NoSuchElementException();
+        return elements[size - 1];
+    }
+
+    /**
+     * Returns how far from the top of this stack the topmost Tree equal
+     * to the given one is, counting the top element as 1.
+     * @param tree The Tree to look for.
+     * @return Its distance from the top, or -1 if it is not on the stack.
+     */
+    public int search(Object tree) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (elements[i].equals(tree)) return size - i;
+        }
+        return -1;
+    }
+
+    /**
+     * Tests whether a Tree equal to the given one is on this stack.
+     * @param tree The Tree to look for.
+     * @return <code>true</code> if it is on the stack.
+     */
+    public boolean contains(Object tree) {
+        return search(tree) > 0;
+    }
+
+    /**
+     * Returns an iterator over the Trees on this stack, bottom first.
+     * The stack must not be changed while it is being iterated over,
+     * and not through the iterator either.
+     * @return The iterator.
+     */
+    @Override
+    public Iterator<Tree<Token>> iterator() {
+        return new Iterator<Tree<Token>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Tree<Token> next() {
+                if (next >= size) throw new NoSuchElementException();
+                return elements[next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of Trees on this stack.
+     * @return The size of the stack.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests whether this stack is empty.
+     * @return <code>true</code> if there are no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Tests whether this stack is empty.
+     * @return <code>true</code> if there are no elements.
+     */
+    public boolean empty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the elements from this stack, keeping its capacity.
+     */
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the elements of the stack, bottom first, in the form
+     * <code>[tree, tree, ..., tree]</code>.
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Arrays.asList(elements).subList(0, size).toString();
+    }
+
+    /**
+     * Creates an array of Trees of the given length.
+     * @param length The length of the array.
+     * @return The new array.
+     */
+    @SuppressWarnings("unchecked")
+    private static Tree<Token>[] newArray(int length) {
+        return (Tree<Token>[]) new Tree<?>[length];
+    }
+}
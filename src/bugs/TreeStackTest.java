@@ -0,0 +1,132 @@
+package bugs;
+
+import static org.junit.Assert.*;
+
+import java.util.EmptyStackException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tree.Tree;
+
+public class TreeStackTest {
+    TreeStack stack;
+    Tree<Token> a, b, c, d;
+
+    @Before
+    public void setUp() throws Exception {
+        stack = new TreeStack();
+        a = node("a");
+        b = node("b");
+        c = node("c");
+        d = node("d");
+    }
+
+    @Test
+    public final void testPushPopPeek() {
+        assertTrue(stack.isEmpty());
+        stack.push(a);
+        stack.push(b);
+        assertEquals(2, stack.size());
+        assertSame(b, stack.peek());
+        assertSame(b, stack.pop());
+        assertSame(a, stack.pop());
+        assertTrue(stack.empty());
+    }
+
+    @Test
+    public final void testStackAccessors() {
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        assertSame(a, stack.firstElement());
+        assertSame(c, stack.lastElement());
+        assertSame(b, stack.elementAt(1));
+        assertEquals(1, stack.search(node("c")));
+        assertEquals(3, stack.search(a));
+        assertEquals(-1, stack.search(d));
+        assertTrue(stack.contains(node("b")));
+        assertFalse(stack.contains(d));
+        StringBuilder values = new StringBuilder();
+        for (Tree<Token> tree : stack) {
+            values.append(tree.getValue().value());
+        }
+        assertEquals("abc", values.toString());
+    }
+
+    @Test(expected=EmptyStackException.class)
+    public final void testPopEmpty() {
+        stack.pop();
+    }
+
+    @Test(expected=EmptyStackException.class)
+    public final void testPeekEmpty() {
+        stack.peek();
+    }
+
+    @Test
+    public final void testGrowth() {
+        for (int i = 0; i < 1000; i++) {
+            stack.push(node("x" + i));
+        }
+        assertEquals(1000, stack.size());
+        assertEquals(node("x0"), stack.get(0));
+        assertEquals(node("x999"), stack.peek());
+    }
+
+    @Test
+    public final void testPeekN() {
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        assertSame(c, stack.peek(1));
+        assertSame(b, stack.peek(2));
+        assertSame(a, stack.peek(3));
+        assertSame(a, stack.get(0));
+    }
+
+    @Test
+    public final void testPopN() {
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        stack.popN(2);
+        assertEquals(1, stack.size());
+        assertSame(a, stack.peek());
+    }
+
+    @Test
+    public final void testReduce() {
+        stack.push(d);
+        stack.push(a);
+        stack.push(b);
+        stack.push(c);
+        stack.reduce(2, 3, 1);
+        assertEquals(2, stack.size());
+        assertSame(b, stack.peek());
+        assertEquals(new Tree<Token>(new Token("b"), node("a"), node("c")),
+                     stack.peek());
+        assertSame(d, stack.get(0));
+    }
+
+    @Test
+    public final void testReduceWithInterning() {
+        TreeInterner interner = new TreeInterner();
+        stack.setInterner(interner);
+        stack.push(a);
+        stack.push(node("x"));
+        stack.reduce(2, 1);
+        stack.push(b);
+        stack.push(node("x"));
+        stack.reduce(2, 1);
+        stack.reduce(2, 1);
+        assertEquals(1, stack.size());
+        assertSame(a.getChild(0), b.getChild(0));
+        assertSame(b, a.getChild(1));
+        assertEquals(2, interner.size());
+    }
+
+    private Tree<Token> node(String value) {
+        return new Tree<Token>(new Token(value));
+    }
+}
@@ -1,7 +1,10 @@
 package tree;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
 
 /**
@@ -12,9 +15,43 @@ import java.util.StringTokenizer;
  * @param <V> The type of value that can be held in each Tree node.
  */
 public class Tree<V> implements Iterable<Tree<V>> {
+    /** How far each level of <code>print</code> output is indented. */
+    private static final int INDENT_WIDTH = 3;
+    /** Spaces to take indentation from, a slice at a time. */
+    private static final String SPACES = "                                "
+                                       + "                                ";
+    /** The line separator written by <code>print</code>. */
+    private static final String NEWLINE = System.lineSeparator();
     private V value;
     private ArrayList<Tree<V>> children;
+    /** The node this one is a child of, if it is a child of just one. */
+    private Tree<V> parent;
+    /**
+     * The nodes this one is a child of, if it is a child of more than
+     * one, or more than once; otherwise <code>null</code>.
+     */
+    private ArrayList<Tree<V>> parents;
+    /**
+     * Whether this node is shared by other Trees, and so records none of
+     * the nodes it is a child of, and cannot be changed.
+     */
+    private boolean shared;
+    /** The cached structural hash code of this Tree. */
+    private int hash;
+    /** Whether <code>hash</code> is up to date. */
+    private boolean hashed;
     
+    /**
+     * Constructs a Tree with the given value in the root node, and no
+     * children.
+     * 
+     * @param value The value to be put in the root.
+     */
+    public Tree(V value) {
+        this.value = value;
+        this.children = new ArrayList<Tree<V>>(0);
+    }
+
     /**
      * Constructs a Tree with the given value in the root node,
      * having the given children.
@@ -24,11 +61,13 @@ public class Tree<V> implements Iterable<Tree<V>> {
      * @throws IllegalArgumentException
      *         If the operation would create a circular Tree.
      */
+    @SafeVarargs
     public Tree(V value, Tree<V>... children) {
         this.value = value;
         this.children = new ArrayList<Tree<V>>(children.length);
         for (Tree<V> child : children) {
             this.children.add(child);
+            child.addParent(this);
         }
     }
     
@@ -36,9 +75,12 @@ public class Tree<V> implements Iterable<Tree<V>> {
      * Sets the value in this node.
      * 
      * @param value The value to be stored in this node.
+     * @throws IllegalStateException If this node is shared.
      */
     public void setValue(V value) {
+        checkNotShared();
         this.value = value;
+        invalidateHash();
     }
     
     /**
@@ -59,23 +101,50 @@ public class Tree<V> implements Iterable<Tree<V>> {
      * @param child The child to be added to this node.
      * @throws IllegalArgumentException
      *         If the operation would create a circular Tree.
+     * @throws IllegalStateException If this node is shared.
      */
     public void addChild(int index, Tree<V> child) {
-        if (child.contains(this)) {
+        checkNotShared();
+        if (isAncestorOrSelf(child)) {
             throw new IllegalArgumentException("Circular Tree");
         }
         children.add(index, child);
+        child.addParent(this);
+        invalidateHash();
     }
     
     /**
      * Adds the child as the new last child of this node.
      * @param child The child to be added to this node.
+     * @throws IllegalArgumentException
+     *         If the operation would create a circular Tree.
+     * @throws IllegalStateException If this node is shared.
      */
     public void addChild(Tree<V> child) {
-        if (child.contains(this)) {
+        checkNotShared();
+        if (isAncestorOrSelf(child)) {
             throw new IllegalArgumentException("Circular Tree");
         }
         children.add(child);
+        child.addParent(this);
+        invalidateHash();
+    }
+
+    /**
+     * Adds the child as the new last child of this node <i>without</i>
+     * checking whether this would create a circular Tree. This is for
+     * code, such as a parser assembling a tree bottom-up, that only ever
+     * attaches finished subtrees to new roots, and so can guarantee that
+     * the child is not this node or one of its ancestors.
+     * 
+     * @param child The child to be added to this node.
+     * @throws IllegalStateException If this node is shared.
+     */
+    public void addTrustedChild(Tree<V> child) {
+        checkNotShared();
+        children.add(child);
+        child.addParent(this);
+        invalidateHash();
     }
 
     /**
@@ -84,16 +153,71 @@ public class Tree<V> implements Iterable<Tree<V>> {
      * @param children The nodes to be added as children of this node.
      * @throws IllegalArgumentException
      *         If the operation would create a circular Tree.
+     * @throws IllegalStateException If this node is shared.
      */
     public void addChildren(Tree<V>... children) {
-        for (Tree<V> child : children) {
-            if (child.contains(this)) {
-                throw new IllegalArgumentException("Circular Tree");
+        checkNotShared();
+        try {
+            for (Tree<V> child : children) {
+                if (isAncestorOrSelf(child)) {
+                    throw new IllegalArgumentException("Circular Tree");
+                }
+                this.children.add(child);
+                child.addParent(this);
             }
-            this.children.add(child);
+        }
+        finally {
+            // children added before a circular one stay added
+            invalidateHash();
         }
     }
     
+    /**
+     * Marks this Tree as shared, as the subtrees in a table of canonical
+     * subtrees are: it may then be a child of any number of Trees, but
+     * it no longer records which, so it does not keep them from being
+     * garbage collected, and neither it nor any node below it can be
+     * changed. The hash codes are computed now, so that nothing in a
+     * shared Tree is written again.
+     */
+    public void share() {
+        hashCode();
+        ArrayDeque<Tree<V>> pending = new ArrayDeque<Tree<V>>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Tree<V> node = pending.pop();
+            if (node.shared) continue;
+            node.shared = true;
+            node.parent = null;
+            node.parents = null;
+            for (Tree<V> child : node.children) {
+                pending.push(child);
+            }
+        }
+    }
+
+    /**
+     * Returns whether this Tree is shared, and so cannot be changed.
+     * 
+     * @return <code>true</code> if <code>share</code> has been called on
+     *         this node or on one above it.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the number of times this node is recorded as a child: once
+     * for each node it has been added to and not removed from, or 0 if
+     * it is shared.
+     * 
+     * @return A count of the links to this node's parents.
+     */
+    public int getNumberOfParents() {
+        if (parents != null) return parents.size();
+        return parent == null ? 0 : 1;
+    }
+
     /**
      * Returns the number of children that this node has.
      * 
@@ -116,12 +240,44 @@ public class Tree<V> implements Iterable<Tree<V>> {
     }
     
     /**
-     * Returns an iterator for the children of this node. 
+     * Returns an iterator for the children of this node. A child removed
+     * through the iterator is no longer linked to this node; children
+     * cannot be removed from a shared node.
      * 
      * @return An iterator for this node's immediate children.
      */
     public Iterator<Tree<V>> iterator() {
-        return children.iterator();
+        return new ChildIterator();
+    }
+
+    /**
+     * Returns an iterator over every node of this Tree in pre-order:
+     * each node before its children, and children left to right.
+     * 
+     * @return A pre-order iterator over the nodes of this Tree.
+     */
+    public Iterator<Tree<V>> preOrderIterator() {
+        return new PreOrderIterator<V>(this);
+    }
+
+    /**
+     * Returns an iterator over every node of this Tree in post-order:
+     * each node after its children, and children left to right.
+     * 
+     * @return A post-order iterator over the nodes of this Tree.
+     */
+    public Iterator<Tree<V>> postOrderIterator() {
+        return new PostOrderIterator<V>(this);
+    }
+
+    /**
+     * Returns an iterator over every node of this Tree in breadth-first
+     * order: level by level, each level left to right.
+     * 
+     * @return A breadth-first iterator over the nodes of this Tree.
+     */
+    public Iterator<Tree<V>> breadthFirstIterator() {
+        return new BreadthFirstIterator<V>(this);
     }
     
     /**
@@ -132,13 +288,116 @@ public class Tree<V> implements Iterable<Tree<V>> {
      * @return <code>true</code> iff the node is found.
      */
     boolean contains(Tree<V> node) {
-        if (this == node) return true;
-        for (Tree<V> child : children) {
-            if (child.contains(node)) return true;
+        ArrayDeque<Tree<V>> pending = new ArrayDeque<Tree<V>>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Tree<V> next = pending.pop();
+            if (next == node) return true;
+            for (Tree<V> child : next.children) {
+                pending.push(child);
+            }
         }
         return false;
     }
     
+    /**
+     * Tests whether <code>node</code> is this node or one of its
+     * ancestors, that is, whether adding it as a child of this node would
+     * create a circular Tree. Parent links are followed upward from this
+     * node, so the cost depends on this node's depth rather than on the
+     * size of <code>node</code>. Only if a node that has more than one
+     * parent is met must <code>node</code> be searched instead.
+     * 
+     * @param node The node to be looked for.
+     * @return <code>true</code> iff <code>node</code> is this node or an
+     *         ancestor of it.
+     */
+    private boolean isAncestorOrSelf(Tree<V> node) {
+        for (Tree<V> n = this; n != null; n = n.parent) {
+            if (n == node) return true;
+            if (n.parents != null) return node.contains(this);
+        }
+        return false;
+    }
+
+    /**
+     * Forgets the cached hash codes of this node and of every node above
+     * it, following all the parents of a node that has several. A node
+     * whose hash is not cached has no ancestor whose hash is cached, so
+     * the walk stops there; Trees that do not contain this node keep
+     * their cached hash codes.
+     */
+    private void invalidateHash() {
+        ArrayDeque<Tree<V>> pending = null;
+        Tree<V> n = this;
+        while (true) {
+            while (n != null && n.hashed) {
+                n.hashed = false;
+                if (n.parents != null) {
+                    if (pending == null) pending = new ArrayDeque<Tree<V>>();
+                    pending.addAll(n.parents);
+                    break;
+                }
+                n = n.parent;
+            }
+            if (pending == null || pending.isEmpty()) return;
+            n = pending.pop();
+        }
+    }
+
+    /**
+     * Throws an exception if this node is shared.
+     * 
+     * @throws IllegalStateException If this node cannot be changed.
+     */
+    private void checkNotShared() {
+        if (shared) throw new IllegalStateException("Shared Tree");
+    }
+
+    /**
+     * Records that this node has been added as a child of the given node,
+     * unless this node is shared.
+     * 
+     * @param newParent The node this one has been added to.
+     */
+    private void addParent(Tree<V> newParent) {
+        if (shared) return;
+        if (parent == null && parents == null) {
+            parent = newParent;
+            return;
+        }
+        if (parents == null) {
+            parents = new ArrayList<Tree<V>>(2);
+            parents.add(parent);
+            parent = null;
+        }
+        parents.add(newParent);
+    }
+    
+    /**
+     * Records that this node has been removed from the children of the
+     * given node, once.
+     * 
+     * @param oldParent The node this one has been removed from.
+     */
+    private void removeParent(Tree<V> oldParent) {
+        if (parents == null) {
+            if (parent == oldParent) parent = null;
+            return;
+        }
+        // Trees are compared by identity here, not by equals
+        for (int i = parents.size() - 1; i >= 0; i--) {
+            if (parents.get(i) == oldParent) {
+                parents.remove(i);
+                break;
+            }
+        }
+        if (parents.size() == 1) {
+            parent = parents.get(0);
+            parents = null;
+        }
+    }
+
     /**
      * Returns a one-line string representing this tree.
      * The form of the output is:<br>
@@ -148,36 +407,98 @@ public class Tree<V> implements Iterable<Tree<V>> {
      */
     @Override
     public String toString() {
-        if (children.size() == 0) {
-            return value.toString();
+        StringBuilder builder = new StringBuilder();
+        try {
+            appendTo(builder);
         }
-        String result = value + "(" + children.get(0);
-        for (int i = 1; i < children.size(); i++) {
-            result += " " + children.get(i);
+        catch (IOException e) {
+            throw new AssertionError(e); // StringBuilder does not throw
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the one-line form of this tree, as returned by
+     * <code>toString()</code>, to the given destination. No intermediate
+     * strings are built, so the time taken is linear in the size of
+     * the tree.
+     * 
+     * @param out Where the tree is to be written.
+     * @throws IOException If <code>out</code> throws it.
+     */
+    public void appendTo(Appendable out) throws IOException {
+        out.append(String.valueOf(value));
+        if (children.size() == 0) return;
+        out.append('(');
+        ArrayDeque<Frame<V>> path = new ArrayDeque<Frame<V>>();
+        path.push(new Frame<V>(this));
+        while (!path.isEmpty()) {
+            Frame<V> frame = path.peek();
+            if (frame.next == frame.node.children.size()) {
+                out.append(')');
+                path.pop();
+                continue;
+            }
+            if (frame.next > 0) out.append(' ');
+            Tree<V> child = frame.node.children.get(frame.next++);
+            out.append(String.valueOf(child.value));
+            if (child.children.size() > 0) {
+                out.append('(');
+                path.push(new Frame<V>(child));
+            }
         }
-        return result + ")";
     }
     
     /**
      * Prints this tree as an indented structure.
      */
     public void print() {
-        print(this, "");
-    }   
-    
+        try {
+            print(System.out);
+        }
+        catch (IOException e) {
+            throw new AssertionError(e); // PrintStream does not throw
+        }
+    }
+
     /**
-     * Prints the given tree as an indented structure, with the
-     * given node indented by the given amount.
-     * @param node The root of the tree or subtree to be printed.
-     * @param indent The amount to indent the root.
+     * Writes this tree as an indented structure to the given destination,
+     * one node per line, each level indented three spaces more than
+     * its parent.
+     * 
+     * @param out Where the tree is to be written.
+     * @throws IOException If <code>out</code> throws it.
      */
-    private static void print(Tree<?> node, String indent) {
-        if (node == null) return;
-        System.out.println(indent + node.value);
-        for (int i = 0; i < node.getNumberOfChildren(); i++) {
-            print(node.getChild(i), indent + "   ");
+    public void print(Appendable out) throws IOException {
+        out.append(String.valueOf(value)).append(NEWLINE);
+        ArrayDeque<Frame<V>> path = new ArrayDeque<Frame<V>>();
+        path.push(new Frame<V>(this));
+        while (!path.isEmpty()) {
+            Frame<V> frame = path.peek();
+            if (frame.next == frame.node.children.size()) {
+                path.pop();
+                continue;
+            }
+            Tree<V> child = frame.node.children.get(frame.next++);
+            indent(path.size() * INDENT_WIDTH, out);
+            out.append(String.valueOf(child.value)).append(NEWLINE);
+            path.push(new Frame<V>(child));
         }
     }
+
+    /**
+     * Writes the given number of spaces.
+     * @param indent How many spaces to write.
+     * @param out Where the spaces are to be written.
+     * @throws IOException If <code>out</code> throws it.
+     */
+    private static void indent(int indent, Appendable out) throws IOException {
+        while (indent > SPACES.length()) {
+            out.append(SPACES);
+            indent -= SPACES.length();
+        }
+        out.append(SPACES, 0, indent);
+    }
     
     /**
      * Tests whether the input argument is a Tree having the same shape
@@ -190,16 +511,60 @@ public class Tree<V> implements Iterable<Tree<V>> {
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof Tree)) return false;
-        Tree<?> that = (Tree<?>) obj;
-        if (!equals(this.value, that.value)) return false;
-        if (!equals(this.getNumberOfChildren(),
-                    that.getNumberOfChildren())) return false;
-        for (int i = 0; i < getNumberOfChildren(); i++) {
-            if (!(this.getChild(i).equals(that.getChild(i)))) return false;
+        if (this.hashCode() != obj.hashCode()) return false;
+        ArrayDeque<Tree<?>> these = new ArrayDeque<Tree<?>>();
+        ArrayDeque<Tree<?>> those = new ArrayDeque<Tree<?>>();
+        these.push(this);
+        those.push((Tree<?>) obj);
+        while (!these.isEmpty()) {
+            Tree<?> thisNode = these.pop();
+            Tree<?> thatNode = those.pop();
+            if (thisNode == thatNode) continue;
+            if (thisNode.hashed && thatNode.hashed
+                    && thisNode.hash != thatNode.hash) return false;
+            if (!equals(thisNode.value, thatNode.value)) return false;
+            int n = thisNode.getNumberOfChildren();
+            if (n != thatNode.getNumberOfChildren()) return false;
+            for (int i = 0; i < n; i++) {
+                these.push(thisNode.getChild(i));
+                those.push(thatNode.getChild(i));
+            }
         }
         return true;
     }
     
+    /**
+     * Returns a hash code computed from the values and shape of this Tree,
+     * so that equal Trees have equal hash codes. The hash code of every
+     * node is cached, and recomputed only after a change to the node
+     * or below it.
+     * 
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        if (hashed) return hash;
+        ArrayDeque<Frame<V>> path = new ArrayDeque<Frame<V>>();
+        path.push(new Frame<V>(this));
+        while (!path.isEmpty()) {
+            Frame<V> frame = path.peek();
+            if (frame.next < frame.node.children.size()) {
+                Tree<V> child = frame.node.children.get(frame.next++);
+                if (!child.hashed) path.push(new Frame<V>(child));
+                continue;
+            }
+            path.pop();
+            Tree<V> node = frame.node;
+            int h = 31 + (node.value == null ? 0 : node.value.hashCode());
+            for (Tree<V> child : node.children) {
+                h = 31 * h + child.hash;
+            }
+            node.hash = h;
+            node.hashed = true;
+        }
+        return hash;
+    }
+    
     /**
      * Tests whether two values are equal (either == or <code>equals(obj)</code>),
      * when one or both values may be <code>null</code>.
@@ -300,6 +665,141 @@ public class Tree<V> implements Iterable<Tree<V>> {
     }
     
     //---------------------------------------------------------------------
+
+    /**
+     * A node on a path down a Tree, together with the index of its next
+     * child to be visited. Keeping these on an explicit stack lets
+     * traversals go to any depth without recursion.
+     */
+    private static final class Frame<V> {
+        final Tree<V> node;
+        int next = 0;
+
+        Frame(Tree<V> node) {
+            this.node = node;
+        }
+    }
+
+    /**
+     * Iterates over the children of this node, keeping the links from
+     * the children and the cached hash codes up to date when one is
+     * removed.
+     */
+    private final class ChildIterator implements Iterator<Tree<V>> {
+        private final Iterator<Tree<V>> iterator = children.iterator();
+        /** The child last returned by <code>next</code>. */
+        private Tree<V> last;
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Tree<V> next() {
+            last = iterator.next();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            checkNotShared();
+            iterator.remove();
+            last.removeParent(Tree.this);
+            last = null;
+            invalidateHash();
+        }
+    }
+
+    /**
+     * Base class for the whole-tree iterators, which do not support
+     * <code>remove</code>.
+     */
+    private abstract static class TreeIterator<V> implements Iterator<Tree<V>> {
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Visits each node before its children.
+     */
+    private static final class PreOrderIterator<V> extends TreeIterator<V> {
+        private final ArrayDeque<Tree<V>> pending = new ArrayDeque<Tree<V>>();
+
+        PreOrderIterator(Tree<V> root) {
+            pending.push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Tree<V> next() {
+            if (pending.isEmpty()) throw new NoSuchElementException();
+            Tree<V> node = pending.pop();
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                pending.push(node.children.get(i));
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Visits each node after its children.
+     */
+    private static final class PostOrderIterator<V> extends TreeIterator<V> {
+        private final ArrayDeque<Frame<V>> path = new ArrayDeque<Frame<V>>();
+
+        PostOrderIterator(Tree<V> root) {
+            path.push(new Frame<V>(root));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Tree<V> next() {
+            if (path.isEmpty()) throw new NoSuchElementException();
+            while (true) {
+                Frame<V> frame = path.peek();
+                if (frame.next == frame.node.children.size()) {
+                    path.pop();
+                    return frame.node;
+                }
+                path.push(new Frame<V>(frame.node.children.get(frame.next++)));
+            }
+        }
+    }
+
+    /**
+     * Visits the nodes level by level.
+     */
+    private static final class BreadthFirstIterator<V> extends TreeIterator<V> {
+        private final ArrayDeque<Tree<V>> pending = new ArrayDeque<Tree<V>>();
+
+        BreadthFirstIterator(Tree<V> root) {
+            pending.add(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Tree<V> next() {
+            if (pending.isEmpty()) throw new NoSuchElementException();
+            Tree<V> node = pending.remove();
+            pending.addAll(node.children);
+            return node;
+        }
+    }
     
     /**
      * A Tokenizer that returns one of four things: a left parenthesis, a
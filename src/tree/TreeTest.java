@@ -2,7 +2,11 @@ package tree;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -103,6 +107,70 @@ public class TreeTest {
         seven.addChild(0, three);
     }
 
+    @Test
+    public final void testCircularityInDeepTree() {
+        Tree<String> root = new Tree<String>("root");
+        Tree<String> leaf = root;
+        for (int i = 0; i < 10000; i++) {
+            Tree<String> next = new Tree<String>("n" + i);
+            leaf.addChild(next);
+            leaf = next;
+        }
+        try {
+            leaf.addChild(root);
+            fail("Circular Tree not detected");
+        }
+        catch (IllegalArgumentException e) {}
+        leaf.addChild(new Tree<String>("x"));
+        assertEquals(1, leaf.getNumberOfChildren());
+    }
+
+    @Test
+    public final void testCircularityThroughSharedNode() {
+        Tree<String> shared = new Tree<String>("shared");
+        Tree<String> a = new Tree<String>("a", shared);
+        Tree<String> b = new Tree<String>("b", shared);
+        Tree<String> below = new Tree<String>("below");
+        shared.addChild(below);
+        try {
+            below.addChild(b);
+            fail("Circular Tree not detected");
+        }
+        catch (IllegalArgumentException e) {}
+        try {
+            below.addChild(a);
+            fail("Circular Tree not detected");
+        }
+        catch (IllegalArgumentException e) {}
+        below.addChild(new Tree<String>("c"));
+        assertChildValues(below, "c");
+    }
+
+    @Test
+    public final void testRemoveChildThroughIterator() {
+        Tree<String> p = new Tree<String>("p");
+        Tree<String> x = new Tree<String>("x");
+        p.addChild(x);
+        Iterator<Tree<String>> iterator = p.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(0, p.getNumberOfChildren());
+        x.addChild(p);
+        assertChildValues(x, "p");
+    }
+
+    @Test
+    public final void testAddTrustedChild() {
+        Tree<String> x = new Tree<String>("x");
+        one.addTrustedChild(x);
+        assertChildValues(one, "two", "three", "x");
+        try {
+            x.addChild(one);
+            fail("Circular Tree not detected");
+        }
+        catch (IllegalArgumentException e) {}
+    }
+
     @Test(expected=IndexOutOfBoundsException.class)
     public final void testAddChildAtIllegalLocation() {
         three.addChild(3, two);
@@ -217,6 +285,241 @@ public class TreeTest {
                      squeezeOutUnnecessaryBlanks(tree.toString()));
     }
     
+    @Test
+    public final void testAppendTo() throws IOException {
+        StringBuilder out = new StringBuilder("> ");
+        one.appendTo(out);
+        assertEquals("> one(two three(four five(six seven eight)))", out.toString());
+    }
+
+    @Test
+    public final void testToStringOfWideTree() {
+        Tree<String> list = new Tree<String>("list");
+        StringBuilder expected = new StringBuilder("list(");
+        for (int i = 0; i < 1000; i++) {
+            list.addChild(new Tree<String>("c" + i));
+            expected.append(i == 0 ? "" : " ").append("c" + i);
+        }
+        assertEquals(expected.append(")").toString(), list.toString());
+    }
+
+    @Test
+    public final void testPrint() throws IOException {
+        StringWriter out = new StringWriter();
+        three.print(out);
+        String nl = System.lineSeparator();
+        assertEquals("three" + nl
+                     + "   four" + nl
+                     + "   five" + nl
+                     + "      six" + nl
+                     + "      seven" + nl
+                     + "      eight" + nl, out.toString());
+    }
+
+    @Test
+    public final void testPrintDeepTree() throws IOException {
+        Tree<String> root = new Tree<String>("0");
+        Tree<String> leaf = root;
+        for (int i = 1; i <= 30; i++) {
+            Tree<String> next = new Tree<String>("" + i);
+            leaf.addChild(next);
+            leaf = next;
+        }
+        StringWriter out = new StringWriter();
+        root.print(out);
+        String[] lines = out.toString().split(System.lineSeparator());
+        assertEquals(31, lines.length);
+        assertEquals(90, lines[30].indexOf("30"));
+    }
+    
+    @Test
+    public final void testHashCode() {
+        assertEquals(tree1.hashCode(), tree2.hashCode());
+        Tree<String> copy = Tree.parse(one.toString());
+        assertEquals(one.hashCode(), copy.hashCode());
+        assertFalse(Tree.parse("a(b c)").hashCode() == Tree.parse("a(b(c))").hashCode());
+        assertFalse(Tree.parse("a(b c)").hashCode() == Tree.parse("a(c b)").hashCode());
+    }
+
+    @Test
+    public final void testHashCodeFollowsChanges() {
+        Tree<String> copy = Tree.parse(one.toString());
+        assertEquals(one, copy);
+        copy.getChild(1).getChild(1).getChild(0).setValue("x");
+        assertFalse(one.equals(copy));
+        assertFalse(one.hashCode() == copy.hashCode());
+        copy.getChild(1).getChild(1).getChild(0).setValue("six");
+        assertEquals(one, copy);
+        assertEquals(one.hashCode(), copy.hashCode());
+        copy.getChild(1).addChild(new Tree<String>("nine"));
+        assertFalse(one.equals(copy));
+        assertFalse(one.hashCode() == copy.hashCode());
+    }
+
+    @Test
+    public final void testHashCodeFollowsChangesBelowSharedNode() {
+        // three is a child of one, tree1 and tree2
+        int before = tree1.hashCode();
+        assertEquals(tree1, tree2);
+        six.setValue("x");
+        assertFalse(before == tree1.hashCode());
+        assertEquals(tree1, tree2);
+        assertEquals(Tree.parse("one(two three(four five(x seven eight)))"), tree1);
+        assertEquals(Tree.parse("one(two three(four five(x seven eight)))").hashCode(),
+                     one.hashCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public final void testHashCodeFollowsRemovalAndFailedAdds() {
+        Tree<String> p = Tree.parse("p(x)");
+        p.hashCode();
+        Iterator<Tree<String>> iterator = p.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(new Tree<String>("p"), p);
+
+        Tree<String> q = Tree.parse("q(r)");
+        Tree<String> r = q.getChild(0);
+        r.hashCode();
+        try {
+            r.addChildren(new Tree<String>("s"), q);
+            fail("Circular Tree not detected");
+        }
+        catch (IllegalArgumentException e) {}
+        assertEquals(Tree.parse("q(r(s))"), q);
+    }
+
+    @Test
+    public final void testShare() {
+        Tree<String> shared = Tree.parse("x(y z)");
+        Tree<String> y = shared.getChild(0);
+        shared.share();
+        assertTrue(shared.isShared());
+        assertTrue(y.isShared());
+        assertEquals(0, y.getNumberOfParents());
+
+        // Parents of a shared node are not recorded
+        for (int i = 0; i < 1000; i++) {
+            new Tree<String>("p").addChild(shared);
+        }
+        assertEquals(0, shared.getNumberOfParents());
+        Tree<String> p = Tree.parse("p(q)");
+        p.addChild(shared);
+        p.addChild(shared);
+        assertEquals(Tree.parse("p(q x(y z) x(y z))"), p);
+        assertEquals(1, p.getChild(0).getNumberOfParents());
+
+        // Nor can a shared node be changed
+        try {
+            y.setValue("w");
+            fail("Shared Tree changed");
+        }
+        catch (IllegalStateException e) {}
+        try {
+            shared.addChild(new Tree<String>("w"));
+            fail("Shared Tree changed");
+        }
+        catch (IllegalStateException e) {}
+        Iterator<Tree<String>> iterator = shared.iterator();
+        iterator.next();
+        try {
+            iterator.remove();
+            fail("Shared Tree changed");
+        }
+        catch (IllegalStateException e) {}
+        assertEquals(Tree.parse("x(y z)"), shared);
+
+        // but it can be removed from a node that is not shared
+        iterator = p.iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+        assertEquals(Tree.parse("p(q x(y z))"), p);
+    }
+
+    @Test
+    public final void testTreesAsKeys() {
+        HashSet<Tree<String>> set = new HashSet<Tree<String>>();
+        set.add(Tree.parse("move(1.0)"));
+        set.add(Tree.parse("turn(90.0)"));
+        set.add(Tree.parse("move(1.0)"));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(Tree.parse("turn(90.0)")));
+        assertFalse(set.contains(Tree.parse("turn(45.0)")));
+    }
+
+    @Test
+    public final void testPreOrderIterator() {
+        assertEquals("one two three four five six seven eight",
+                     values(one.preOrderIterator()));
+        assertEquals("two", values(two.preOrderIterator()));
+    }
+
+    @Test
+    public final void testPostOrderIterator() {
+        assertEquals("two four six seven eight five three one",
+                     values(one.postOrderIterator()));
+        assertEquals("two", values(two.postOrderIterator()));
+    }
+
+    @Test
+    public final void testBreadthFirstIterator() {
+        assertEquals("one two three four five six seven eight",
+                     values(one.breadthFirstIterator()));
+        Tree<String> tree = Tree.parse("a(b(d e) c(f))");
+        assertEquals("a b c d e f", values(tree.breadthFirstIterator()));
+    }
+
+    @Test(expected=NoSuchElementException.class)
+    public final void testIteratorPastEnd() {
+        Iterator<Tree<String>> iter = two.postOrderIterator();
+        iter.next();
+        iter.next();
+    }
+
+    @Test
+    public final void testVeryDeepTree() throws IOException {
+        final int depth = 100000;
+        Tree<String> a = deepTree(depth);
+        Tree<String> b = deepTree(depth);
+        assertEquals(a, b);
+        b.getChild(0).getChild(0).setValue("x");
+        assertFalse(a.equals(b));
+        Tree<String> leaf = a;
+        while (leaf.getNumberOfChildren() > 0) leaf = leaf.getChild(0);
+        assertTrue(a.contains(leaf));
+        assertFalse(a.contains(b));
+        assertTrue(a.toString().startsWith("0(1(2("));
+        StringWriter out = new StringWriter();
+        deepTree(2000).print(out);
+        assertTrue(out.toString().endsWith(SPACES_6000 + "2000" + System.lineSeparator()));
+        int count = 0;
+        for (Iterator<Tree<String>> iter = a.postOrderIterator(); iter.hasNext(); iter.next()) {
+            count++;
+        }
+        assertEquals(depth + 1, count);
+    }
+
+    private static final String SPACES_6000 = new String(new char[6000]).replace('\0', ' ');
+
+    private Tree<String> deepTree(int depth) {
+        Tree<String> tree = new Tree<String>("" + depth);
+        for (int i = depth - 1; i >= 0; i--) {
+            tree = new Tree<String>("" + i, tree);
+        }
+        return tree;
+    }
+
+    private String values(Iterator<Tree<String>> iter) {
+        StringBuilder result = new StringBuilder();
+        while (iter.hasNext()) {
+            if (result.length() > 0) result.append(' ');
+            result.append(iter.next().getValue());
+        }
+        return result.toString();
+    }
+    
     /**
      * Tests whether the children of the node <code>actual</code> have
      * the expected values. Because varargs are used, the actual value